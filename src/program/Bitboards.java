@@ -0,0 +1,147 @@
+package program;
+
+/**
+ * <p>Precomputed attack-tables for bitboards, built once when the class is loaded.</p>
+ * <p>
+ * A bitboard is a long in which bit i stands for the field i of the board-array.
+ * The numbering is the same as in the board-array: Bit 0 is the top left corner (a8), Bit 63 the bottom right corner (h1).
+ * </p>
+ * <p>
+ * Sliding-pieces (Bishops, Rooks and Queens) use one precomputed ray per direction and field.
+ * The ray is cut off behind the first blocking piece, which is found with a single bit-scan.
+ * </p>
+ */
+public final class Bitboards {
+
+    /**
+     * Direction-indices for RAYS. The first four directions walk to higher field-numbers, the last four to lower ones.
+     */
+    public static final int DIR_EAST = 0, DIR_SOUTH = 1, DIR_SOUTH_EAST = 2, DIR_SOUTH_WEST = 3,
+            DIR_WEST = 4, DIR_NORTH = 5, DIR_NORTH_WEST = 6, DIR_NORTH_EAST = 7;
+
+    /**
+     * Column- and row-step of each direction. Index is the direction-index.
+     */
+    private static final int[] DIR_COLUMN_STEP = {1, 0, 1, -1, -1, 0, -1, 1};
+    private static final int[] DIR_ROW_STEP = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /**
+     * All fields a knight on a specific field attacks.
+     */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /**
+     * All fields a king on a specific field attacks.
+     */
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * All fields a pawn on a specific field attacks diagonally. Index [side][field], side is 1 for white and 0 for black (see side()).
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * Ray from a field (excluding the field itself) to the edge of the board. Index [direction][field].
+     */
+    public static final long[][] RAYS = new long[8][64];
+
+    static {
+        for (int pos = 0; pos < 64; pos++) {
+            int column = pos % 8;
+            int row = pos / 8;
+            KNIGHT_ATTACKS[pos] = offsets(column, row, new int[][]{{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}});
+            KING_ATTACKS[pos] = offsets(column, row, new int[][]{{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}});
+            // White pawns walk upwards (to lower field-numbers), black pawns downwards
+            PAWN_ATTACKS[1][pos] = offsets(column, row, new int[][]{{-1, -1}, {1, -1}});
+            PAWN_ATTACKS[0][pos] = offsets(column, row, new int[][]{{-1, 1}, {1, 1}});
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = 0;
+                int c = column + DIR_COLUMN_STEP[dir];
+                int r = row + DIR_ROW_STEP[dir];
+                while (c >= 0 && c < 8 && r >= 0 && r < 8) {
+                    ray |= 1L << (r * 8 + c);
+                    c += DIR_COLUMN_STEP[dir];
+                    r += DIR_ROW_STEP[dir];
+                }
+                RAYS[dir][pos] = ray;
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static long offsets(int column, int row, int[][] offsets) {
+        long attacks = 0;
+        for (int[] offset : offsets) {
+            int c = column + offset[0];
+            int r = row + offset[1];
+            if (c >= 0 && c < 8 && r >= 0 && r < 8)
+                attacks |= 1L << (r * 8 + c);
+        }
+        return attacks;
+    }
+
+    /**
+     * Converts a player (as specified in ChessRules.MASK_PLAYER) into an index for tables with one entry per side.
+     * @param player ChessRules.PLAYER_WHITE or ChessRules.PLAYER_BLACK
+     * @return 1 for white, 0 for black
+     */
+    public static int side(int player) {
+        return player >> 3;
+    }
+
+    /**
+     * Gets all fields of a ray which can be reached from pos, including the first occupied field.
+     * @param dir Direction-index e.g. DIR_NORTH
+     * @param pos Field the ray starts from
+     * @param occupied Bitboard of all occupied fields
+     * @return Bitboard of the attacked fields in that direction.
+     */
+    public static long rayAttacks(int dir, int pos, long occupied) {
+        long attacks = RAYS[dir][pos];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            int blocker = dir < DIR_WEST ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks ^= RAYS[dir][blocker];
+        }
+        return attacks;
+    }
+
+    /**
+     * Gets the whole ray which starts at from and runs through to, e.g. the line a pinned piece may still move on.
+     * @param from Field the ray starts from (not included)
+     * @param to Any field on the ray
+     * @return The ray from 'from' to the edge of the board, 0 if both fields are not on one line.
+     */
+    public static long ray(int from, int to) {
+        for (int dir = 0; dir < 8; dir++) {
+            if ((RAYS[dir][from] & (1L << to)) != 0)
+                return RAYS[dir][from];
+        }
+        return 0;
+    }
+
+    /**
+     * All fields a bishop on pos attacks, given the occupancy of the board.
+     */
+    public static long bishopAttacks(int pos, long occupied) {
+        return rayAttacks(DIR_SOUTH_EAST, pos, occupied) | rayAttacks(DIR_SOUTH_WEST, pos, occupied)
+                | rayAttacks(DIR_NORTH_WEST, pos, occupied) | rayAttacks(DIR_NORTH_EAST, pos, occupied);
+    }
+
+    /**
+     * All fields a rook on pos attacks, given the occupancy of the board.
+     */
+    public static long rookAttacks(int pos, long occupied) {
+        return rayAttacks(DIR_EAST, pos, occupied) | rayAttacks(DIR_SOUTH, pos, occupied)
+                | rayAttacks(DIR_WEST, pos, occupied) | rayAttacks(DIR_NORTH, pos, occupied);
+    }
+
+    /**
+     * All fields a queen on pos attacks, given the occupancy of the board.
+     */
+    public static long queenAttacks(int pos, long occupied) {
+        return bishopAttacks(pos, occupied) | rookAttacks(pos, occupied);
+    }
+}
@@ -96,6 +96,94 @@ public class ChessRules {
      */
     public static final int MASK_SET_FIELD = 0b0100_0000;
 
+    /**
+     * The piece a pawn becomes on the final row is stored in a move from this bit on, see getMove(oldPos, newPos, promotionPiece).
+     */
+    public static final int MOVE_SHIFT_PROMOTION = 16;
+
+    /**
+     * Size of a move-buffer which is always large enough to hold all moves of one position (The maximum number of legal moves in a chess position is 218).
+     */
+    public static final int MAX_MOVES = 256;
+
+    // Layout of the undo-record returned by makeMove(), also used by Position
+    static final int UNDO_MASK_PIECE = 0x7F;
+    static final int UNDO_SHIFT_CAPTURED = 7;
+    static final int UNDO_SHIFT_DOUBLE_JUMP_POS = 14;
+    static final int UNDO_FLAG_DOUBLE_JUMP = 1 << 20;
+    static final int UNDO_FLAG_EN_PASSANT = 1 << 21;
+    static final int UNDO_FLAG_CASTLING = 1 << 22;
+
+    /**
+     * Color and type of a piece on an occupied field, without its stats (MASK_HAS_MOVED, MASK_PAWN_DOUBLE_JUMP).
+     */
+    private static final int MASK_IDENTITY = MASK_SET_FIELD | MASK_PLAYER | MASK_PIECE;
+
+    // Attack-tables, built once when the class is loaded (see the static block below)
+
+    /**
+     * The fields of the eight rays starting at a field, ordered from the field outwards. Index [direction][field].
+     * Directions 0-3 are straight (up, down, left, right), 4-7 diagonal (up left, up right, down left, down right).
+     */
+    private static final int[][][] RAY_FIELDS = new int[8][64][];
+
+    /**
+     * The fields a knight on a field can jump to. Index is the field.
+     */
+    private static final int[][] KNIGHT_FIELDS = new int[64][];
+
+    /**
+     * The fields a king on a field can step to. Index is the field.
+     */
+    private static final int[][] KING_FIELDS = new int[64][];
+
+    /**
+     * The fields a pawn on a field attacks diagonally. Index [side][field], side is 1 for white and 0 for black.
+     * A piece of one player on a field is attacked by the enemy pawns on exactly the fields a pawn of the player itself would attack.
+     */
+    private static final int[][][] PAWN_ATTACK_FIELDS = new int[2][64][];
+
+    static {
+        int[][] rayDirections = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}, {-1, -1}, {1, -1}, {-1, 1}, {1, 1}};
+        int[][] knightJumps = {{-1, -2}, {1, -2}, {-2, -1}, {2, -1}, {-2, 1}, {2, 1}, {-1, 2}, {1, 2}};
+        int[][] kingSteps = {{-1, -1}, {0, -1}, {1, -1}, {-1, 0}, {1, 0}, {-1, 1}, {0, 1}, {1, 1}};
+        for (int pos = 0; pos < 64; pos++) {
+            for (int dir = 0; dir < rayDirections.length; dir++) {
+                int length = 0;
+                int[] ray = new int[7];
+                for (int column = pos % 8 + rayDirections[dir][0], row = pos / 8 + rayDirections[dir][1];
+                     column >= 0 && column < 8 && row >= 0 && row < 8;
+                     column += rayDirections[dir][0], row += rayDirections[dir][1]) {
+                    ray[length++] = row * 8 + column;
+                }
+                RAY_FIELDS[dir][pos] = Arrays.copyOf(ray, length);
+            }
+            KNIGHT_FIELDS[pos] = fieldsInReach(pos, knightJumps);
+            KING_FIELDS[pos] = fieldsInReach(pos, kingSteps);
+            // White pawns attack upwards, black pawns downwards
+            PAWN_ATTACK_FIELDS[1][pos] = fieldsInReach(pos, new int[][]{{-1, -1}, {1, -1}});
+            PAWN_ATTACK_FIELDS[0][pos] = fieldsInReach(pos, new int[][]{{-1, 1}, {1, 1}});
+        }
+    }
+
+    /**
+     * Used to build the attack-tables.
+     * @param pos Field the piece stands on
+     * @param steps Column- and row-difference of each field the piece reaches
+     * @return All fields in reach which are still on the board
+     */
+    private static int[] fieldsInReach(int pos, int[][] steps) {
+        int[] fields = new int[steps.length];
+        int length = 0;
+        for (int[] step : steps) {
+            int column = pos % 8 + step[0];
+            int row = pos / 8 + step[1];
+            if (column >= 0 && column < 8 && row >= 0 && row < 8)
+                fields[length++] = row * 8 + column;
+        }
+        return Arrays.copyOf(fields, length);
+    }
+
     /**
      * Sets specific bit(s) of an integer to 1
      * @param value The input-value that needs to be changed
@@ -174,6 +262,27 @@ public class ChessRules {
         return (newPos << 8) | oldPos;
     }
 
+    /**
+     * <p>Same as getMove(oldPos, newPos) for a pawn reaching the final row, but the piece it becomes is stored in the move as well (bits 16-18).</p>
+     * <p>A promotion to a queen is stored as 0, so a move created with getMove(oldPos, newPos) is the same as the one with PIECE_QUEEN.</p>
+     * @param oldPos The position of the pawn.
+     * @param newPos The position on the final row.
+     * @param promotionPiece The piece-type the pawn becomes (PIECE_QUEEN, PIECE_ROOK, PIECE_BISHOP or PIECE_KNIGHT).
+     * @return The new move-integer
+     */
+    public static int getMove(int oldPos, int newPos, int promotionPiece) {
+        return getMove(oldPos, newPos) | (promotionPiece == PIECE_QUEEN ? 0 : promotionPiece << MOVE_SHIFT_PROMOTION);
+    }
+
+    /**
+     * @param move The move-integer.
+     * @return The piece-type a pawn becomes with this move when it reaches the final row. PIECE_QUEEN if nothing else is stored in the move.
+     */
+    public static int getMovePromotion(int move) {
+        int piece = (move >> MOVE_SHIFT_PROMOTION) & MASK_PIECE;
+        return piece == 0 ? PIECE_QUEEN : piece;
+    }
+
     /**
      * <p>Changes a board-Array by playing a move</p>
      * <p>The move-integer gets split into the two position, the new position gets overwritten by the new one</p>
@@ -181,16 +290,20 @@ public class ChessRules {
      * <p>!!Alert: makeMove() does NOT check if a move is legal or not! It is assumed that the move is legal already! So technically makeMove can play illegal moves, even capturing own pieces</p>
      * @param board The board-array which needs to be altered.
      * @param move The move-integer containing newPos and oldPos.
+     * @return The undo-record of the move. Passing it to unmakeMove() restores the board as it was before.
      */
-    public static void makeMove(int[] board, int move) {
+    public static int makeMove(int[] board, int move) {
         // Move contains two Bytes
         //      - Last byte: Old Pos
         //      - Second to last Byte: New Pos
+        int undo = board[getMoveOldPos(move)] | (board[getMoveNewPos(move)] << UNDO_SHIFT_CAPTURED);
 
         // En Passant:
         if ((board[getMoveOldPos(move)] & MASK_PIECE) == PIECE_PAWN && Math.abs(getMoveNewPos(move) - getMoveOldPos(move)) % 8 != 0) {
             if ((board[getMoveNewPos(move)] & MASK_SET_FIELD) == 0) {
-                board[getMoveOldPos(move) + ((getMoveNewPos(move) % 8) - (getMoveOldPos(move) % 8))] = EMPTY_FIELD;
+                int enPassantPos = getMoveOldPos(move) + ((getMoveNewPos(move) % 8) - (getMoveOldPos(move) % 8));
+                undo = (undo & ~(UNDO_MASK_PIECE << UNDO_SHIFT_CAPTURED)) | (board[enPassantPos] << UNDO_SHIFT_CAPTURED) | UNDO_FLAG_EN_PASSANT;
+                board[enPassantPos] = EMPTY_FIELD;
             }
         }
 
@@ -198,8 +311,12 @@ public class ChessRules {
         board[getMoveOldPos(move)] = EMPTY_FIELD;
 
 
-        // Remove DoubleMoveBit
-        for (int i = 0; i < board.length; i++) {
+        // Remove DoubleMoveBit. A pawn can only carry it on the two rows it jumps to (fields 24-39), so the rest of the board does not need to be checked.
+        for (int i = 24; i < 40; i++) {
+            if ((board[i] & MASK_PAWN_DOUBLE_JUMP) > 0 && i != getMoveNewPos(move)) {
+                // The moved or captured piece is restored from the undo-record anyway, so only remember pawns which stay in place
+                undo |= UNDO_FLAG_DOUBLE_JUMP | (i << UNDO_SHIFT_DOUBLE_JUMP_POS);
+            }
             board[i] = unsetBit(board[i], MASK_PAWN_DOUBLE_JUMP);
         }
         // Castling:
@@ -208,56 +325,235 @@ public class ChessRules {
                 int rookPos = ((int) Math.ceil(getMoveOldPos(move) / 8f)) * 8 - 1;
                 board[getMoveNewPos(move) - 1] = setBit(board[rookPos], MASK_HAS_MOVED);
                 board[rookPos] = EMPTY_FIELD;
+                undo |= UNDO_FLAG_CASTLING;
             } else if (getMoveOldPos(move) - getMoveNewPos(move) == 2) {
                 int rookPos = ((int) Math.floor(getMoveOldPos(move) / 8f)) * 8;
                 board[getMoveNewPos(move) + 1] = setBit(board[rookPos], MASK_HAS_MOVED);
                 board[rookPos] = EMPTY_FIELD;
+                undo |= UNDO_FLAG_CASTLING;
             }
         }
         if ((board[getMoveNewPos(move)] & MASK_PIECE) == PIECE_PAWN) {
             if (getMoveNewPos(move) < 8 || getMoveNewPos(move) >= 56) {
-                // Pawn becomes Queen
-                board[getMoveNewPos(move)] = setBit(board[getMoveNewPos(move)], PIECE_QUEEN);
+                // Pawn becomes Queen (or the piece stored in the move)
+                board[getMoveNewPos(move)] = unsetBit(board[getMoveNewPos(move)], MASK_PIECE) | getMovePromotion(move);
             } else if (Math.abs(getMoveNewPos(move) - getMoveOldPos(move)) == 16) {
                 // Pawn gets DoubleMoveBit Set (For En passant)
                 board[getMoveNewPos(move)] = setBit(board[getMoveNewPos(move)], MASK_PAWN_DOUBLE_JUMP);
             }
 
         }
+        return undo;
+    }
+
+    /**
+     * <p>Takes back a move which was played with makeMove(). Afterwards the board is exactly the same as before makeMove() was called.</p>
+     * <p>Moves need to be taken back in the reverse order they were played in.</p>
+     * <p>
+     * The undo-record returned by makeMove() is one integer:
+     * the moved piece (bits 0-6), the captured piece (bits 7-13, also the pawn captured en passant),
+     * the field of the pawn which had MASK_PAWN_DOUBLE_JUMP before (bits 14-19) and flags for that, en passant and castling.
+     * </p>
+     * @param board The board-array the move was played on.
+     * @param move The move-integer which was played.
+     * @param undo The undo-record which makeMove() returned for this move.
+     */
+    public static void unmakeMove(int[] board, int move, int undo) {
+        int oldPos = getMoveOldPos(move);
+        int newPos = getMoveNewPos(move);
+        int captured = (undo >> UNDO_SHIFT_CAPTURED) & UNDO_MASK_PIECE;
+
+        if ((undo & UNDO_FLAG_CASTLING) != 0) {
+            int rookNewPos = newPos > oldPos ? newPos - 1 : newPos + 1;
+            int rookPos = newPos > oldPos ? oldPos - oldPos % 8 + 7 : oldPos - oldPos % 8;
+            board[rookPos] = unsetBit(board[rookNewPos], MASK_HAS_MOVED);
+            board[rookNewPos] = EMPTY_FIELD;
+        }
+        board[oldPos] = undo & UNDO_MASK_PIECE;
+        if ((undo & UNDO_FLAG_EN_PASSANT) != 0) {
+            board[newPos] = EMPTY_FIELD;
+            board[oldPos + ((newPos % 8) - (oldPos % 8))] = captured;
+        } else {
+            board[newPos] = captured;
+        }
+        if ((undo & UNDO_FLAG_DOUBLE_JUMP) != 0) {
+            int doubleJumpPos = (undo >> UNDO_SHIFT_DOUBLE_JUMP_POS) & 0x3F;
+            board[doubleJumpPos] = setBit(board[doubleJumpPos], MASK_PAWN_DOUBLE_JUMP);
+        }
     }
 
     // Get Possible Moves:
 
     /**
-     * <p>Gets the list of all the possible moves to play for one player. It is achieved this by calling the specific getPieceMoves()-Methods e.g. getKnightMoves() and adding all the Moves together to one List</p>
-     * <p>After this list is completed, it is once again run through and filtered: All the moves which result in the player's king getting in check are eliminated</p>
+     * <p>Gets the list of all the possible moves to play for one player.</p>
+     * <p>Calls getLegalMoves() with a move-buffer and copies the result into a List. Inside the search the buffer-variant should be used, because it does not allocate anything.</p>
      * @param board Current Board-Array.
      * @param player Current Player which has to take a move
      * @return A list of all the possible moves for the player
      */
     public static List<Integer> getLegalMoves(int[] board, int player) {
-        List<Integer> moves = new ArrayList<>();
+        int[] moves = new int[MAX_MOVES];
+        return toList(moves, getLegalMoves(board, player, moves));
+    }
+
+    /**
+     * <p>Writes all the legal moves of one player into a move-buffer. It is achieved by calling the specific getPieceMoves()-Methods e.g. getKnightMoves() which all append to the same buffer</p>
+     * <p>
+     * Before that, the pieces giving check and the pinned pieces are determined once by walking the rays starting at the king (see checkMask() and findPinnedPieces()).
+     * With that information every generated move is accepted or dropped right away:
+     * In check only captures of the checking piece and blocks are allowed, pinned pieces may only move along their pin-ray
+     * and the king may only go to fields which are not attacked with the king itself taken off the board. In double check only the king moves.
+     * Only en passant and castling, which move more than one piece, are still checked with moveIllegalDueToSelfCheck().
+     * </p>
+     * <p>Nothing is allocated here, so the buffer can be reused for every position in a search.</p>
+     * @param board Current Board-Array.
+     * @param player Current Player which has to take a move
+     * @param moves The move-buffer the moves are written into, starting at index 0. Needs a length of MAX_MOVES.
+     * @return The number of legal moves written into the buffer
+     */
+    public static int getLegalMoves(int[] board, int player, int[] moves) {
+        int kingPos = findPiecePos(board, player, PIECE_KING);
+        // Fields which resolve a check: the checking piece itself and the fields between it and the king. 0 in double check.
+        long checkMask = kingPos == -1 ? -1L : checkMask(board, kingPos, player);
+        long pinned = kingPos == -1 ? 0 : findPinnedPieces(board, kingPos, player);
+
+        int count = 0;
         for (int i = 0; i < board.length; i++) {
             if ((board[i] & MASK_SET_FIELD) > 0 && (board[i] & MASK_PLAYER) == player) {
+                if (checkMask == 0 && i != kingPos)
+                    continue;
                 switch (board[i] & MASK_PIECE) {
-                    case PIECE_PAWN -> moves.addAll(getPawnMoves(board, i));
-                    case PIECE_KNIGHT -> moves.addAll(getKnightMoves(board, i));
-                    case PIECE_BISHOP -> moves.addAll(getBishopMoves(board, i));
-                    case PIECE_ROOK -> moves.addAll(getRookMoves(board, i));
-                    case PIECE_QUEEN -> moves.addAll(getQueenMoves(board, i));
-                    case PIECE_KING -> moves.addAll(getKingMoves(board, i));
+                    case PIECE_PAWN -> count = getPawnMoves(board, i, moves, count);
+                    case PIECE_KNIGHT -> count = getKnightMoves(board, i, moves, count);
+                    case PIECE_BISHOP -> count = getBishopMoves(board, i, moves, count);
+                    case PIECE_ROOK -> count = getRookMoves(board, i, moves, count);
+                    case PIECE_QUEEN -> count = getQueenMoves(board, i, moves, count);
+                    case PIECE_KING -> count = getKingMoves(board, i, moves, count);
                 }
             }
         }
+        if (kingPos == -1)
+            return count;
+
+        int king = board[kingPos];
+        int legalCount = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int oldPos = getMoveOldPos(move);
+            int newPos = getMoveNewPos(move);
+            boolean legal;
+            if (oldPos == kingPos) {
+                if (Math.abs(newPos - oldPos) == 2) {
+                    legal = !moveIllegalDueToSelfCheck(board, move);
+                } else {
+                    board[kingPos] = EMPTY_FIELD;
+                    legal = !pieceInCheck(board, newPos, player);
+                    board[kingPos] = king;
+                }
+            } else if ((board[oldPos] & MASK_PIECE) == PIECE_PAWN && (newPos - oldPos) % 8 != 0 && (board[newPos] & MASK_SET_FIELD) == 0) {
+                // En passant removes two pieces from the rays of the king
+                legal = !moveIllegalDueToSelfCheck(board, move);
+            } else {
+                legal = (checkMask & (1L << newPos)) != 0
+                        && ((pinned & (1L << oldPos)) == 0 || lineDirection(kingPos, newPos) == lineDirection(kingPos, oldPos));
+            }
+            if (legal)
+                moves[legalCount++] = move;
+        }
+        return legalCount;
+    }
 
-        for (int i = 0; i < moves.size(); i++) {
-            if (moveIllegalDueToSelfCheck(board, moves.get(i))) {
-                moves.remove(i);
-                i--;
+    /**
+     * <p>Walks the rays and knight-jumps starting at the king and collects the fields which get the king out of check without moving it.</p>
+     * <p>For a single check these are the field of the checking piece and, if it is a sliding piece, all fields between it and the king.</p>
+     * <p>Bit i of the result stands for field i of the board-array.</p>
+     * @param board Current Board-Array
+     * @param kingPos Position of the king
+     * @param player Color of the king
+     * @return -1 (all bits set) if the king is not in check, 0 if it is in double check and the mask of the fields otherwise.
+     */
+    private static long checkMask(int[] board, int kingPos, int player) {
+        int enemy = player ^ MASK_PLAYER;
+        long mask = 0;
+        int checkers = 0;
+        for (int dir = 0; dir < RAY_FIELDS.length; dir++) {
+            long ray = 0;
+            for (int i : RAY_FIELDS[dir][kingPos]) {
+                ray |= 1L << i;
+                if ((board[i] & MASK_SET_FIELD) > 0) {
+                    if (isSlidingAttacker(board[i], enemy, dir)) {
+                        mask |= ray;
+                        checkers++;
+                    }
+                    break;
+                }
+            }
+        }
+        for (int i : KNIGHT_FIELDS[kingPos]) {
+            if ((board[i] & MASK_IDENTITY) == (MASK_SET_FIELD | enemy | PIECE_KNIGHT)) {
+                mask |= 1L << i;
+                checkers++;
+            }
+        }
+        for (int i : PAWN_ATTACK_FIELDS[player >> 3][kingPos]) {
+            if ((board[i] & MASK_IDENTITY) == (MASK_SET_FIELD | enemy | PIECE_PAWN)) {
+                mask |= 1L << i;
+                checkers++;
+            }
+        }
+        if (checkers == 0)
+            return -1L;
+        return checkers == 1 ? mask : 0;
+    }
+
+    /**
+     * <p>Finds all pieces of the player which are pinned to their king.</p>
+     * <p>A piece is pinned if it is the only piece between the king and an enemy Rook, Bishop or Queen moving along that ray.
+     * It may then only move along the ray.</p>
+     * @param board Current Board-Array
+     * @param kingPos Position of the king
+     * @param player Color of the king
+     * @return Bitboard of the pinned pieces. Bit i stands for field i of the board-array.
+     */
+    private static long findPinnedPieces(int[] board, int kingPos, int player) {
+        int enemy = player ^ MASK_PLAYER;
+        long pinned = 0;
+        for (int dir = 0; dir < RAY_FIELDS.length; dir++) {
+            int ownPiece = -1;
+            for (int i : RAY_FIELDS[dir][kingPos]) {
+                if ((board[i] & MASK_SET_FIELD) == 0)
+                    continue;
+                if ((board[i] & MASK_PLAYER) == player && ownPiece == -1) {
+                    ownPiece = i;
+                    continue;
+                }
+                if (ownPiece != -1 && isSlidingAttacker(board[i], enemy, dir))
+                    pinned |= 1L << ownPiece;
+                break;
             }
         }
+        return pinned;
+    }
+
+    /**
+     * @return Whether the cell holds a piece of the enemy which attacks along the ray in direction dir (index into RAY_FIELDS; Rook or Queen straight, Bishop or Queen diagonally).
+     */
+    private static boolean isSlidingAttacker(int cell, int enemy, int dir) {
+        if ((cell & MASK_SET_FIELD) == 0 || (cell & MASK_PLAYER) != enemy)
+            return false;
+        int piece = cell & MASK_PIECE;
+        return piece == PIECE_QUEEN || piece == (dir < 4 ? PIECE_ROOK : PIECE_BISHOP);
+    }
 
-        return moves;
+    /**
+     * @return The step of the line from 'from' to 'to' (e.g. -8 for straight up, 9 for diagonally down right), 0 if both fields are not on one line.
+     */
+    private static int lineDirection(int from, int to) {
+        int rows = to / 8 - from / 8;
+        int columns = to % 8 - from % 8;
+        if ((rows == 0 && columns == 0) || (rows != 0 && columns != 0 && Math.abs(rows) != Math.abs(columns)))
+            return 0;
+        return Integer.signum(rows) * 8 + Integer.signum(columns);
     }
 
     /**
@@ -268,16 +564,37 @@ public class ChessRules {
      * @return Sortet List of possible moves.
      */
     public static List<Integer> getLegalMovesSorted(int[] board, int player) {
-        List<Integer> moves = getLegalMoves(board, player);
-        List<Integer> sortedMoves = new ArrayList<>();
-        for (int i = 0; i < moves.size(); i++) {
-            if ((board[getMoveNewPos(moves.get(i))] & MASK_SET_FIELD) > 0) {
-                sortedMoves.add(moves.remove(i));
-                i--;
+        int[] moves = new int[MAX_MOVES];
+        return toList(moves, getLegalMovesSorted(board, player, moves));
+    }
+
+    /**
+     * <p>Same as getLegalMovesSorted(board, player), but the moves are written into a move-buffer.</p>
+     * <p>The captures are moved to the front inside the buffer. The order among the captures and among the other moves stays the same.</p>
+     * @param board Board-Position (In order to check if the move captures a piece or not)
+     * @param player The current player that has to make a move
+     * @param moves The move-buffer the moves are written into, starting at index 0. Needs a length of MAX_MOVES.
+     * @return The number of legal moves written into the buffer
+     */
+    public static int getLegalMovesSorted(int[] board, int player, int[] moves) {
+        int count = getLegalMoves(board, player, moves);
+        int captures = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if ((board[getMoveNewPos(move)] & MASK_SET_FIELD) > 0) {
+                System.arraycopy(moves, captures, moves, captures + 1, i - captures);
+                moves[captures++] = move;
             }
         }
-        sortedMoves.addAll(moves);
-        return sortedMoves;
+        return count;
+    }
+
+    private static List<Integer> toList(int[] moves, int count) {
+        List<Integer> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(moves[i]);
+        }
+        return list;
     }
 
     /**
@@ -288,33 +605,45 @@ public class ChessRules {
      * @return A List of all possible moves.
      */
     public static List<Integer> getKnightMoves(int[] board, int pos) {
-        List<Integer> moves = new ArrayList<>();
+        int[] moves = new int[8];
+        return toList(moves, getKnightMoves(board, pos, moves, 0));
+    }
+
+    /**
+     * Same as getKnightMoves(board, pos), but the moves are appended to a move-buffer.
+     * @param board Current Board
+     * @param pos The Position of the Knight
+     * @param moves The move-buffer
+     * @param count Number of moves already in the buffer. The new moves are written behind them.
+     * @return The new number of moves in the buffer.
+     */
+    public static int getKnightMoves(int[] board, int pos, int[] moves, int count) {
         int player = board[pos] & MASK_PLAYER;
         if (pos % 8 < 7) {
             if (pos - 15 >= 0 && ((board[pos - 15] & MASK_SET_FIELD) == 0 || (board[pos - 15] & MASK_PLAYER) != player))
-                moves.add(getMove(pos, pos - 15));
+                moves[count++] = getMove(pos, pos - 15);
             if (pos + 17 < board.length && ((board[pos + 17] & MASK_SET_FIELD) == 0 || (board[pos + 17] & MASK_PLAYER) != player))
-                moves.add(getMove(pos, pos + 17));
+                moves[count++] = getMove(pos, pos + 17);
             if (pos % 8 < 6) {
                 if (pos - 6 >= 0 && ((board[pos - 6] & MASK_SET_FIELD) == 0 || (board[pos - 6] & MASK_PLAYER) != player))
-                    moves.add(getMove(pos, pos - 6));
+                    moves[count++] = getMove(pos, pos - 6);
                 if (pos + 10 < board.length && ((board[pos + 10] & MASK_SET_FIELD) == 0 || (board[pos + 10] & MASK_PLAYER) != player))
-                    moves.add(getMove(pos, pos + 10));
+                    moves[count++] = getMove(pos, pos + 10);
             }
         }
         if (pos % 8 > 0) {
             if (pos - 17 >= 0 && ((board[pos - 17] & MASK_SET_FIELD) == 0 || (board[pos - 17] & MASK_PLAYER) != player))
-                moves.add(getMove(pos, pos - 17));
+                moves[count++] = getMove(pos, pos - 17);
             if (pos + 15 < board.length && ((board[pos + 15] & MASK_SET_FIELD) == 0 || (board[pos + 15] & MASK_PLAYER) != player))
-                moves.add(getMove(pos, pos + 15));
+                moves[count++] = getMove(pos, pos + 15);
             if (pos % 8 > 1) {
                 if (pos - 10 >= 0 && ((board[pos - 10] & MASK_SET_FIELD) == 0 || (board[pos - 10] & MASK_PLAYER) != player))
-                    moves.add(getMove(pos, pos - 10));
+                    moves[count++] = getMove(pos, pos - 10);
                 if (pos + 6 < board.length && ((board[pos + 6] & MASK_SET_FIELD) == 0 || (board[pos + 6] & MASK_PLAYER) != player))
-                    moves.add(getMove(pos, pos + 6));
+                    moves[count++] = getMove(pos, pos + 6);
             }
         }
-        return moves;
+        return count;
     }
 
     /**
@@ -325,37 +654,49 @@ public class ChessRules {
      * @return A List of all possible moves.
      */
     public static List<Integer> getBishopMoves(int[] board, int pos) {
-        List<Integer> moves = new ArrayList<>();
+        int[] moves = new int[13];
+        return toList(moves, getBishopMoves(board, pos, moves, 0));
+    }
+
+    /**
+     * Same as getBishopMoves(board, pos), but the moves are appended to a move-buffer.
+     * @param board Current Board
+     * @param pos The Position of the Bishop.
+     * @param moves The move-buffer
+     * @param count Number of moves already in the buffer. The new moves are written behind them.
+     * @return The new number of moves in the buffer.
+     */
+    public static int getBishopMoves(int[] board, int pos, int[] moves, int count) {
         int player = board[pos] & MASK_PLAYER;
         // TopRight
         for (int i = pos - 7; i % 8 > 0; i -= 7) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
         // TopLeft
         for (int i = pos - 9; i % 8 < 7 && i >= 0; i -= 9) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
         // BottomRight
         for (int i = pos + 9; i % 8 > 0 && i < board.length; i += 9) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
         // BottomLeft
         for (int i = pos + 7; i % 8 < 7 && i < board.length; i += 7) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
-        return moves;
+        return count;
     }
 
     /**
@@ -366,33 +707,45 @@ public class ChessRules {
      * @return A List of all possible moves.
      */
     public static List<Integer> getRookMoves(int[] board, int pos) {
-        List<Integer> moves = new ArrayList<>();
+        int[] moves = new int[14];
+        return toList(moves, getRookMoves(board, pos, moves, 0));
+    }
+
+    /**
+     * Same as getRookMoves(board, pos), but the moves are appended to a move-buffer.
+     * @param board Current Board
+     * @param pos The Position of the Rook.
+     * @param moves The move-buffer
+     * @param count Number of moves already in the buffer. The new moves are written behind them.
+     * @return The new number of moves in the buffer.
+     */
+    public static int getRookMoves(int[] board, int pos, int[] moves, int count) {
         int player = board[pos] & MASK_PLAYER;
         for (int i = pos + 1; i % 8 > 0; i++) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
         for (int i = pos - 1; i % 8 < 7 && i >= 0; i--) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
         for (int i = pos - 8; i >= 0; i -= 8) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
         for (int i = pos + 8; i < board.length; i += 8) {
             if ((board[i] & MASK_PLAYER) != player || (board[i] & MASK_SET_FIELD) == 0)
-                moves.add(getMove(pos, i));
+                moves[count++] = getMove(pos, i);
             if ((board[i] & MASK_SET_FIELD) > 0)
                 break;
         }
-        return moves;
+        return count;
     }
 
     /**
@@ -403,54 +756,80 @@ public class ChessRules {
      * @return A List of all possible moves.
      */
     public static List<Integer> getPawnMoves(int[] board, int pos) {
-        List<Integer> moves = new ArrayList<>();
+        int[] moves = new int[12];
+        return toList(moves, getPawnMoves(board, pos, moves, 0));
+    }
+
+    /**
+     * Same as getPawnMoves(board, pos), but the moves are appended to a move-buffer.
+     * @param board Current Board
+     * @param pos The Position of the Pawn
+     * @param moves The move-buffer
+     * @param count Number of moves already in the buffer. The new moves are written behind them.
+     * @return The new number of moves in the buffer.
+     */
+    public static int getPawnMoves(int[] board, int pos, int[] moves, int count) {
         int player = board[pos] & MASK_PLAYER;
         if (player == PLAYER_WHITE /* Bottom Player */) {
             if (pos - 8 >= 0) {
                 if (pos % 8 > 0) {
                     if ((board[pos - 9] & MASK_SET_FIELD) > 0 && (board[pos - 9] & MASK_PLAYER) != player) {
-                        moves.add(getMove(pos, pos - 9));
+                        count = addPawnMove(moves, count, pos, pos - 9);
                     } else if ((board[pos - 1] & MASK_SET_FIELD) > 0 && (board[pos - 1] & MASK_PLAYER) != player && (board[pos - 1] & MASK_PAWN_DOUBLE_JUMP) > 0) {
-                        moves.add(getMove(pos, pos - 9));
+                        count = addPawnMove(moves, count, pos, pos - 9);
                     }
                 }
                 if (pos % 8 < 7) {
                     if ((board[pos - 7] & MASK_SET_FIELD) > 0 && (board[pos - 7] & MASK_PLAYER) != player) {
-                        moves.add(getMove(pos, pos - 7));
+                        count = addPawnMove(moves, count, pos, pos - 7);
                     } else if ((board[pos + 1] & MASK_SET_FIELD) > 0 && (board[pos + 1] & MASK_PLAYER) != player && (board[pos + 1] & MASK_PAWN_DOUBLE_JUMP) > 0) {
-                        moves.add(getMove(pos, pos - 7));
+                        count = addPawnMove(moves, count, pos, pos - 7);
                     }
                 }
                 if ((board[pos - 8] & MASK_SET_FIELD) == 0) {
                     if ((board[pos] & MASK_HAS_MOVED) == 0 && pos - 16 >= 0 && (board[pos - 16] & MASK_SET_FIELD) == 0)
-                        moves.add(getMove(pos, pos - 16));
-                    moves.add(getMove(pos, pos - 8));
+                        moves[count++] = getMove(pos, pos - 16);
+                    count = addPawnMove(moves, count, pos, pos - 8);
                 }
             }
         } else {
             if (pos + 8 < board.length) {
                 if (pos % 8 > 0) {
                     if ((board[pos + 7] & MASK_SET_FIELD) > 0 && (board[pos + 7] & MASK_PLAYER) != player) {
-                        moves.add(getMove(pos, pos + 7));
+                        count = addPawnMove(moves, count, pos, pos + 7);
                     } else if ((board[pos - 1] & MASK_SET_FIELD) > 0 && (board[pos - 1] & MASK_PLAYER) != player && (board[pos - 1] & MASK_PAWN_DOUBLE_JUMP) > 0) {
-                        moves.add(getMove(pos, pos + 7));
+                        count = addPawnMove(moves, count, pos, pos + 7);
                     }
                 }
                 if (pos % 8 < 7) {
                     if ((board[pos + 9] & MASK_SET_FIELD) > 0 && (board[pos + 9] & MASK_PLAYER) != player) {
-                        moves.add(getMove(pos, pos + 9));
+                        count = addPawnMove(moves, count, pos, pos + 9);
                     }else if ((board[pos + 1] & MASK_SET_FIELD) > 0 && (board[pos + 1] & MASK_PLAYER) != player && (board[pos + 1] & MASK_PAWN_DOUBLE_JUMP) > 0) {
-                        moves.add(getMove(pos, pos + 9));
+                        count = addPawnMove(moves, count, pos, pos + 9);
                     }
                 }
                 if ((board[pos + 8] & MASK_SET_FIELD) == 0) {
                     if ((board[pos] & MASK_HAS_MOVED) == 0 && pos + 16 < board.length && (board[pos + 16] & MASK_SET_FIELD) == 0)
-                        moves.add(getMove(pos, pos + 16));
-                    moves.add(getMove(pos, pos + 8));
+                        moves[count++] = getMove(pos, pos + 16);
+                    count = addPawnMove(moves, count, pos, pos + 8);
                 }
             }
         }
-        return moves;
+        return count;
+    }
+
+    /**
+     * Appends a pawn-move to the buffer. If the pawn reaches the final row, one move for each piece it can become is appended instead (Queen, Rook, Bishop, Knight).
+     * @return The new number of moves in the buffer.
+     */
+    static int addPawnMove(int[] moves, int count, int oldPos, int newPos) {
+        moves[count++] = getMove(oldPos, newPos);
+        if (newPos < 8 || newPos >= 56) {
+            moves[count++] = getMove(oldPos, newPos, PIECE_ROOK);
+            moves[count++] = getMove(oldPos, newPos, PIECE_BISHOP);
+            moves[count++] = getMove(oldPos, newPos, PIECE_KNIGHT);
+        }
+        return count;
     }
 
     /**
@@ -461,10 +840,21 @@ public class ChessRules {
      * @return A List of all possible moves.
      */
     public static List<Integer> getQueenMoves(int[] board, int pos) {
-        List<Integer> moves = new ArrayList<>();
-        moves.addAll(getRookMoves(board, pos));
-        moves.addAll(getBishopMoves(board, pos));
-        return moves;
+        int[] moves = new int[27];
+        return toList(moves, getQueenMoves(board, pos, moves, 0));
+    }
+
+    /**
+     * Same as getQueenMoves(board, pos), but the moves are appended to a move-buffer.
+     * @param board Current Board
+     * @param pos The Position of the Queen.
+     * @param moves The move-buffer
+     * @param count Number of moves already in the buffer. The new moves are written behind them.
+     * @return The new number of moves in the buffer.
+     */
+    public static int getQueenMoves(int[] board, int pos, int[] moves, int count) {
+        count = getRookMoves(board, pos, moves, count);
+        return getBishopMoves(board, pos, moves, count);
     }
 
     /**
@@ -475,7 +865,19 @@ public class ChessRules {
      * @return A List of all possible moves.
      */
     public static List<Integer> getKingMoves(int[] board, int pos) {
-        List<Integer> moves = new ArrayList<>();
+        int[] moves = new int[10];
+        return toList(moves, getKingMoves(board, pos, moves, 0));
+    }
+
+    /**
+     * Same as getKingMoves(board, pos), but the moves are appended to a move-buffer.
+     * @param board Current Board
+     * @param pos The Position of the King
+     * @param moves The move-buffer
+     * @param count Number of moves already in the buffer. The new moves are written behind them.
+     * @return The new number of moves in the buffer.
+     */
+    public static int getKingMoves(int[] board, int pos, int[] moves, int count) {
         int player = board[pos] & MASK_PLAYER;
         boolean inCheck = false;
         boolean checkedForCheck = false;
@@ -499,7 +901,8 @@ public class ChessRules {
                         inCheck = true;
                     }
                     if (castlingAllowed) {
-                        for (int i = pos - 1; i > leftRookPos; i--) {
+                        // Only the fields the king moves over need to be safe, the one next to the rook only needs to be empty
+                        for (int i = pos - 1; i >= pos - 2; i--) {
                             if (pieceInCheck(board, i, player)) {
                                 castlingAllowed = false;
                                 break;
@@ -507,7 +910,7 @@ public class ChessRules {
                         }
                     }
                     if (castlingAllowed)
-                        moves.add(getMove(pos, pos - 2));
+                        moves[count++] = getMove(pos, pos - 2);
                 }
             }
             if (!inCheck && (board[rightRookPos] & MASK_SET_FIELD) > 0 && (board[rightRookPos] & MASK_HAS_MOVED) == 0) {
@@ -533,7 +936,7 @@ public class ChessRules {
                         }
                     }
                     if (castlingAllowed)
-                        moves.add(getMove(pos, pos + 2));
+                        moves[count++] = getMove(pos, pos + 2);
                 }
             }
         }
@@ -545,11 +948,11 @@ public class ChessRules {
             for (int j = -1; j <= 1; j++) {
                 if ((j == -1 && pos % 8 > 0) || (j == 1 && pos % 8 < 7) || j == 0) {
                     if ((board[i + j] & MASK_SET_FIELD) == 0 || (board[i + j] & MASK_PLAYER) != player)
-                        moves.add(getMove(pos, i + j));
+                        moves[count++] = getMove(pos, i + j);
                 }
             }
         }
-        return moves;
+        return count;
     }
 
     // Check for Moves Methods:
@@ -574,153 +977,43 @@ public class ChessRules {
     }
 
     /**
-     * Checks if a field is under attack. Commonly used for king but can be used for all other pieces as well.
+     * <p>Checks if a field is under attack. Commonly used for king but can be used for all other pieces as well.</p>
+     * <p>The fields to look at are taken from the attack-tables (RAY_FIELDS, KNIGHT_FIELDS, PAWN_ATTACK_FIELDS, KING_FIELDS), so no bounds need to be checked.</p>
      * @param board The current board which needs to be checked.
      * @param pos The position of the piece (mostly king).
      * @param player The pieces color. Is used to get the enemy-player.
      * @return Whether the piece is being attacked by the enemy or not.
      */
     public static boolean pieceInCheck(int[] board, int pos, int player) {
+        int enemy = player ^ MASK_PLAYER;
 
-        // Check Horizontal Line (Rooks or Queens)
-        for (int i = pos + 1; i % 8 > 0; i++) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_ROOK || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
-                    break;
-                }
-            }
-        }
-        for (int i = pos - 1; i % 8 < 7 && i >= 0; i--) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_ROOK || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
-                    break;
-                }
-            }
-        }
-
-        // Check Vertical Line (Rooks or Queens)
-        for (int i = pos + 8; i < board.length; i += 8) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_ROOK || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
-                    break;
-                }
-            }
-        }
-        for (int i = pos - 8; i >= 0; i -= 8) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_ROOK || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
-                    break;
-                }
-            }
-        }
-
-        // Check Diagonals          (Bishops or Queens)
-        // Check DiagonalTopRight
-        for (int i = pos - 7; i % 8 > 0; i -= 7) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_BISHOP || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
-                    break;
-                }
-            }
-        }
-        // Check DiagonalTopLeft
-        for (int i = pos - 9; i % 8 < 7 && i >= 0; i -= 9) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_BISHOP || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
-                    break;
-                }
-            }
-        }
-        // Check DiagonalBottomRight
-        for (int i = pos + 9; i % 8 > 0 && i < board.length; i += 9) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_BISHOP || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
-                    break;
-                }
-            }
-        }
-        // Check DiagonalBottomLeft
-        for (int i = pos + 7; i % 8 < 7 && i < board.length; i += 7) {
-            if ((board[i] & MASK_SET_FIELD) > 0) {
-                if ((board[i] & MASK_PLAYER) != player && ((board[i] & MASK_PIECE) == PIECE_BISHOP || (board[i] & MASK_PIECE) == PIECE_QUEEN)) {
-                    return true;
-                } else {
+        // Check the eight rays (Rooks or Queens straight, Bishops or Queens diagonally)
+        for (int dir = 0; dir < RAY_FIELDS.length; dir++) {
+            for (int i : RAY_FIELDS[dir][pos]) {
+                if ((board[i] & MASK_SET_FIELD) > 0) {
+                    if (isSlidingAttacker(board[i], enemy, dir))
+                        return true;
                     break;
                 }
             }
         }
 
         // Check for Knights
-        if (pos % 8 < 7) {
-            // Piece not at Right Side of Board
-            if (pos - 15 >= 0 && (board[pos - 15] & MASK_PLAYER) != player && (board[pos - 15] & MASK_PIECE) == PIECE_KNIGHT)
-                return true;
-            if (pos + 17 < board.length && (board[pos + 17] & MASK_PLAYER) != player && (board[pos + 17] & MASK_PIECE) == PIECE_KNIGHT)
-                return true;
-            if (pos % 8 < 6) {
-                // Two Columns to Right Side of Board
-                if (pos - 6 >= 0 && (board[pos - 6] & MASK_PLAYER) != player && (board[pos - 6] & MASK_PIECE) == PIECE_KNIGHT)
-                    return true;
-                if (pos + 10 < board.length && (board[pos + 10] & MASK_PLAYER) != player && (board[pos + 10] & MASK_PIECE) == PIECE_KNIGHT)
-                    return true;
-            }
-        }
-        if (pos % 8 > 0) {
-            // Piece not at Left Side of Board
-            if (pos - 17 >= 0 && (board[pos - 17] & MASK_PLAYER) != player && (board[pos - 17] & MASK_PIECE) == PIECE_KNIGHT)
+        for (int i : KNIGHT_FIELDS[pos]) {
+            if ((board[i] & MASK_IDENTITY) == (MASK_SET_FIELD | enemy | PIECE_KNIGHT))
                 return true;
-            if (pos + 15 < board.length && (board[pos + 15] & MASK_PLAYER) != player && (board[pos + 15] & MASK_PIECE) == PIECE_KNIGHT)
-                return true;
-            if (pos % 8 > 1) {
-                // Two Columns to Right Side of Board
-                if (pos - 10 >= 0 && (board[pos - 10] & MASK_PLAYER) != player && (board[pos - 10] & MASK_PIECE) == PIECE_KNIGHT)
-                    return true;
-                if (pos + 6 < board.length && (board[pos + 6] & MASK_PLAYER) != player && (board[pos + 6] & MASK_PIECE) == PIECE_KNIGHT)
-                    return true;
-            }
         }
 
         // Check for Pawns
-        if (player == PLAYER_WHITE) {
-            if (pos - 8 >= 0) {
-                if (pos % 8 > 0 && (board[pos - 9] & MASK_PLAYER) != player && (board[pos - 9] & MASK_PIECE) == PIECE_PAWN)
-                    return true;
-                if (pos % 8 < 7 && (board[pos - 7] & MASK_PLAYER) != player && (board[pos - 7] & MASK_PIECE) == PIECE_PAWN)
-                    return true;
-            }
-        } else {
-            if (pos + 8 < board.length) {
-                if (pos % 8 > 0 && (board[pos + 7] & MASK_PLAYER) != player && (board[pos + 7] & MASK_PIECE) == PIECE_PAWN)
-                    return true;
-                if (pos % 8 < 7 && (board[pos + 9] & MASK_PLAYER) != player && (board[pos + 9] & MASK_PIECE) == PIECE_PAWN)
-                    return true;
-            }
+        for (int i : PAWN_ATTACK_FIELDS[player >> 3][pos]) {
+            if ((board[i] & MASK_IDENTITY) == (MASK_SET_FIELD | enemy | PIECE_PAWN))
+                return true;
         }
 
         // Check for Opponent-King
-        for (int i = pos - 8; i <= pos + 8; i += 8) {
-            if (i < 0 || i >= board.length)
-                continue;
-            for (int j = -1; j <= 1; j++) {
-                if ((j == -1 && pos % 8 > 0) || (j == 1 && pos % 8 < 7) || j == 0) {
-                    if ((board[i + j] & MASK_SET_FIELD) > 0 && (board[i + j] & MASK_PIECE) == PIECE_KING && (board[i + j] & MASK_PLAYER) != player)
-                        return true;
-                }
-            }
+        for (int i : KING_FIELDS[pos]) {
+            if ((board[i] & MASK_IDENTITY) == (MASK_SET_FIELD | enemy | PIECE_KING))
+                return true;
         }
 
         return false;
@@ -728,25 +1021,49 @@ public class ChessRules {
 
     /**
      * <p>Checks if the move results in the king being in check, making it illegal to play.</p>
-     * <p>Used in getLegalMoves() in order to filter certain moves.</p>
-     * @param board Board-Array
+     * <p>Used in getLegalMoves() for en passant and castling, where the fast check with pinned pieces is not sufficient.</p>
+     * <p>The board is NOT copied. Only the fields which are relevant for the king's safety are altered (moving piece, piece captured en passant, rook when castling) and afterwards changed back.</p>
+     * @param board Board-Array. It is the same again when the method returns.
      * @param move The moves which needs to be checked.
      * @return Whether this move is legal to play or not.
      */
     public static boolean moveIllegalDueToSelfCheck(int[] board, int move) {
-        /*
-            Tests if taking the move,  lets the players king in check
-
-            Current player is known due to which piece moves in 'move'
-            board is NOT Copied!!! It is being altered and then changed back!!!
-        */
+        int oldPos = getMoveOldPos(move);
+        int newPos = getMoveNewPos(move);
+        int piece = board[oldPos];
+        int captured = board[newPos];
+        int player = piece & MASK_PLAYER;
+
+        int enPassantPos = -1;
+        int enPassantPiece = EMPTY_FIELD;
+        if ((piece & MASK_PIECE) == PIECE_PAWN && Math.abs(newPos - oldPos) % 8 != 0 && (captured & MASK_SET_FIELD) == 0) {
+            enPassantPos = oldPos + ((newPos % 8) - (oldPos % 8));
+            enPassantPiece = board[enPassantPos];
+            board[enPassantPos] = EMPTY_FIELD;
+        }
+        int rookOldPos = -1;
+        int rookNewPos = -1;
+        if ((piece & MASK_PIECE) == PIECE_KING && Math.abs(newPos - oldPos) == 2) {
+            rookOldPos = newPos > oldPos ? oldPos - oldPos % 8 + 7 : oldPos - oldPos % 8;
+            rookNewPos = newPos > oldPos ? newPos - 1 : newPos + 1;
+            board[rookNewPos] = board[rookOldPos];
+            board[rookOldPos] = EMPTY_FIELD;
+        }
+        board[newPos] = piece;
+        board[oldPos] = EMPTY_FIELD;
 
-        int player = board[getMoveOldPos(move)] & MASK_PLAYER;
+        int kingPos = (piece & MASK_PIECE) == PIECE_KING ? newPos : findPiecePos(board, player, PIECE_KING);
+        boolean inCheck = pieceInCheck(board, kingPos, player);
 
-        int[] boardCopy = board.clone();
-        makeMove(boardCopy, move);
-        int playersKingPos = findPiecePos(boardCopy, player, PIECE_KING);
-        return pieceInCheck(boardCopy, playersKingPos, player);
+        board[oldPos] = piece;
+        board[newPos] = captured;
+        if (rookOldPos != -1) {
+            board[rookOldPos] = board[rookNewPos];
+            board[rookNewPos] = EMPTY_FIELD;
+        }
+        if (enPassantPos != -1)
+            board[enPassantPos] = enPassantPiece;
+        return inCheck;
     }
 
 
@@ -784,7 +1101,7 @@ public class ChessRules {
      */
     public static boolean playerInCheck(int[] board, int player) {
         int king = findPiecePos(board, player, PIECE_KING);
-        return pieceInCheck(board, king, player);
+        return king != -1 && pieceInCheck(board, king, player);
     }
 
     /**
@@ -798,30 +1115,36 @@ public class ChessRules {
     }
 
     /**
-     * <p>Returns cost of a specific piece, for example 10 for Queen, 1 for Pawn etc.</p>
+     * <p>Returns the value of a specific piece in centipawns, for example 1000 for Queen, 100 for Pawn etc.</p>
      * <p>Also the value is negative if the pieces color is black</p>
      * @param piece The input needs to be the cell-value from the board array. NOT masked with MASK_PIECE.
-     * @return Cost of the piece.
+     * @return Value of the piece in centipawns.
      */
-    public static float getCost(int piece) {
+    public static int getPieceValue(int piece) {
         if ((piece & MASK_SET_FIELD) == 0)
             return 0;
-        float cost = 0;
+        int value = 0;
         switch (piece & MASK_PIECE) {
-            case PIECE_PAWN -> cost = 1;
-            case PIECE_KNIGHT -> cost = 2.5f;
-            case PIECE_BISHOP -> cost = 3;
-            case PIECE_ROOK -> cost = 5;
-            case PIECE_QUEEN -> cost = 10;
-            case PIECE_KING -> cost = 200;
+            case PIECE_PAWN -> value = 100;
+            case PIECE_KNIGHT -> value = 250;
+            case PIECE_BISHOP -> value = 300;
+            case PIECE_ROOK -> value = 500;
+            case PIECE_QUEEN -> value = 1000;
+            case PIECE_KING -> value = 20000;
         }
-        return (piece & MASK_PLAYER) == PLAYER_WHITE ? cost : -cost;
+        return (piece & MASK_PLAYER) == PLAYER_WHITE ? value : -value;
     }
 
-    public static float getScoreByPieceCost(int[] board) {
-        return Arrays.stream(board).boxed()
-                .map(ChessRules::getCost)
-                .reduce(0f, Float::sum);
+    /**
+     * @param board Current Board
+     * @return Sum of the values of all pieces in centipawns. Positive values are in favor of white.
+     */
+    public static int getScoreByPieceValue(int[] board) {
+        int score = 0;
+        for (int cell : board) {
+            score += getPieceValue(cell);
+        }
+        return score;
     }
 
     /**
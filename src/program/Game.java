@@ -98,27 +98,34 @@ public class Game {
     /**
      * The Main Loop, which is being called from the Constructor.
      * It gets moves from the two players and Updates the board. Checks if the gme is finished.
+     * After each move the other player is told about it (see Player.opponentMoved()).
      */
     private void gameLoop() {
         int player = ChessRules.PLAYER_WHITE;
         boolean gameOver = false;
-        while (!gameOver) {
-            int move = player == ChessRules.PLAYER_WHITE ? whitePlayer.decideOnMove(board) : blackPlayer.decideOnMove(board);
-            pgnWriter.addMoveToFile(board, move);
-            halfMoves++;
-            possibleMoveCount.add(ChessRules.getLegalMoves(board, player).size());
-            ChessRules.makeMove(board, move);
-            //System.out.print("|");
-            gui.printBoard(board, move);
-            player = player ^ ChessRules.MASK_PLAYER;
-            if (ChessRules.noLegalMovesLeft(board, player) || ChessRules.countPieces(board) <= 2) {
-                gameOver = true;
-            }
+        try {
+            while (!gameOver) {
+                int move = player == ChessRules.PLAYER_WHITE ? whitePlayer.decideOnMove(board) : blackPlayer.decideOnMove(board);
+                pgnWriter.addMoveToFile(board, move);
+                halfMoves++;
+                possibleMoveCount.add(ChessRules.getLegalMoves(board, player).size());
+                ChessRules.makeMove(board, move);
+                //System.out.print("|");
+                gui.printBoard(board, move);
+                player = player ^ ChessRules.MASK_PLAYER;
+                (player == ChessRules.PLAYER_WHITE ? whitePlayer : blackPlayer).opponentMoved(board, move);
+                if (ChessRules.noLegalMovesLeft(board, player) || ChessRules.countPieces(board) <= 2) {
+                    gameOver = true;
+                }
 
-            if (halfMoves >= 300) {
-                throw new IllegalStateException("Too long game");
-            }
+                if (halfMoves >= 300) {
+                    throw new IllegalStateException("Too long game");
+                }
 
+            }
+        } finally {
+            whitePlayer.gameOver();
+            blackPlayer.gameOver();
         }
         if (ChessRules.playerInCheck(board, player)) {
             win(player ^ ChessRules.MASK_PLAYER);
@@ -8,6 +8,9 @@ import program.players.Player;
 import program.players.ais.v1.*;
 import program.players.ais.v2.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -23,6 +26,17 @@ public class Main {
      */
     public static Game game;
 
+    /**
+     * If true, the AIs (AI2_v1 and newer) take their moves from the opening-book (see OpeningBookBuilder) while the position is in it.
+     * Off by default, so games between AIs, e.g. to tune or compare them, stay deterministic.
+     */
+    private static boolean useOpeningBook = false;
+
+    /**
+     * If true, the AIs (AI2_v1 and newer) play the endgames in the endgame-tablebases (see TablebaseGenerator) perfectly. Off by default, like the opening-book.
+     */
+    private static boolean useTablebases = false;
+
     /**
      * The main-method which calls the startGame()-Method.
      * @param args Args
@@ -62,17 +76,18 @@ public class Main {
     }
 
 
-    private static void startNoGuiGame(int whitePlayer, int blackPlayer) {
-        startGame(whitePlayer, blackPlayer, new NoGui());
+    private static void startNoGuiGame(int whitePlayer, int blackPlayer, SearchStatistics statistics) {
+        startGame(whitePlayer, blackPlayer, new NoGui(), statistics);
     }
 
     private static void runNoUiGames(int amount) {
         List<Integer> halfMovesCount = new ArrayList<>();
         List<Integer> possibleMovesCount = new ArrayList<>();
+        SearchStatistics statistics = new SearchStatistics();
         for (int i = 1; i <= amount; i++) {
             System.out.println("Running Game " + i + ":");
             long time = System.currentTimeMillis();
-            startNoGuiGame(3, 3);
+            startNoGuiGame(3, 3, statistics);
             time = System.currentTimeMillis() - time;
             System.out.println("Time, the game took: " + (time / 1000f) + "\nTime per move: " + (time / 1000f / game.halfMoves));
             halfMovesCount.add(game.halfMoves);
@@ -80,13 +95,40 @@ public class Main {
         }
         System.out.println("Average moves per Game:          " + calculateAvarage(halfMovesCount));
         System.out.println("Average possible moves per Turn: " + calculateAvarage(possibleMovesCount));
+        if (statistics.getSearches() > 0) {
+            System.out.println(statistics);
+        }
     }
 
     private static void startGame(int whitePlayer, int blackPlayer, Gui gui) {
+        startGame(whitePlayer, blackPlayer, gui, null);
+    }
+
+    /**
+     * @param statistics If not null, the statistics of all searches of the AIs (AI2_v1 and newer) are added to it.
+     */
+    private static void startGame(int whitePlayer, int blackPlayer, Gui gui, SearchStatistics statistics) {
         Player player1, player2;
         try {
             player1 = getPlayer(true, whitePlayer, gui);
             player2 = getPlayer(false, blackPlayer, gui);
+            OpeningBook openingBook = useOpeningBook ? OpeningBookHolder.OPENING_BOOK : null;
+            Tablebase tablebase = useTablebases ? TablebaseHolder.TABLEBASE : null;
+            for (Player player : new Player[]{player1, player2}) {
+                if (player instanceof AI_MinmaxAbstract ai) {
+                    if (statistics != null) {
+                        ai.addSearchListener(statistics::add);
+                    }
+                    ai.setOpeningBook(openingBook);
+                    ai.setTablebase(tablebase);
+                }
+            }
+            // The AI thinks on the time of the human, so it answers faster
+            if (player1 instanceof HumanPlayer && player2 instanceof AI_MinmaxAbstract ai) {
+                ai.setPondering(true);
+            } else if (player2 instanceof HumanPlayer && player1 instanceof AI_MinmaxAbstract ai) {
+                ai.setPondering(true);
+            }
             System.out.println("Starting Game: \"" + player1.getPgnName() + "\" vs \"" + player2.getPgnName() + "\"\n");
             game = new Game(player1, player2, gui);
         } catch (IllegalArgumentException e) {
@@ -94,6 +136,52 @@ public class Main {
         }
     }
 
+    /**
+     * Opens the opening-book once, when it is used for the first time, and keeps it for all following games.
+     */
+    private static final class OpeningBookHolder {
+        private static final OpeningBook OPENING_BOOK = loadOpeningBook();
+    }
+
+    /**
+     * @return The opening-book built by OpeningBookBuilder, null if it was not built yet or cannot be read.
+     */
+    private static OpeningBook loadOpeningBook() {
+        Path file = Path.of(OpeningBook.DEFAULT_PATH);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(file);
+        } catch (IOException e) {
+            System.out.println("Opening-book not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps the endgame-tablebases once, when they are used for the first time, and keeps them for all following games.
+     */
+    private static final class TablebaseHolder {
+        private static final Tablebase TABLEBASE = loadTablebase();
+    }
+
+    /**
+     * @return The endgame-tablebases generated by TablebaseGenerator, null if they were not generated yet or cannot be read.
+     */
+    private static Tablebase loadTablebase() {
+        Path directory = Path.of(Tablebase.DEFAULT_PATH);
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try {
+            return Tablebase.open(directory);
+        } catch (IOException e) {
+            System.out.println("Tablebases not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
     private static Player getPlayer(boolean whitePlayer, int playerType, Gui gui) {
         int playerColor = whitePlayer ? ChessRules.PLAYER_WHITE : ChessRules.PLAYER_BLACK;
         return switch (playerType) {
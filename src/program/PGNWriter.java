@@ -4,6 +4,7 @@ import java.io.*;
 import java.nio.file.FileAlreadyExistsException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Objects;
 
 public class PGNWriter {
@@ -199,11 +200,77 @@ public class PGNWriter {
         }
         san += posToString(newPos);
         if ((board[oldPos] & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN && ((int) Math.floor(newPos / 8f)) % 7 == 0) {
-            san += "=Q";
+            san += "=" + getPieceLetter(ChessRules.getMovePromotion(move));
         }
         return san;
     }
 
+    /**
+     * <p>Converts a move in SAN-Notation (e.g. "Nbd7", "exd5", "O-O", "e8=Q+") into the move-integer. Opposite of getSAN().</p>
+     * <p>Check- and annotation-symbols (+, #, !, ?) are ignored, and the origin may be given as a whole field as well, as getSAN() writes it.</p>
+     *
+     * @param board  The board-Array before the move is played.
+     * @param player The player who takes the move
+     * @param san    The move in SAN-Notation
+     * @return The legal move which matches the SAN-String
+     * @throws IllegalArgumentException If no legal move or more than one matches
+     */
+    public static int getMoveFromSAN(int[] board, int player, String san) throws IllegalArgumentException {
+        String move = san.replaceAll("[+#!?]", "").replace('0', 'O');
+        List<Integer> legalMoves = ChessRules.getLegalMoves(board, player);
+        if (move.equals("O-O") || move.equals("O-O-O")) {
+            for (int legalMove : legalMoves) {
+                int oldPos = ChessRules.getMoveOldPos(legalMove);
+                int newPos = ChessRules.getMoveNewPos(legalMove);
+                if ((board[oldPos] & ChessRules.MASK_PIECE) == ChessRules.PIECE_KING && newPos - oldPos == (move.equals("O-O") ? 2 : -2)) {
+                    return legalMove;
+                }
+            }
+            throw new IllegalArgumentException("Castling not possible: " + san);
+        }
+        int promotion = ChessRules.PIECE_QUEEN;
+        int promotionIndex = move.indexOf('=');
+        if (promotionIndex >= 0) {
+            promotion = getPieceFromLetter(move.charAt(promotionIndex + 1));
+            move = move.substring(0, promotionIndex);
+        } else if (move.length() > 2 && Character.isUpperCase(move.charAt(move.length() - 1))) {
+            promotion = getPieceFromLetter(move.charAt(move.length() - 1));
+            move = move.substring(0, move.length() - 1);
+        }
+        if (move.length() < 2)
+            throw new IllegalArgumentException("Not a move: " + san);
+        int piece = Character.isUpperCase(move.charAt(0)) ? getPieceFromLetter(move.charAt(0)) : ChessRules.PIECE_PAWN;
+        int newPos = stringToPos(move.substring(move.length() - 2));
+        // What is left between the piece-letter and the destination: file and/or row of the origin
+        String origin = move.substring(piece == ChessRules.PIECE_PAWN ? 0 : 1, move.length() - 2).replace("x", "");
+        int result = -1;
+        for (int legalMove : legalMoves) {
+            int oldPos = ChessRules.getMoveOldPos(legalMove);
+            if (ChessRules.getMoveNewPos(legalMove) != newPos || (board[oldPos] & ChessRules.MASK_PIECE) != piece
+                    || (piece == ChessRules.PIECE_PAWN && (newPos < 8 || newPos >= 56) && ChessRules.getMovePromotion(legalMove) != promotion)
+                    || !posToString(oldPos).contains(origin)) {
+                continue;
+            }
+            if (result != -1)
+                throw new IllegalArgumentException("Ambiguous move: " + san);
+            result = legalMove;
+        }
+        if (result == -1)
+            throw new IllegalArgumentException("No legal move: " + san);
+        return result;
+    }
+
+    private static int getPieceFromLetter(char letter) throws IllegalArgumentException {
+        return switch (letter) {
+            case 'N' -> ChessRules.PIECE_KNIGHT;
+            case 'B' -> ChessRules.PIECE_BISHOP;
+            case 'R' -> ChessRules.PIECE_ROOK;
+            case 'Q' -> ChessRules.PIECE_QUEEN;
+            case 'K' -> ChessRules.PIECE_KING;
+            default -> throw new IllegalArgumentException("Not a piece: " + letter);
+        };
+    }
+
     /**
      * Converts a given Piece into the letter from SAN-Notation e.g. "B" for Bishop or "" for Pawn.
      *
@@ -221,6 +288,19 @@ public class PGNWriter {
         };
     }
 
+    /**
+     * Converts a field-name like "e3" into the position on the board. Opposite of posToString().
+     *
+     * @param name Column-letter and row-number
+     * @return The position on the board
+     * @throws IllegalArgumentException If the name is no field of the board
+     */
+    private static int stringToPos(String name) throws IllegalArgumentException {
+        if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h' || name.charAt(1) < '1' || name.charAt(1) > '8')
+            throw new IllegalArgumentException("Not a field: " + name);
+        return (8 - (name.charAt(1) - '0')) * 8 + (name.charAt(0) - 'a');
+    }
+
     private static String posToString(int pos) {
         if (pos < 0) {
             throw new IndexOutOfBoundsException("Position negative");
@@ -240,6 +320,19 @@ public class PGNWriter {
         } + (8 - ((int) Math.floor(pos / 8f)));
     }
 
+    /**
+     * <p>Converts the piece placement of a FEN-String into a board-array.</p>
+     * <p>
+     * All pieces get MASK_HAS_MOVED, except for those which still have a right according to the FEN:
+     * Pawns on their starting row, the kings and rooks of the castling rights (third part) and
+     * the pawn which can be captured en passant (fourth part) gets MASK_PAWN_DOUBLE_JUMP.
+     * The player to move and the move counters are not part of a board-array, see Position.fromFen() for those.
+     * </p>
+     *
+     * @param fen Position in the Forsyth-Edwards-Notation
+     * @return The board-array
+     * @throws IllegalArgumentException If the FEN is malformed
+     */
     public static int[] getBoardFromFen(String fen) throws IllegalArgumentException {
         int[] board = new int[64];
         String[] fenParts = fen.split(" ");
@@ -264,9 +357,47 @@ public class PGNWriter {
                 }
             }
         }
+
+        // Pawns which have not moved yet may still move two fields
+        for (int i = 8; i < 56; i++) {
+            int startRow = (board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE ? 6 : 1;
+            if ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN && i / 8 == startRow)
+                board[i] = ChessRules.unsetBit(board[i], ChessRules.MASK_HAS_MOVED);
+        }
+
+        // Castling rights
+        for (String right : fenParts[2].split("")) {
+            switch (right) {
+                case "K" -> setUnmovedForCastling(board, 60, 63, ChessRules.PLAYER_WHITE);
+                case "Q" -> setUnmovedForCastling(board, 60, 56, ChessRules.PLAYER_WHITE);
+                case "k" -> setUnmovedForCastling(board, 4, 7, ChessRules.PLAYER_BLACK);
+                case "q" -> setUnmovedForCastling(board, 4, 0, ChessRules.PLAYER_BLACK);
+                case "-" -> {
+                }
+                default -> throw new IllegalArgumentException("Unknown castling right: " + right);
+            }
+        }
+
+        // En passant: The pawn in front of the field has just moved two fields
+        if (!fenParts[3].equals("-")) {
+            int field = stringToPos(fenParts[3]);
+            int pawnPos = field < 32 ? field + 8 : field - 8;
+            if ((board[pawnPos] & ChessRules.MASK_PIECE) != ChessRules.PIECE_PAWN)
+                throw new IllegalArgumentException("No pawn in front of the en passant field " + fenParts[3]);
+            board[pawnPos] = ChessRules.setBit(board[pawnPos], ChessRules.MASK_PAWN_DOUBLE_JUMP);
+        }
         return board;
     }
 
+    private static void setUnmovedForCastling(int[] board, int kingPos, int rookPos, int player) {
+        int mask = ChessRules.MASK_SET_FIELD | ChessRules.MASK_PLAYER | ChessRules.MASK_PIECE;
+        if ((board[kingPos] & mask) != (ChessRules.MASK_SET_FIELD | player | ChessRules.PIECE_KING)
+                || (board[rookPos] & mask) != (ChessRules.MASK_SET_FIELD | player | ChessRules.PIECE_ROOK))
+            throw new IllegalArgumentException("Castling right without king and rook on their starting fields");
+        board[kingPos] = ChessRules.unsetBit(board[kingPos], ChessRules.MASK_HAS_MOVED);
+        board[rookPos] = ChessRules.unsetBit(board[rookPos], ChessRules.MASK_HAS_MOVED);
+    }
+
     public static int getPieceFEN(String fenLetter) {
         int ret = switch (fenLetter.toUpperCase()) {
             case "P" -> ChessRules.PIECE_PAWN;
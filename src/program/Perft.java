@@ -0,0 +1,199 @@
+package program;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Perft (performance test): Counts all the leaf-nodes of the move-tree of a position down to a fixed depth.</p>
+ * <p>
+ * For many positions these counts are published, so comparing against them validates the move generator including
+ * castling, en passant, promotions, pins and checks (see benchmarks.PerftBenchmark for the reference-positions).
+ * Nothing but move generation and make/unmake is done, so the nodes per second are a benchmark for exactly those.
+ * </p>
+ * <p>
+ * The tree can be walked on a board-array with ChessRules or on a Position. Both walk the same tree, so their counts have to be the same.
+ * The divide lists the count for each move at the root, which shows in which subtree a wrong count comes from.
+ * </p>
+ * <p>Command: java program.Perft depth [fen] [threads] - prints the divide, the total count and the nodes per second.</p>
+ */
+public final class Perft {
+
+    /**
+     * The start-position of a game in the Forsyth-Edwards-Notation.
+     */
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaf-nodes of the move-tree, generating the moves with ChessRules. The board is changed with makeMove() and unmakeMove() only.
+     * @param board Board-Array. It is the same again when the method returns.
+     * @param player The player to move
+     * @param depth Number of half-moves. At depth 0 the position itself is the only node.
+     * @return The number of leaf-nodes
+     */
+    public static long perft(int[] board, int player, int depth) {
+        return perft(board, player, depth, new int[Math.max(depth, 1)][ChessRules.MAX_MOVES]);
+    }
+
+    private static long perft(int[] board, int player, int depth, int[][] moveStack) {
+        if (depth == 0)
+            return 1;
+        int[] moves = moveStack[depth - 1];
+        int count = ChessRules.getLegalMoves(board, player, moves);
+        if (depth == 1)
+            return count;
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            int undo = ChessRules.makeMove(board, moves[i]);
+            nodes += perft(board, player ^ ChessRules.MASK_PLAYER, depth - 1, moveStack);
+            ChessRules.unmakeMove(board, moves[i], undo);
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf-nodes of the move-tree, generating the moves with the Position.
+     * @param position The position, the player to move is taken from its state-word. It is the same again when the method returns.
+     * @param depth Number of half-moves. At depth 0 the position itself is the only node.
+     * @return The number of leaf-nodes
+     */
+    public static long perft(Position position, int depth) {
+        return perft(position, position.getPlayerToMove(), depth, new int[Math.max(depth, 1)][ChessRules.MAX_MOVES]);
+    }
+
+    private static long perft(Position position, int player, int depth, int[][] moveStack) {
+        if (depth == 0)
+            return 1;
+        int[] moves = moveStack[depth - 1];
+        int count = position.getLegalMoves(player, moves);
+        if (depth == 1)
+            return count;
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            long undo = position.makeMove(moves[i]);
+            nodes += perft(position, player ^ ChessRules.MASK_PLAYER, depth - 1, moveStack);
+            position.unmakeMove(moves[i], undo);
+        }
+        return nodes;
+    }
+
+    /**
+     * Lists the number of leaf-nodes below each move at the root.
+     * @param position The position. It is the same again when the method returns.
+     * @param depth Number of half-moves, including the move at the root. Needs to be at least 1.
+     * @return The count for each root-move, in the order the moves were generated.
+     */
+    public static Map<Integer, Long> divide(Position position, int depth) {
+        if (depth < 1)
+            throw new IllegalArgumentException("Depth must be at least 1");
+        int player = position.getPlayerToMove();
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int count = position.getLegalMoves(player, moves);
+        int[][] moveStack = new int[depth][ChessRules.MAX_MOVES];
+        Map<Integer, Long> divide = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            long undo = position.makeMove(moves[i]);
+            divide.put(moves[i], perft(position, player ^ ChessRules.MASK_PLAYER, depth - 1, moveStack));
+            position.unmakeMove(moves[i], undo);
+        }
+        return divide;
+    }
+
+    /**
+     * <p>Same as perft(position, depth), but the subtrees of the root-moves are counted in parallel.</p>
+     * <p>Every task works on its own copy of the position, so nothing is shared between the threads.</p>
+     * @param position The position. It is not changed.
+     * @param depth Number of half-moves
+     * @param threads Number of threads
+     * @return The number of leaf-nodes
+     */
+    public static long perftParallel(Position position, int depth, int threads) {
+        if (depth <= 1)
+            return perft(position, depth);
+        int player = position.getPlayerToMove();
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int count = position.getLegalMoves(player, moves);
+        List<Future<Long>> results = new ArrayList<>(count);
+        try (ExecutorService service = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                results.add(service.submit(() -> {
+                    Position child = new Position(position);
+                    child.makeMove(move);
+                    return perft(child, player ^ ChessRules.MASK_PLAYER, depth - 1, new int[depth - 1][ChessRules.MAX_MOVES]);
+                }));
+            }
+            long nodes = 0;
+            for (Future<Long> result : results) {
+                nodes += result.get();
+            }
+            return nodes;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Perft was interrupted", e);
+        }
+    }
+
+    /**
+     * Converts a move into the long algebraic notation used by most chess-engines, e.g. "e2e4" or "e7e8n" for a promotion to a knight.
+     * @param board The board-array before the move (needed to recognize promotions)
+     * @param move The move-integer
+     * @return The move as String
+     */
+    public static String moveToString(int[] board, int move) {
+        int oldPos = ChessRules.getMoveOldPos(move);
+        int newPos = ChessRules.getMoveNewPos(move);
+        String name = fieldName(oldPos) + fieldName(newPos);
+        if ((board[oldPos] & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN && (newPos < 8 || newPos >= 56)) {
+            name += switch (ChessRules.getMovePromotion(move)) {
+                case ChessRules.PIECE_ROOK -> "r";
+                case ChessRules.PIECE_BISHOP -> "b";
+                case ChessRules.PIECE_KNIGHT -> "n";
+                default -> "q";
+            };
+        }
+        return name;
+    }
+
+    private static String fieldName(int pos) {
+        return (char) ('a' + pos % 8) + "" + (8 - pos / 8);
+    }
+
+    /**
+     * Prints the divide and the total count of a position.
+     * @param args depth [fen] [threads]. Without a FEN the start-position is used, without threads the count runs on one thread.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: Perft depth [fen] [threads]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = args.length > 1 ? args[1] : START_FEN;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        Position position = Position.fromFen(fen);
+
+        long time = System.nanoTime();
+        long nodes;
+        if (threads > 1) {
+            nodes = perftParallel(position, depth, threads);
+        } else {
+            nodes = 0;
+            for (Map.Entry<Integer, Long> entry : divide(position, depth).entrySet()) {
+                System.out.println(moveToString(position.getBoard(), entry.getKey()) + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        }
+        time = System.nanoTime() - time;
+        System.out.println();
+        System.out.println("Nodes: " + nodes);
+        System.out.printf("Time: %.3f s, %,.0f nodes/s%n", time / 1e9, nodes / (time / 1e9));
+    }
+}
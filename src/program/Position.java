@@ -0,0 +1,972 @@
+package program;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static program.ChessRules.*;
+
+/**
+ * <p>A bitboard-backed chess-position which offers the same operations as the static methods in ChessRules.</p>
+ * <p>
+ * For every piece-type and color there is one long in which each bit stands for one field of the board (see Bitboards).
+ * The index into 'pieces' is the cell-value masked with (MASK_PLAYER | MASK_PIECE), so e.g. pieces[PLAYER_WHITE | PIECE_KNIGHT] holds all white knights.
+ * Additionally, the occupancy of each player and of the whole board is stored.
+ * </p>
+ * <p>
+ * Next to the bitboards the position keeps a board-array in the same encoding as ChessRules,
+ * so that the stats of each piece (MASK_HAS_MOVED, MASK_PAWN_DOUBLE_JUMP) are preserved and the position can be converted back at any time.
+ * The rules are exactly the ones from ChessRules, so both always produce the same moves for the same board.
+ * </p>
+ */
+public class Position {
+
+    // Layout of the state-word
+
+    /**
+     * 0011 1111 - The field a pawn can be captured on en passant, i.e. the field the enemy pawn jumped over.
+     */
+    public static final int STATE_MASK_EN_PASSANT_FIELD = 0x3F;
+
+    /**
+     * Set if the last move was a pawn moving two fields forward, so that STATE_MASK_EN_PASSANT_FIELD is valid.
+     */
+    public static final int STATE_FLAG_EN_PASSANT = 1 << 6;
+
+    /**
+     * White may still castle with the rook on h1 (field 63).
+     */
+    public static final int CASTLING_WHITE_KINGSIDE = 1 << 7;
+
+    /**
+     * White may still castle with the rook on a1 (field 56).
+     */
+    public static final int CASTLING_WHITE_QUEENSIDE = 1 << 8;
+
+    /**
+     * Black may still castle with the rook on h8 (field 7).
+     */
+    public static final int CASTLING_BLACK_KINGSIDE = 1 << 9;
+
+    /**
+     * Black may still castle with the rook on a8 (field 0).
+     */
+    public static final int CASTLING_BLACK_QUEENSIDE = 1 << 10;
+
+    /**
+     * Set if white has to take the next move.
+     */
+    public static final int STATE_FLAG_WHITE_TO_MOVE = 1 << 11;
+
+    /**
+     * The halfmove clock (moves since the last capture or pawn move) is stored from this bit on. It stops counting at 255.
+     */
+    public static final int STATE_SHIFT_HALF_MOVE_CLOCK = 12;
+
+    /**
+     * The castling rights which are lost as soon as a piece moves from or to a field. Index is the field.
+     */
+    private static final int[] CASTLING_RIGHTS_LOST = new int[64];
+
+    /**
+     * Value of each piece in centipawns as in ChessRules.getPieceValue(), negative for black. Index is cell &amp; (MASK_PLAYER | MASK_PIECE).
+     */
+    private static final int[] PIECE_VALUES = new int[16];
+
+    static {
+        for (int piece = PIECE_PAWN; piece <= PIECE_KING; piece++) {
+            PIECE_VALUES[PLAYER_WHITE | piece] = getPieceValue(MASK_SET_FIELD | PLAYER_WHITE | piece);
+            PIECE_VALUES[PLAYER_BLACK | piece] = getPieceValue(MASK_SET_FIELD | PLAYER_BLACK | piece);
+        }
+        CASTLING_RIGHTS_LOST[63] = CASTLING_WHITE_KINGSIDE;
+        CASTLING_RIGHTS_LOST[56] = CASTLING_WHITE_QUEENSIDE;
+        CASTLING_RIGHTS_LOST[60] = CASTLING_WHITE_KINGSIDE | CASTLING_WHITE_QUEENSIDE;
+        CASTLING_RIGHTS_LOST[7] = CASTLING_BLACK_KINGSIDE;
+        CASTLING_RIGHTS_LOST[0] = CASTLING_BLACK_QUEENSIDE;
+        CASTLING_RIGHTS_LOST[4] = CASTLING_BLACK_KINGSIDE | CASTLING_BLACK_QUEENSIDE;
+    }
+
+    /**
+     * Board-array in the encoding of ChessRules. Always in sync with the bitboards.
+     */
+    private final int[] board = new int[64];
+
+    /**
+     * One bitboard per piece-type and color. Index is cell &amp; (MASK_PLAYER | MASK_PIECE).
+     */
+    private final long[] pieces = new long[16];
+
+    /**
+     * All fields occupied by one player. Index is Bitboards.side(player).
+     */
+    private final long[] playerPieces = new long[2];
+
+    /**
+     * All occupied fields.
+     */
+    private long occupied;
+
+    /**
+     * <p>The state-word of the position, which holds everything that is not the placement of the pieces:</p>
+     * <p>
+     * The en passant field (bits 0-5, valid if STATE_FLAG_EN_PASSANT is set), the castling rights (CASTLING_-flags),
+     * the player to move (STATE_FLAG_WHITE_TO_MOVE) and the halfmove clock (bits 12-19).
+     * </p>
+     * <p>makeMove() updates it in constant time and unmakeMove() restores it from the undo-record.</p>
+     */
+    private int state;
+
+    /**
+     * Zobrist-key of the position (see Zobrist). putPiece() and removePiece() keep the part of the pieces up to date,
+     * makeMove() and unmakeMove() the part of the state-word.
+     */
+    private long key;
+
+    /**
+     * Field of the king of each player, -1 if there is none. Index is Bitboards.side(player).
+     */
+    private final int[] kingPos = {-1, -1};
+
+    /**
+     * Sum of the values of all pieces (see getScoreByPieceValue()), kept up to date by putPiece() and removePiece().
+     */
+    private int material;
+
+    /**
+     * Piece-square-table set with setPieceSquareTable(), null if there is none, and the sum of its entries for all pieces, kept up to date like material.
+     */
+    private int[] pieceSquareTable;
+    private int pieceSquareScore;
+
+    /**
+     * If set, makeMove() and unmakeMove() check the incremental scores against a full recomputation, see setVerifyIncrementalScores().
+     */
+    private boolean verifyIncrementalScores;
+
+    // Filled by findCheckersAndPins() at the start of getLegalMoves()
+    private int checkers;
+    private long checkMask;
+    private long pinned;
+
+    /**
+     * Creates a position from a board-array with white to move. The array itself is not referenced afterwards.
+     * @param board Board-Array of length 64 in the encoding of ChessRules.
+     */
+    public Position(int[] board) {
+        this(board, PLAYER_WHITE);
+    }
+
+    /**
+     * <p>Creates a position from a board-array. The array itself is not referenced afterwards.</p>
+     * <p>
+     * The state-word is derived from the stats of the pieces: A castling right exists if the king and the piece in the corner have not moved yet,
+     * the en passant field is behind the pawn with MASK_PAWN_DOUBLE_JUMP. The halfmove clock starts at 0.
+     * </p>
+     * @param board Board-Array of length 64 in the encoding of ChessRules.
+     * @param player The player who has to take the next move.
+     */
+    public Position(int[] board, int player) {
+        if (board.length != 64)
+            throw new IllegalArgumentException("Board needs to have 64 fields");
+        for (int i = 0; i < board.length; i++) {
+            if ((board[i] & MASK_SET_FIELD) > 0) {
+                putPiece(i, board[i]);
+                if ((board[i] & MASK_PAWN_DOUBLE_JUMP) > 0)
+                    state = STATE_FLAG_EN_PASSANT | (i + ((board[i] & MASK_PLAYER) == PLAYER_WHITE ? 8 : -8));
+            }
+        }
+        if (player == PLAYER_WHITE)
+            state |= STATE_FLAG_WHITE_TO_MOVE;
+        state |= castlingRight(PLAYER_WHITE, 60, 63, CASTLING_WHITE_KINGSIDE) | castlingRight(PLAYER_WHITE, 60, 56, CASTLING_WHITE_QUEENSIDE)
+                | castlingRight(PLAYER_BLACK, 4, 7, CASTLING_BLACK_KINGSIDE) | castlingRight(PLAYER_BLACK, 4, 0, CASTLING_BLACK_QUEENSIDE);
+        key ^= Zobrist.stateKey(state);
+    }
+
+    /**
+     * <p>Creates a position from a FEN-String. The pieces are read by PGNWriter.getBoardFromFen(),
+     * the player to move and the halfmove clock are taken from the second and fifth part of the FEN.</p>
+     * @param fen Position in the Forsyth-Edwards-Notation
+     * @return The new position
+     * @throws IllegalArgumentException If the FEN is malformed
+     */
+    public static Position fromFen(String fen) throws IllegalArgumentException {
+        String[] fenParts = fen.split(" ");
+        Position position = new Position(PGNWriter.getBoardFromFen(fen), fenParts[1].equals("b") ? PLAYER_BLACK : PLAYER_WHITE);
+        try {
+            position.state |= Math.min(Integer.parseInt(fenParts[4]), 255) << STATE_SHIFT_HALF_MOVE_CLOCK;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Halfmove clock is not a number", e);
+        }
+        return position;
+    }
+
+    private int castlingRight(int player, int kingPos, int rookPos, int right) {
+        boolean kingUnmoved = board[kingPos] == (MASK_SET_FIELD | player | PIECE_KING);
+        boolean rookUnmoved = (board[rookPos] & MASK_SET_FIELD) > 0 && (board[rookPos] & MASK_HAS_MOVED) == 0;
+        return kingUnmoved && rookUnmoved ? right : 0;
+    }
+
+    /**
+     * Copy-Constructor
+     * @param other The position to copy
+     */
+    public Position(Position other) {
+        System.arraycopy(other.board, 0, board, 0, board.length);
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.playerPieces, 0, playerPieces, 0, playerPieces.length);
+        occupied = other.occupied;
+        state = other.state;
+        key = other.key;
+        material = other.material;
+        pieceSquareTable = other.pieceSquareTable;
+        pieceSquareScore = other.pieceSquareScore;
+        verifyIncrementalScores = other.verifyIncrementalScores;
+        kingPos[0] = other.kingPos[0];
+        kingPos[1] = other.kingPos[1];
+    }
+
+    /**
+     * Converts the position back into a board-array, e.g. for the Game, the PGNWriter or the GUIs.
+     * @return A new board-Array in the encoding of ChessRules.
+     */
+    public int[] toBoard() {
+        return board.clone();
+    }
+
+    /**
+     * <p>Gives direct access to the board-array of the position, which is kept up to date by makeMove() and unmakeMove().</p>
+     * <p>!!Alert: The array must NOT be changed, otherwise it is out of sync with the bitboards. Use toBoard() to get a copy.</p>
+     * @return The board-array of this position in the encoding of ChessRules.
+     */
+    public int[] getBoard() {
+        return board;
+    }
+
+    /**
+     * @return The state-word (en passant field, castling rights, player to move and halfmove clock), see STATE_FLAG_EN_PASSANT and the following constants.
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * @return The Zobrist-key of the position. It covers the pieces, the player to move, the castling rights and the en passant field, but not the halfmove clock.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * @return The player who has to take the next move.
+     */
+    public int getPlayerToMove() {
+        return (state & STATE_FLAG_WHITE_TO_MOVE) != 0 ? PLAYER_WHITE : PLAYER_BLACK;
+    }
+
+    /**
+     * @return The field a pawn can be captured on en passant, -1 if the last move was no pawn moving two fields forward.
+     */
+    public int getEnPassantField() {
+        return (state & STATE_FLAG_EN_PASSANT) != 0 ? state & STATE_MASK_EN_PASSANT_FIELD : -1;
+    }
+
+    /**
+     * @return The castling rights which are left, as a combination of the CASTLING_-flags.
+     */
+    public int getCastlingRights() {
+        return state & (CASTLING_WHITE_KINGSIDE | CASTLING_WHITE_QUEENSIDE | CASTLING_BLACK_KINGSIDE | CASTLING_BLACK_QUEENSIDE);
+    }
+
+    /**
+     * @return The number of halfmoves since the last capture or pawn move (at most 255).
+     */
+    public int getHalfMoveClock() {
+        return state >>> STATE_SHIFT_HALF_MOVE_CLOCK;
+    }
+
+    /**
+     * @return The field of the pawn which can be captured en passant, -1 if there is none.
+     */
+    private int enPassantPawnPos() {
+        if ((state & STATE_FLAG_EN_PASSANT) == 0)
+            return -1;
+        int field = state & STATE_MASK_EN_PASSANT_FIELD;
+        return field < 32 ? field + 8 : field - 8;
+    }
+
+    /**
+     * @param pos Field on the board
+     * @return The cell-value of the field in the encoding of ChessRules.
+     */
+    public int getField(int pos) {
+        return board[pos];
+    }
+
+    /**
+     * @param player The color of the pieces
+     * @param piece The piece-type (specified in MASK_PIECE)
+     * @return Bitboard of all pieces of that type and color.
+     */
+    public long getPieces(int player, int piece) {
+        return pieces[player | piece];
+    }
+
+    /**
+     * @param player The color of the pieces
+     * @return Bitboard of all pieces of the player
+     */
+    public long getPlayerPieces(int player) {
+        return playerPieces[Bitboards.side(player)];
+    }
+
+    /**
+     * @return Bitboard of all occupied fields
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    private void putPiece(int pos, int cell) {
+        long bit = 1L << pos;
+        board[pos] = cell;
+        pieces[cell & (MASK_PLAYER | MASK_PIECE)] |= bit;
+        playerPieces[Bitboards.side(cell & MASK_PLAYER)] |= bit;
+        occupied |= bit;
+        key ^= Zobrist.pieceKey(cell, pos);
+        material += PIECE_VALUES[cell & (MASK_PLAYER | MASK_PIECE)];
+        if (pieceSquareTable != null)
+            pieceSquareScore += pieceSquareTable[((cell & (MASK_PLAYER | MASK_PIECE)) << 6) | pos];
+        if ((cell & MASK_PIECE) == PIECE_KING)
+            kingPos[Bitboards.side(cell & MASK_PLAYER)] = pos;
+    }
+
+    private void removePiece(int pos) {
+        int cell = board[pos];
+        if ((cell & MASK_SET_FIELD) == 0)
+            return;
+        long bit = ~(1L << pos);
+        board[pos] = EMPTY_FIELD;
+        pieces[cell & (MASK_PLAYER | MASK_PIECE)] &= bit;
+        playerPieces[Bitboards.side(cell & MASK_PLAYER)] &= bit;
+        occupied &= bit;
+        key ^= Zobrist.pieceKey(cell, pos);
+        material -= PIECE_VALUES[cell & (MASK_PLAYER | MASK_PIECE)];
+        if (pieceSquareTable != null)
+            pieceSquareScore -= pieceSquareTable[((cell & (MASK_PLAYER | MASK_PIECE)) << 6) | pos];
+        if ((cell & MASK_PIECE) == PIECE_KING && kingPos[Bitboards.side(cell & MASK_PLAYER)] == pos)
+            kingPos[Bitboards.side(cell & MASK_PLAYER)] = -1;
+    }
+
+    // Make Move:
+
+    /**
+     * <p>Plays a move on this position. The same game mechanics as in ChessRules.makeMove() apply (Castling, En passant, Pawns becoming Queens).</p>
+     * <p>Bitboards, board-array, king-fields, the state-word, the Zobrist-key and the scores (material and piece-square-table) are updated for the moved pieces only,
+     * no loop over the board is needed.</p>
+     * <p>!!Alert: makeMove() does NOT check if a move is legal or not!</p>
+     * @param move The move-integer containing newPos and oldPos.
+     * @return The undo-record of the move. The lower 32 bits have the same layout as in ChessRules.makeMove(), the upper 32 bits hold the state-word before the move.
+     * Passing it to unmakeMove() restores the position.
+     */
+    public long makeMove(int move) {
+        int oldPos = getMoveOldPos(move);
+        int newPos = getMoveNewPos(move);
+        int piece = board[oldPos];
+        int undo = piece | (board[newPos] << UNDO_SHIFT_CAPTURED);
+        int previousState = state;
+
+        // En Passant:
+        if ((piece & MASK_PIECE) == PIECE_PAWN && (newPos - oldPos) % 8 != 0 && (board[newPos] & MASK_SET_FIELD) == 0) {
+            int enPassantPos = oldPos + (newPos % 8) - (oldPos % 8);
+            undo = (undo & ~(UNDO_MASK_PIECE << UNDO_SHIFT_CAPTURED)) | (board[enPassantPos] << UNDO_SHIFT_CAPTURED) | UNDO_FLAG_EN_PASSANT;
+            removePiece(enPassantPos);
+        }
+
+        // Remove DoubleMoveBit (only the pawn behind the en passant field can carry it)
+        int doubleJumpPos = enPassantPawnPos();
+        if (doubleJumpPos != -1)
+            board[doubleJumpPos] = unsetBit(board[doubleJumpPos], MASK_PAWN_DOUBLE_JUMP);
+        piece = unsetBit(piece, MASK_PAWN_DOUBLE_JUMP);
+
+        // Halfmove clock is reset by captures and pawn moves
+        int halfMoveClock = (board[newPos] & MASK_SET_FIELD) > 0 || (piece & MASK_PIECE) == PIECE_PAWN ? 0 : Math.min(getHalfMoveClock() + 1, 255);
+        state = ((state & (CASTLING_WHITE_KINGSIDE | CASTLING_WHITE_QUEENSIDE | CASTLING_BLACK_KINGSIDE | CASTLING_BLACK_QUEENSIDE))
+                & ~(CASTLING_RIGHTS_LOST[oldPos] | CASTLING_RIGHTS_LOST[newPos]))
+                | ((state & STATE_FLAG_WHITE_TO_MOVE) ^ STATE_FLAG_WHITE_TO_MOVE)
+                | (halfMoveClock << STATE_SHIFT_HALF_MOVE_CLOCK);
+
+        removePiece(newPos);
+        removePiece(oldPos);
+        piece = setBit(piece, MASK_HAS_MOVED);
+
+        if ((piece & MASK_PIECE) == PIECE_KING) {
+            // Castling:
+            if (newPos - oldPos == 2) {
+                int rookPos = oldPos - oldPos % 8 + 7;
+                int rook = board[rookPos];
+                removePiece(rookPos);
+                putPiece(newPos - 1, setBit(rook, MASK_HAS_MOVED));
+                undo |= UNDO_FLAG_CASTLING;
+            } else if (oldPos - newPos == 2) {
+                int rookPos = oldPos - oldPos % 8;
+                int rook = board[rookPos];
+                removePiece(rookPos);
+                putPiece(newPos + 1, setBit(rook, MASK_HAS_MOVED));
+                undo |= UNDO_FLAG_CASTLING;
+            }
+        } else if ((piece & MASK_PIECE) == PIECE_PAWN) {
+            if (newPos < 8 || newPos >= 56) {
+                // Pawn becomes Queen (or the piece stored in the move)
+                piece = unsetBit(piece, MASK_PIECE) | getMovePromotion(move);
+            } else if (Math.abs(newPos - oldPos) == 16) {
+                // Pawn gets DoubleMoveBit Set (For En passant)
+                piece = setBit(piece, MASK_PAWN_DOUBLE_JUMP);
+                state |= STATE_FLAG_EN_PASSANT | ((oldPos + newPos) / 2);
+            }
+        }
+        putPiece(newPos, piece);
+        key ^= Zobrist.stateKey(previousState) ^ Zobrist.stateKey(state);
+        if (verifyIncrementalScores)
+            verifyScores();
+        return ((long) previousState << 32) | (undo & 0xFFFFFFFFL);
+    }
+
+    /**
+     * <p>Takes back a move which was played with makeMove(). Afterwards the position is exactly the same as before makeMove() was called.</p>
+     * <p>Moves need to be taken back in the reverse order they were played in.</p>
+     * @param move The move-integer which was played.
+     * @param undo The undo-record which makeMove() returned for this move.
+     */
+    public void unmakeMove(int move, long undo) {
+        int oldPos = getMoveOldPos(move);
+        int newPos = getMoveNewPos(move);
+        int flags = (int) undo;
+        int piece = flags & UNDO_MASK_PIECE;
+        int captured = (flags >> UNDO_SHIFT_CAPTURED) & UNDO_MASK_PIECE;
+
+        if ((flags & UNDO_FLAG_CASTLING) != 0) {
+            int rookNewPos = newPos > oldPos ? newPos - 1 : newPos + 1;
+            int rookPos = newPos > oldPos ? oldPos - oldPos % 8 + 7 : oldPos - oldPos % 8;
+            int rook = board[rookNewPos];
+            removePiece(rookNewPos);
+            putPiece(rookPos, unsetBit(rook, MASK_HAS_MOVED));
+        }
+        removePiece(newPos);
+        putPiece(oldPos, piece);
+        if ((captured & MASK_SET_FIELD) > 0)
+            putPiece((flags & UNDO_FLAG_EN_PASSANT) != 0 ? oldPos + (newPos % 8) - (oldPos % 8) : newPos, captured);
+
+        key ^= Zobrist.stateKey(state) ^ Zobrist.stateKey((int) (undo >>> 32));
+        state = (int) (undo >>> 32);
+        int doubleJumpPos = enPassantPawnPos();
+        if (doubleJumpPos != -1)
+            board[doubleJumpPos] = setBit(board[doubleJumpPos], MASK_PAWN_DOUBLE_JUMP);
+        if (verifyIncrementalScores)
+            verifyScores();
+    }
+
+    /**
+     * <p>Passes the turn to the other player without moving a piece (null move). The en passant field is gone afterwards,
+     * the castling rights and the halfmove clock stay the same.</p>
+     * <p>Not a legal move in chess: The search uses it to find out whether a position is so good that it stays good even if the player passes.
+     * Must not be played while the player to move is in check.</p>
+     * @return The state-word before the null move. Passing it to unmakeNullMove() restores the position.
+     */
+    public int makeNullMove() {
+        int previousState = state;
+        int doubleJumpPos = enPassantPawnPos();
+        if (doubleJumpPos != -1)
+            board[doubleJumpPos] = unsetBit(board[doubleJumpPos], MASK_PAWN_DOUBLE_JUMP);
+        state = (state & ~(STATE_FLAG_EN_PASSANT | STATE_MASK_EN_PASSANT_FIELD)) ^ STATE_FLAG_WHITE_TO_MOVE;
+        key ^= Zobrist.stateKey(previousState) ^ Zobrist.stateKey(state);
+        return previousState;
+    }
+
+    /**
+     * Takes back a null move which was played with makeNullMove().
+     * @param previousState The state-word which makeNullMove() returned.
+     */
+    public void unmakeNullMove(int previousState) {
+        key ^= Zobrist.stateKey(state) ^ Zobrist.stateKey(previousState);
+        state = previousState;
+        int doubleJumpPos = enPassantPawnPos();
+        if (doubleJumpPos != -1)
+            board[doubleJumpPos] = setBit(board[doubleJumpPos], MASK_PAWN_DOUBLE_JUMP);
+    }
+
+    // Get Possible Moves:
+
+    /**
+     * Gets the list of all the legal moves for one player. Same result as ChessRules.getLegalMoves().
+     * @param player Current Player which has to take a move
+     * @return A list of all the possible moves for the player
+     */
+    public List<Integer> getLegalMoves(int player) {
+        int[] moves = new int[256];
+        int count = getLegalMoves(player, moves);
+        List<Integer> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(moves[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Same as getLegalMoves(player, moves), but all moves which capture a piece are moved to the front, as in ChessRules.getLegalMovesSorted().
+     * @param player Current Player which has to take a move
+     * @param moves Array the moves are written into, starting at index 0. 256 fields are always enough.
+     * @return The number of moves written into the array.
+     */
+    public int getLegalMovesSorted(int player, int[] moves) {
+        int count = getLegalMoves(player, moves);
+        int captures = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if ((board[getMoveNewPos(move)] & MASK_SET_FIELD) > 0) {
+                System.arraycopy(moves, captures, moves, captures + 1, i - captures);
+                moves[captures++] = move;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * <p>Writes all the legal moves of one player into the given array.</p>
+     * <p>
+     * The pieces giving check and the pinned pieces are determined once for the position (see findCheckersAndPins()).
+     * With that the targets of every piece are restricted directly on the bitboards:
+     * In check only captures of the checking piece and blocks are allowed, pinned pieces may only move along their pin-ray
+     * and the king may only go to fields which are not attacked with the king itself taken off the board.
+     * In double check only the king moves.
+     * Only en passant and castling, which move more than one piece, are still verified with moveIllegalDueToSelfCheck().
+     * </p>
+     * @param player Current Player which has to take a move
+     * @param moves Array the moves are written into, starting at index 0. 256 fields are always enough.
+     * @return The number of moves written into the array.
+     */
+    public int getLegalMoves(int player, int[] moves) {
+        return generateLegalMoves(player, moves, false);
+    }
+
+    /**
+     * <p>Same as getLegalMoves(player, moves), but only the moves which capture a piece (also en passant) and the promotions to a queen.</p>
+     * <p>Used by the quiescence-search: Quiet moves and under-promotions are not even generated, and no castling is checked.</p>
+     * @param player Current Player which has to take a move
+     * @param moves Array the moves are written into, starting at index 0. 256 fields are always enough.
+     * @return The number of moves written into the array.
+     */
+    public int getLegalCaptures(int player, int[] moves) {
+        return generateLegalMoves(player, moves, true);
+    }
+
+    private int generateLegalMoves(int player, int[] moves, boolean capturesOnly) {
+        int king = getKingPos(player);
+        long own = playerPieces[Bitboards.side(player)];
+        long enemy = playerPieces[Bitboards.side(player ^ MASK_PLAYER)];
+        // Fields the pieces may move to, apart from check and pins
+        long targetMask = capturesOnly ? enemy : ~own;
+        int count = 0;
+
+        checkers = 0;
+        checkMask = -1L;
+        pinned = 0;
+        if (king != -1) {
+            findCheckersAndPins(king, player);
+
+            // King
+            long kingOccupied = occupied & ~(1L << king);
+            long targets = Bitboards.KING_ATTACKS[king] & targetMask;
+            while (targets != 0) {
+                int target = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (!attacked(target, player, kingOccupied, ~(1L << target)))
+                    moves[count++] = getMove(king, target);
+            }
+            if (checkers == 0 && !capturesOnly) {
+                int castlingStart = count;
+                count = addCastlingMoves(moves, count, king, player);
+                count = removeSelfCheckMoves(moves, castlingStart, count);
+            }
+            if (checkers > 1)
+                return count;
+        }
+
+        // Pawns
+        int forward = player == PLAYER_WHITE ? -8 : 8;
+        int doubleJumpPos = enPassantPawnPos();
+        long bits = pieces[player | PIECE_PAWN];
+        while (bits != 0) {
+            int pos = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            int push = pos + forward;
+            if (push < 0 || push >= 64)
+                continue;
+            long allowed = allowedTargets(pos, king);
+            long captures = Bitboards.PAWN_ATTACKS[Bitboards.side(player)][pos] & enemy & allowed;
+            while (captures != 0) {
+                int target = Long.numberOfTrailingZeros(captures);
+                if (capturesOnly)
+                    moves[count++] = getMove(pos, target);
+                else
+                    count = addPawnMove(moves, count, pos, target);
+                captures &= captures - 1;
+            }
+            if (doubleJumpPos != -1 && doubleJumpPos / 8 == pos / 8 && Math.abs(doubleJumpPos - pos) == 1
+                    && (board[doubleJumpPos] & MASK_PLAYER) != player && (board[doubleJumpPos + forward] & MASK_SET_FIELD) == 0) {
+                // En passant removes two pieces from the line of the king, so it is checked separately
+                moves[count] = getMove(pos, doubleJumpPos + forward);
+                if (!moveIllegalDueToSelfCheck(moves[count]))
+                    count++;
+            }
+            if (capturesOnly) {
+                // Only the promotion to a queen
+                if ((push < 8 || push >= 56) && (board[push] & MASK_SET_FIELD) == 0 && (allowed & (1L << push)) != 0)
+                    moves[count++] = getMove(pos, push);
+            } else if ((board[push] & MASK_SET_FIELD) == 0) {
+                int doublePush = push + forward;
+                if ((board[pos] & MASK_HAS_MOVED) == 0 && doublePush >= 0 && doublePush < 64 && (board[doublePush] & MASK_SET_FIELD) == 0
+                        && (allowed & (1L << doublePush)) != 0)
+                    moves[count++] = getMove(pos, doublePush);
+                if ((allowed & (1L << push)) != 0)
+                    count = addPawnMove(moves, count, pos, push);
+            }
+        }
+
+        // Knights (a pinned knight can never move)
+        bits = pieces[player | PIECE_KNIGHT] & ~pinned;
+        while (bits != 0) {
+            int pos = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            count = addMoves(moves, count, pos, Bitboards.KNIGHT_ATTACKS[pos] & targetMask & checkMask);
+        }
+
+        // Bishops and Queens diagonally
+        bits = pieces[player | PIECE_BISHOP] | pieces[player | PIECE_QUEEN];
+        while (bits != 0) {
+            int pos = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            count = addMoves(moves, count, pos, Bitboards.bishopAttacks(pos, occupied) & targetMask & allowedTargets(pos, king));
+        }
+
+        // Rooks and Queens straight
+        bits = pieces[player | PIECE_ROOK] | pieces[player | PIECE_QUEEN];
+        while (bits != 0) {
+            int pos = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            count = addMoves(moves, count, pos, Bitboards.rookAttacks(pos, occupied) & targetMask & allowedTargets(pos, king));
+        }
+        return count;
+    }
+
+    /**
+     * <p>Walks the eight rays starting at the king once and finds the enemy pieces giving check and the own pieces which are pinned.</p>
+     * <p>A piece is pinned if it is the only piece between the king and an enemy Rook, Bishop or Queen moving along that ray.</p>
+     * <p>The result is stored in checkers, checkMask and pinned.</p>
+     * @param king Position of the king
+     * @param player Color of the king
+     */
+    private void findCheckersAndPins(int king, int player) {
+        int enemy = player ^ MASK_PLAYER;
+        long own = playerPieces[Bitboards.side(player)];
+        long straight = pieces[enemy | PIECE_ROOK] | pieces[enemy | PIECE_QUEEN];
+        long diagonal = pieces[enemy | PIECE_BISHOP] | pieces[enemy | PIECE_QUEEN];
+        long checking = (Bitboards.KNIGHT_ATTACKS[king] & pieces[enemy | PIECE_KNIGHT])
+                | (Bitboards.PAWN_ATTACKS[Bitboards.side(player)][king] & pieces[enemy | PIECE_PAWN]);
+        long mask = checking;
+        pinned = 0;
+        for (int dir = 0; dir < 8; dir++) {
+            long sliders = (dir == Bitboards.DIR_EAST || dir == Bitboards.DIR_SOUTH || dir == Bitboards.DIR_WEST || dir == Bitboards.DIR_NORTH) ? straight : diagonal;
+            if ((Bitboards.RAYS[dir][king] & sliders) == 0)
+                continue;
+            long ray = Bitboards.rayAttacks(dir, king, occupied);
+            long first = ray & occupied;
+            if ((first & sliders) != 0) {
+                checking |= first;
+                mask |= ray;
+            } else if ((first & own) != 0) {
+                long second = Bitboards.rayAttacks(dir, Long.numberOfTrailingZeros(first), occupied) & occupied;
+                if ((second & sliders) != 0)
+                    pinned |= first;
+            }
+        }
+        checkers = Long.bitCount(checking);
+        checkMask = checkers == 0 ? -1L : mask;
+    }
+
+    /**
+     * @return The fields the piece on pos may move to as far as check and pins are concerned.
+     */
+    private long allowedTargets(int pos, int king) {
+        if ((pinned & (1L << pos)) == 0)
+            return checkMask;
+        return checkMask & Bitboards.ray(king, pos);
+    }
+
+    /**
+     * Removes all moves in the range [from, to) of the array which leave the own king in check.
+     * @return The new end of the range
+     */
+    private int removeSelfCheckMoves(int[] moves, int from, int to) {
+        int count = from;
+        for (int i = from; i < to; i++) {
+            if (!moveIllegalDueToSelfCheck(moves[i]))
+                moves[count++] = moves[i];
+        }
+        return count;
+    }
+
+    private static int addMoves(int[] moves, int count, int oldPos, long targets) {
+        while (targets != 0) {
+            moves[count++] = getMove(oldPos, Long.numberOfTrailingZeros(targets));
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Castling as in ChessRules.getKingMoves(): The castling right is still in the state-word (King and the piece in the corner have not moved),
+     * all fields in between are empty and neither the king nor the fields it moves over are attacked.
+     */
+    private int addCastlingMoves(int[] moves, int count, int pos, int player) {
+        int rights = state & (player == PLAYER_WHITE ? CASTLING_WHITE_KINGSIDE | CASTLING_WHITE_QUEENSIDE : CASTLING_BLACK_KINGSIDE | CASTLING_BLACK_QUEENSIDE);
+        if (rights == 0)
+            return count;
+        int leftRookPos = pos - pos % 8;
+        int rightRookPos = leftRookPos + 7;
+        boolean leftPossible = (rights & (CASTLING_WHITE_QUEENSIDE | CASTLING_BLACK_QUEENSIDE)) != 0 && emptyBetween(leftRookPos, pos);
+        boolean rightPossible = (rights & (CASTLING_WHITE_KINGSIDE | CASTLING_BLACK_KINGSIDE)) != 0 && emptyBetween(pos, rightRookPos);
+        if ((!leftPossible && !rightPossible) || pieceInCheck(pos, player))
+            return count;
+        if (leftPossible && !anyFieldAttacked(pos - 2, pos - 1, player))
+            moves[count++] = getMove(pos, pos - 2);
+        if (rightPossible && !anyFieldAttacked(pos + 1, rightRookPos - 1, player))
+            moves[count++] = getMove(pos, pos + 2);
+        return count;
+    }
+
+    /**
+     * @param from Left end of the path (exclusive)
+     * @param to Right end of the path (exclusive)
+     * @return Whether all fields in between are empty
+     */
+    private boolean emptyBetween(int from, int to) {
+        long between = ((1L << to) - 1) & ~((1L << (from + 1)) - 1);
+        return (occupied & between) == 0;
+    }
+
+    private boolean anyFieldAttacked(int from, int to, int player) {
+        for (int i = from; i <= to; i++) {
+            if (pieceInCheck(i, player))
+                return true;
+        }
+        return false;
+    }
+
+    // Check for Moves Methods:
+
+    /**
+     * Gets the position of a piece. Uses the bitboard of the piece, so no search through the board is needed.
+     * @param player The color of the needed piece
+     * @param piece The piece-type (specified in MASK_PIECE)
+     * @return The position of the piece with the lowest index. Returns -1 if no Piece is found.
+     */
+    public int findPiecePos(int player, int piece) {
+        long bits = pieces[player | piece];
+        return bits == 0 ? -1 : Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Gets the field of the king. It is tracked by makeMove(), so nothing needs to be searched.
+     * @param player The color of the king
+     * @return The position of the king, -1 if the player has no king.
+     */
+    public int getKingPos(int player) {
+        return kingPos[Bitboards.side(player)];
+    }
+
+    /**
+     * Checks if a field is under attack by the enemy of player.
+     * @param pos The position of the piece (mostly king).
+     * @param player The pieces color. Is used to get the enemy-player.
+     * @return Whether the field is being attacked by the enemy or not.
+     */
+    public boolean pieceInCheck(int pos, int player) {
+        return attacked(pos, player, occupied, -1L);
+    }
+
+    /**
+     * Checks if pos is attacked by the enemy of player, for a hypothetical occupancy of the board.
+     * @param occupied Occupancy used for the sliding pieces
+     * @param enemyMask Enemy pieces outside this mask are ignored (e.g. because they were just captured)
+     */
+    private boolean attacked(int pos, int player, long occupied, long enemyMask) {
+        int enemy = player ^ MASK_PLAYER;
+        if ((Bitboards.KNIGHT_ATTACKS[pos] & pieces[enemy | PIECE_KNIGHT] & enemyMask) != 0
+                || (Bitboards.PAWN_ATTACKS[Bitboards.side(player)][pos] & pieces[enemy | PIECE_PAWN] & enemyMask) != 0
+                || (Bitboards.KING_ATTACKS[pos] & pieces[enemy | PIECE_KING] & enemyMask) != 0)
+            return true;
+        long queens = pieces[enemy | PIECE_QUEEN];
+        long diagonal = (pieces[enemy | PIECE_BISHOP] | queens) & enemyMask;
+        if (diagonal != 0 && (Bitboards.bishopAttacks(pos, occupied) & diagonal) != 0)
+            return true;
+        long straight = (pieces[enemy | PIECE_ROOK] | queens) & enemyMask;
+        return straight != 0 && (Bitboards.rookAttacks(pos, occupied) & straight) != 0;
+    }
+
+    /**
+     * <p>Checks if the move results in the own king being in check, making it illegal to play.</p>
+     * <p>The move is not played, instead the occupancy after the move is calculated on the bitboards.</p>
+     * @param move The moves which needs to be checked.
+     * @return Whether this move is illegal to play.
+     */
+    public boolean moveIllegalDueToSelfCheck(int move) {
+        int oldPos = getMoveOldPos(move);
+        int newPos = getMoveNewPos(move);
+        int piece = board[oldPos];
+        int player = piece & MASK_PLAYER;
+        long captured = 1L << newPos;
+        if ((piece & MASK_PIECE) == PIECE_PAWN && (newPos - oldPos) % 8 != 0 && (board[newPos] & MASK_SET_FIELD) == 0) {
+            captured = 1L << (oldPos + (newPos % 8) - (oldPos % 8));
+        }
+        long occupiedAfter = (occupied & ~(1L << oldPos) & ~captured) | (1L << newPos);
+        int king;
+        if ((piece & MASK_PIECE) == PIECE_KING) {
+            king = newPos;
+            if (newPos - oldPos == 2) {
+                occupiedAfter ^= (1L << (oldPos - oldPos % 8 + 7)) | (1L << (newPos - 1));
+            } else if (oldPos - newPos == 2) {
+                occupiedAfter ^= (1L << (oldPos - oldPos % 8)) | (1L << (newPos + 1));
+            }
+        } else {
+            king = getKingPos(player);
+            if (king == -1)
+                return false;
+        }
+        return attacked(king, player, occupiedAfter, ~captured);
+    }
+
+    /**
+     * Checks whether a move is legal. Current player can be concluded from 'move'-parameter.
+     * @param move The Move that needs to be checked
+     * @return current Move is legal to play
+     */
+    public boolean moveIsLegal(int move) {
+        int oldPos = getMoveOldPos(move);
+        if ((board[oldPos] & MASK_SET_FIELD) == 0)
+            return false;
+        int[] moves = new int[256];
+        int count = getLegalMoves(board[oldPos] & MASK_PLAYER, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param player Player who needs to take next move.
+     * @return Returns true if there are no more moves the player could play.
+     */
+    public boolean noLegalMovesLeft(int player) {
+        return getLegalMoves(player, new int[256]) == 0;
+    }
+
+    /**
+     * @param player Player
+     * @return Whether the king of the player is in check or not.
+     */
+    public boolean playerInCheck(int player) {
+        int king = getKingPos(player);
+        return king != -1 && pieceInCheck(king, player);
+    }
+
+    /**
+     * Counts the total number of pieces on the board (both Players)
+     * @return Total number of pieces on the board
+     */
+    public int countPieces() {
+        return Long.bitCount(occupied);
+    }
+
+    /**
+     * Counts the number of the left pieces of one side.
+     * @param player The player
+     * @return The number of pieces
+     */
+    public int countPieces(int player) {
+        return Long.bitCount(playerPieces[Bitboards.side(player)]);
+    }
+
+    /**
+     * Same as ChessRules.getScoreByPieceValue(), but kept up to date by makeMove() and unmakeMove(), so it costs nothing.
+     * @return Sum of the values of all pieces in centipawns. Positive values are in favor of white.
+     */
+    public int getScoreByPieceValue() {
+        return material;
+    }
+
+    /**
+     * <p>Sets a piece-square-table: A score for every piece-type and color on every field. The position keeps the sum over its pieces up to date
+     * while moves are made and taken back (see getPieceSquareScore()), so an evaluation gets it in constant time instead of looping over the board.</p>
+     * <p>The table is not copied and must not be changed afterwards. Copies of the position (see the copy-constructor) share it.</p>
+     * @param pieceSquareTable Scores in any unit, index ((cell &amp; (MASK_PLAYER | MASK_PIECE)) &lt;&lt; 6) | field, so the length is 16 * 64. Null for none.
+     */
+    public void setPieceSquareTable(int[] pieceSquareTable) {
+        if (pieceSquareTable != null && pieceSquareTable.length != 16 * 64)
+            throw new IllegalArgumentException("Piece-square-table needs to have 16 * 64 entries");
+        this.pieceSquareTable = pieceSquareTable;
+        pieceSquareScore = computePieceSquareScore();
+    }
+
+    /**
+     * @return The piece-square-table set with setPieceSquareTable(), null if there is none.
+     */
+    public int[] getPieceSquareTable() {
+        return pieceSquareTable;
+    }
+
+    /**
+     * @return Sum of the entries of the piece-square-table for all pieces on their fields, 0 without a table.
+     */
+    public int getPieceSquareScore() {
+        return pieceSquareScore;
+    }
+
+    private int computeMaterial() {
+        int score = 0;
+        for (int piece = PIECE_PAWN; piece <= PIECE_KING; piece++) {
+            score += PIECE_VALUES[PLAYER_WHITE | piece] * Long.bitCount(pieces[PLAYER_WHITE | piece]);
+            score += PIECE_VALUES[PLAYER_BLACK | piece] * Long.bitCount(pieces[PLAYER_BLACK | piece]);
+        }
+        return score;
+    }
+
+    private int computePieceSquareScore() {
+        if (pieceSquareTable == null)
+            return 0;
+        int score = 0;
+        for (int pos = 0; pos < board.length; pos++) {
+            if ((board[pos] & MASK_SET_FIELD) > 0)
+                score += pieceSquareTable[((board[pos] & (MASK_PLAYER | MASK_PIECE)) << 6) | pos];
+        }
+        return score;
+    }
+
+    /**
+     * <p>Turns on or off checking the scores which are updated move by move: After each makeMove() and unmakeMove() the material and the piece-square-score
+     * are computed again from scratch and compared. For tests, it makes the moves much slower. Copies of the position keep the setting.</p>
+     * @param verify True to check the scores after each move.
+     */
+    public void setVerifyIncrementalScores(boolean verify) {
+        verifyIncrementalScores = verify;
+    }
+
+    /**
+     * @throws IllegalStateException If an incremental score differs from the full recomputation.
+     */
+    private void verifyScores() {
+        if (material != computeMaterial())
+            throw new IllegalStateException("Material is " + material + " instead of " + computeMaterial());
+        if (pieceSquareScore != computePieceSquareScore())
+            throw new IllegalStateException("Piece-square-score is " + pieceSquareScore + " instead of " + computePieceSquareScore());
+    }
+}
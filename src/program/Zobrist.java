@@ -0,0 +1,115 @@
+package program;
+
+import java.util.SplittableRandom;
+
+import static program.ChessRules.*;
+
+/**
+ * <p>Zobrist-keys: A 64-bit key for a chess-position, built by XOR-ing one random number for each feature of the position.</p>
+ * <p>
+ * There is one number for each piece-type and color on each field, one for white to move, one for each combination of castling rights
+ * and one for each column of the en passant field. Positions which can be reached by different move-orders get the same key,
+ * so it can be used for transposition-tables, repetition-detection or to find duplicate positions in a dataset.
+ * </p>
+ * <p>
+ * Since XOR is its own inverse, a move only has to XOR out what it removes and XOR in what it adds.
+ * Position does this in makeMove() and unmakeMove(), computeKey() calculates the key from scratch in order to check it.
+ * </p>
+ * <p>The numbers come from a fixed seed, so the keys are the same in every run and can be stored in files.</p>
+ */
+public final class Zobrist {
+
+    /**
+     * One number per piece-type and color on each field. Index [cell &amp; (MASK_PLAYER | MASK_PIECE)][field], like Position.pieces.
+     */
+    private static final long[][] PIECE_SQUARE = new long[16][64];
+
+    /**
+     * XOR-ed in if white has to take the next move.
+     */
+    private static final long WHITE_TO_MOVE;
+
+    /**
+     * One number per combination of castling rights. Index is the CASTLING_-flags of Position shifted down to bit 0.
+     */
+    private static final long[] CASTLING = new long[16];
+
+    /**
+     * One number per column of the en passant field.
+     */
+    private static final long[] EN_PASSANT_COLUMN = new long[8];
+
+    private static final int CASTLING_SHIFT = Integer.numberOfTrailingZeros(Position.CASTLING_WHITE_KINGSIDE);
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (int piece = PIECE_PAWN; piece <= PIECE_KING; piece++) {
+            for (int pos = 0; pos < 64; pos++) {
+                PIECE_SQUARE[PLAYER_WHITE | piece][pos] = random.nextLong();
+                PIECE_SQUARE[PLAYER_BLACK | piece][pos] = random.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = random.nextLong();
+        // No castling rights at all is the most common case and does not change the key
+        for (int i = 1; i < CASTLING.length; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_COLUMN.length; i++) {
+            EN_PASSANT_COLUMN[i] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param cell Cell-value in the encoding of ChessRules. Only the player and the piece-type count, the stats are ignored.
+     * @param pos Field on the board
+     * @return The number of the piece on that field
+     */
+    public static long pieceKey(int cell, int pos) {
+        return PIECE_SQUARE[cell & (MASK_PLAYER | MASK_PIECE)][pos];
+    }
+
+    /**
+     * The part of the key which comes from the state-word: player to move, castling rights and the column of the en passant field.
+     * The halfmove clock is not part of the key.
+     * @param state The state-word of a Position
+     * @return The XOR of the numbers of all features in the state-word
+     */
+    public static long stateKey(int state) {
+        long key = CASTLING[(state >>> CASTLING_SHIFT) & 0xF];
+        if ((state & Position.STATE_FLAG_WHITE_TO_MOVE) != 0)
+            key ^= WHITE_TO_MOVE;
+        if ((state & Position.STATE_FLAG_EN_PASSANT) != 0)
+            key ^= EN_PASSANT_COLUMN[(state & Position.STATE_MASK_EN_PASSANT_FIELD) % 8];
+        return key;
+    }
+
+    /**
+     * Calculates the key of a position from scratch, looping over the whole board.
+     * Used to verify the key which Position updates incrementally.
+     * @param position The position
+     * @return The Zobrist-key of the position
+     */
+    public static long computeKey(Position position) {
+        int[] board = position.getBoard();
+        long key = stateKey(position.getState());
+        for (int pos = 0; pos < board.length; pos++) {
+            if ((board[pos] & MASK_SET_FIELD) > 0)
+                key ^= pieceKey(board[pos], pos);
+        }
+        return key;
+    }
+
+    /**
+     * Calculates the key of a board-array, e.g. of the Game or a dataset.
+     * The state-word is derived from the stats of the pieces the same way as in the constructor of Position.
+     * @param board Board-Array in the encoding of ChessRules
+     * @param player The player who has to take the next move
+     * @return The Zobrist-key, the same as new Position(board, player).getKey()
+     */
+    public static long computeKey(int[] board, int player) {
+        return computeKey(new Position(board, player));
+    }
+}
@@ -0,0 +1,97 @@
+package program.benchmarks;
+
+import program.ChessRules;
+import program.Position;
+import program.players.ais.v2.AI2_v3;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Measures the evaluation of AI2_v3: analyzeBoard() of the board-array and of a Position, as the search calls it.</p>
+ * <p>
+ * The positions are taken from random games with a fixed seed, from the opening to the endgame, so the numbers can be compared between versions.
+ * For each variant the time and the allocated bytes per call are printed, and the sum of all scores: It has to stay the same as long as the evaluation does.
+ * </p>
+ * <p>Arguments: [games] [rounds] (default: 200 games, 20 rounds).</p>
+ */
+public class EvaluationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int MAX_PLIES = 160;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        AI2_v3 ai = new AI2_v3(ChessRules.PLAYER_WHITE);
+        List<Position> positions = createPositions(games);
+        List<int[]> boards = new ArrayList<>();
+        for (Position position : positions) {
+            boards.add(position.toBoard());
+        }
+        System.out.printf("%,d positions from %d random games%n", positions.size(), games);
+
+        // Warmup
+        for (int i = 0; i < 3; i++) {
+            evaluateBoards(ai, boards);
+            evaluatePositions(ai, positions);
+        }
+        for (int i = 0; i < 2; i++) {
+            long bytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+            long time = System.nanoTime();
+            long sum = 0;
+            for (int round = 0; round < rounds; round++) {
+                sum += evaluateBoards(ai, boards);
+            }
+            print("analyzeBoard(int[])   ", sum, (long) rounds * boards.size(), System.nanoTime() - time, THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - bytes);
+
+            bytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+            time = System.nanoTime();
+            sum = 0;
+            for (int round = 0; round < rounds; round++) {
+                sum += evaluatePositions(ai, positions);
+            }
+            print("analyzeBoard(Position)", sum, (long) rounds * positions.size(), System.nanoTime() - time, THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - bytes);
+        }
+    }
+
+    private static List<Position> createPositions(int games) {
+        Random random = new Random(7);
+        List<Position> positions = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            Position position = Position.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                List<Integer> moves = position.getLegalMoves(position.getPlayerToMove());
+                if (moves.isEmpty() || position.countPieces() <= 2) {
+                    break;
+                }
+                position.makeMove(moves.get(random.nextInt(moves.size())));
+                positions.add(new Position(position));
+            }
+        }
+        return positions;
+    }
+
+    private static long evaluateBoards(AI2_v3 ai, List<int[]> boards) {
+        long sum = 0;
+        for (int[] board : boards) {
+            sum += ai.analyzeBoard(board);
+        }
+        return sum;
+    }
+
+    private static long evaluatePositions(AI2_v3 ai, List<Position> positions) {
+        long sum = 0;
+        for (Position position : positions) {
+            sum += ai.analyzeBoard(position);
+        }
+        return sum;
+    }
+
+    private static void print(String name, long sum, long calls, long nanos, long bytes) {
+        System.out.printf("  %s: %,8.1f ns/call, %,8.1f bytes/call, sum of scores %,d%n", name, nanos / (double) calls, bytes / (double) calls, sum);
+    }
+}
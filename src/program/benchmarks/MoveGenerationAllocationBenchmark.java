@@ -0,0 +1,93 @@
+package program.benchmarks;
+
+import program.ChessRules;
+import program.PGNWriter;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * <p>Compares the List-based move generation of ChessRules with the generation into reusable int-buffers.</p>
+ * <p>
+ * Both variants walk the same game-tree to a fixed depth, the same way the minimax-search does.
+ * The boards for each layer are allocated once up front, so only the allocations of the move generation itself are measured.
+ * For each variant the allocated bytes per generated position and the positions per second are printed.
+ * </p>
+ */
+public class MoveGenerationAllocationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 1"
+    };
+
+    private static final int DEPTH = 4;
+    private static final int ITERATIONS = 3;
+
+    private static int[][] boards;
+    private static int[][] moveStack;
+
+    public static void main(String[] args) {
+        boards = new int[DEPTH + 1][64];
+        moveStack = new int[DEPTH + 1][ChessRules.MAX_MOVES];
+
+        // Warmup
+        for (String fen : FENS) {
+            walkList(PGNWriter.getBoardFromFen(fen), ChessRules.PLAYER_WHITE, DEPTH - 1, 0);
+            walkBuffer(PGNWriter.getBoardFromFen(fen), ChessRules.PLAYER_WHITE, DEPTH - 1, 0);
+        }
+
+        for (String fen : FENS) {
+            System.out.println("Position: " + fen);
+            measure("List<Integer>", fen, true);
+            measure("int[]-buffer ", fen, false);
+            System.out.println();
+        }
+    }
+
+    private static void measure(String name, String fen, boolean listBased) {
+        long nodes = 0;
+        long bytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        long time = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int[] board = PGNWriter.getBoardFromFen(fen);
+            nodes += listBased ? walkList(board, ChessRules.PLAYER_WHITE, DEPTH, 0) : walkBuffer(board, ChessRules.PLAYER_WHITE, DEPTH, 0);
+        }
+        time = System.nanoTime() - time;
+        bytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - bytes;
+        System.out.printf("  %s: %,d positions, %,.1f bytes/position, %,.0f positions/s, %,.1f MB/s allocated%n",
+                name, nodes, bytes / (double) nodes, nodes / (time / 1e9), bytes / (time / 1e9) / 1e6);
+    }
+
+    private static long walkList(int[] board, int player, int depth, int ply) {
+        List<Integer> moves = ChessRules.getLegalMovesSorted(board, player);
+        if (depth <= 1)
+            return 1;
+        long nodes = 1;
+        for (int move : moves) {
+            int[] child = boards[ply + 1];
+            System.arraycopy(board, 0, child, 0, child.length);
+            ChessRules.makeMove(child, move);
+            nodes += walkList(child, player ^ ChessRules.MASK_PLAYER, depth - 1, ply + 1);
+        }
+        return nodes;
+    }
+
+    private static long walkBuffer(int[] board, int player, int depth, int ply) {
+        int[] moves = moveStack[ply];
+        int count = ChessRules.getLegalMovesSorted(board, player, moves);
+        if (depth <= 1)
+            return 1;
+        long nodes = 1;
+        for (int i = 0; i < count; i++) {
+            int[] child = boards[ply + 1];
+            System.arraycopy(board, 0, child, 0, child.length);
+            ChessRules.makeMove(child, moves[i]);
+            nodes += walkBuffer(child, player ^ ChessRules.MASK_PLAYER, depth - 1, ply + 1);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,71 @@
+package program.benchmarks;
+
+import program.Position;
+import program.players.ais.v2.AI2_v3;
+
+import java.util.HashSet;
+
+/**
+ * <p>Counts the nodes AI2_v3 needs to search a set of positions to a fixed depth, with and without the move-ordering (see AI_MinmaxAbstract.setMoveOrdering()).</p>
+ * <p>
+ * Without it only the captures and the hash move are searched first. The move-ordering must not change the result:
+ * The best score and the set of best moves have to be the same, otherwise the benchmark fails (exit code 1).
+ * For each position the nodes and the time of both searches are printed, at the end the totals and how many nodes were saved.
+ * </p>
+ * <p>Arguments: [depth] (default: 6).</p>
+ */
+public class MoveOrderingBenchmark {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r2q1rk1/pp1nbppp/2p1pn2/3p4/2PP1B2/2N1PN2/PP3PPP/R2QKB1R b KQ - 0 8",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+
+        // Warmup
+        for (String fen : FENS) {
+            search(fen, depth - 2, false);
+            search(fen, depth - 2, true);
+        }
+
+        boolean correct = true;
+        long[] totalNodes = new long[2];
+        long[] totalTime = new long[2];
+        System.out.printf("Depth %d%n", depth);
+        for (String fen : FENS) {
+            AI2_v3[] results = new AI2_v3[2];
+            for (int ordered = 0; ordered < 2; ordered++) {
+                long time = System.nanoTime();
+                results[ordered] = search(fen, depth, ordered == 1);
+                totalTime[ordered] += System.nanoTime() - time;
+                totalNodes[ordered] += results[ordered].getNodeCount();
+            }
+            boolean same = results[0].getBestScore() == results[1].getBestScore()
+                    && new HashSet<>(results[0].getBestMoves()).equals(new HashSet<>(results[1].getBestMoves()));
+            correct &= same;
+            System.out.printf("  %,14d -> %,14d nodes (%5.1f%%) %s %s%n", results[0].getNodeCount(), results[1].getNodeCount(),
+                    100.0 * results[1].getNodeCount() / results[0].getNodeCount(), same ? "ok       " : "DIFFERENT", fen);
+        }
+
+        System.out.println();
+        System.out.printf("Captures first: %,14d nodes in %8.0f ms%n", totalNodes[0], totalTime[0] / 1e6);
+        System.out.printf("Move ordering:  %,14d nodes in %8.0f ms (%.1f%% of the nodes)%n", totalNodes[1], totalTime[1] / 1e6, 100.0 * totalNodes[1] / totalNodes[0]);
+        System.out.println(correct ? "All results are the same" : "Results DIFFER");
+        if (!correct)
+            System.exit(1);
+    }
+
+    private static AI2_v3 search(String fen, int depth, boolean moveOrdering) {
+        Position position = Position.fromFen(fen);
+        AI2_v3 ai = new AI2_v3(position.getPlayerToMove(), AI2_v3.getDefaultParams(depth));
+        ai.setMoveOrdering(moveOrdering);
+        ai.decideOnMove(position.toBoard());
+        return ai;
+    }
+}
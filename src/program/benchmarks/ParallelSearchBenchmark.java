@@ -0,0 +1,87 @@
+package program.benchmarks;
+
+import program.Position;
+import program.players.ais.v2.AI2_v3;
+import program.players.ais.v2.AI_MinmaxAbstract.ParallelSearch;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Measures how the parallel search of AI_MinmaxAbstract scales from 1 up to N threads, for both ways of splitting the work (see ParallelSearch).</p>
+ * <p>
+ * AI2_v3 searches a set of middlegame-positions to a fixed depth with each number of threads.
+ * The best score and the set of best moves have to be the same as in the sequential search, otherwise the benchmark fails (exit code 1).
+ * For each number of threads the time to reach the depth, its speedup against one thread, the nodes of all threads and the nodes per second are printed.
+ * </p>
+ * <p>Arguments: [maxThreads] [depth] (default: the number of processors and depth 6).</p>
+ */
+public class ParallelSearchBenchmark {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r2q1rk1/pp1nbppp/2p1pn2/3p4/2PP1B2/2N1PN2/PP3PPP/R2QKB1R b KQ - 0 8"
+    };
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+
+        int[] expectedScores = new int[FENS.length];
+        Set<?>[] expectedMoves = new Set<?>[FENS.length];
+        boolean correct = true;
+
+        // Warmup
+        for (String fen : FENS) {
+            search(fen, depth - 1, 1, ParallelSearch.ROOT_MOVES);
+            search(fen, depth - 1, maxThreads, ParallelSearch.ROOT_MOVES);
+            search(fen, depth - 1, maxThreads, ParallelSearch.LAZY_SMP);
+        }
+
+        System.out.printf("Depth %d, %d positions, %d processors%n", depth, FENS.length, Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < FENS.length; i++) {
+            AI2_v3 ai = search(FENS[i], depth, 1, ParallelSearch.ROOT_MOVES);
+            expectedScores[i] = ai.getBestScore();
+            expectedMoves[i] = new HashSet<>(ai.getBestMoves());
+        }
+        for (ParallelSearch mode : ParallelSearch.values()) {
+            System.out.println(mode + ":");
+            double singleThreadTime = 0;
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                long nodes = 0;
+                long time = 0;
+                for (int i = 0; i < FENS.length; i++) {
+                    long start = System.nanoTime();
+                    AI2_v3 ai = search(FENS[i], depth, threads, mode);
+                    time += System.nanoTime() - start;
+                    nodes += ai.getNodeCount();
+                    if (ai.getBestScore() != expectedScores[i] || !new HashSet<>(ai.getBestMoves()).equals(expectedMoves[i])) {
+                        System.out.printf("  Result differs for %s with %d threads: %s %s instead of %s %s%n", FENS[i], threads,
+                                ai.getBestScore(), ai.getBestMoves(), expectedScores[i], expectedMoves[i]);
+                        correct = false;
+                    }
+                }
+                if (threads == 1)
+                    singleThreadTime = time;
+                System.out.printf("  %2d threads: time to depth %8.0f ms, speedup %5.2f, %,14d nodes, %,12.0f nodes/s%n",
+                        threads, time / 1e6, singleThreadTime / time, nodes, nodes / (time / 1e9));
+            }
+        }
+        System.out.println(correct ? "All results match the sequential search" : "Results DIFFER from the sequential search");
+        if (!correct)
+            System.exit(1);
+    }
+
+    private static AI2_v3 search(String fen, int depth, int threads, ParallelSearch mode) {
+        Position position = Position.fromFen(fen);
+        AI2_v3 ai = new AI2_v3(position.getPlayerToMove(), AI2_v3.getDefaultParams(depth));
+        ai.setThreads(threads, mode);
+        ai.decideOnMove(position.toBoard());
+        // Shuts down the thread-pool of the AI
+        ai.setThreads(1);
+        return ai;
+    }
+}
@@ -0,0 +1,98 @@
+package program.benchmarks;
+
+import program.Perft;
+import program.Position;
+
+/**
+ * <p>Runs perft on the standard reference-positions and compares the counts with the published ones.</p>
+ * <p>
+ * The suite covers castling (also through and out of check), en passant (also the discovered check along the rank),
+ * promotions and underpromotions, pins and double checks. Every change of the move generator has to pass it before
+ * it is measured for speed: a faster generator which counts wrong is worth nothing.
+ * </p>
+ * <p>
+ * For every position the tree is walked with ChessRules on the board-array, with the Position, and with the Position
+ * on several threads (the root-moves are split between them). The nodes per second of each are printed.
+ * The exit code is 1 if any count is wrong.
+ * </p>
+ * <p>Arguments: [threads] (default: the number of processors).</p>
+ */
+public class PerftBenchmark {
+
+    /**
+     * A position with its published count of leaf-nodes at the given depth.
+     */
+    private record Reference(String name, String fen, int depth, long nodes) {
+    }
+
+    private static final Reference[] SUITE = {
+            new Reference("start", Perft.START_FEN, 5, 4865609),
+            new Reference("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4, 4085603),
+            new Reference("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674624),
+            new Reference("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4, 422333),
+            new Reference("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2103487),
+            new Reference("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3894594),
+            new Reference("en passant discovers check", "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1", 6, 1134888),
+            new Reference("avoid illegal en passant", "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1", 6, 1015133),
+            new Reference("en passant gives check", "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", 6, 1440467),
+            new Reference("short castling gives check", "5k2/8/8/8/8/8/8/4K2R w K - 0 1", 6, 661072),
+            new Reference("long castling gives check", "3k4/8/8/8/8/8/8/R3K3 w Q - 0 1", 6, 803711),
+            new Reference("castling rights", "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1", 4, 1274206),
+            new Reference("castling prevented", "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1", 4, 1720476),
+            new Reference("promote out of check", "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1", 6, 3821001),
+            new Reference("discovered check", "8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1", 5, 1004658),
+            new Reference("promote to give check", "4k3/1P6/8/8/8/8/K7/8 w - - 0 1", 6, 217342),
+            new Reference("underpromote to check", "8/P1k5/K7/8/8/8/8/8 w - - 0 1", 6, 92683),
+            new Reference("self stalemate", "K1k5/8/P7/8/8/8/8/8 w - - 0 1", 6, 2217),
+            new Reference("stalemate and checkmate", "8/k1P5/8/1K6/8/8/8/8 w - - 0 1", 7, 567584),
+            new Reference("double check", "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1", 4, 23527)
+    };
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        // Warmup
+        for (Reference reference : SUITE) {
+            Perft.perft(Position.fromFen(reference.fen()), Math.min(3, reference.depth()));
+        }
+
+        boolean correct = true;
+        long[] totalNodes = new long[3];
+        long[] totalTime = new long[3];
+        for (Reference reference : SUITE) {
+            int depth = reference.depth();
+            long expected = reference.nodes();
+            System.out.printf("%s (depth %d, expected %,d): %s%n", reference.name(), depth, expected, reference.fen());
+            for (int variant = 0; variant < 3; variant++) {
+                Position position = Position.fromFen(reference.fen());
+                long time = System.nanoTime();
+                long nodes = switch (variant) {
+                    case 0 -> Perft.perft(position.toBoard(), position.getPlayerToMove(), depth);
+                    case 1 -> Perft.perft(position, depth);
+                    default -> Perft.perftParallel(position, depth, threads);
+                };
+                time = System.nanoTime() - time;
+                totalNodes[variant] += nodes;
+                totalTime[variant] += time;
+                correct &= nodes == expected;
+                System.out.printf("  %-24s %,14d %s %,14.0f nodes/s%n", variantName(variant, threads) + ":", nodes, nodes == expected ? "ok   " : "WRONG", nodes / (time / 1e9));
+            }
+        }
+
+        System.out.println();
+        for (int variant = 0; variant < 3; variant++) {
+            System.out.printf("%-26s %,14d nodes in %.2f s, %,14.0f nodes/s%n", variantName(variant, threads) + ":", totalNodes[variant], totalTime[variant] / 1e9, totalNodes[variant] / (totalTime[variant] / 1e9));
+        }
+        System.out.println(correct ? "All counts correct" : "Counts are WRONG");
+        if (!correct)
+            System.exit(1);
+    }
+
+    private static String variantName(int variant, int threads) {
+        return switch (variant) {
+            case 0 -> "ChessRules";
+            case 1 -> "Position";
+            default -> "Position, " + threads + " threads";
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package program.benchmarks;
+
+import program.ChessRules;
+import program.PGNWriter;
+import program.players.ais.v2.AI2_v3;
+
+/**
+ * <p>Measures how much faster AI2_v3 moves when it keeps its search context (transposition-table, history, principal variation) from one move to the next
+ * (see AI_MinmaxAbstract.setPersistentSearch()).</p>
+ * <p>
+ * Two AIs with a persistent context play whole games against each other. Every position of the games is searched by two other AIs as well,
+ * which start each search cold. The nodes and the time per move of both are compared, and it is counted how often both chose from the same best moves.
+ * </p>
+ * <p>Arguments: [depth] [games] (default: 5 and 4).</p>
+ */
+public class PersistentSearchBenchmark {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r2q1rk1/pp1nbppp/2p1pn2/3p4/2PP1B2/2N1PN2/PP3PPP/R2QKB1R b KQ - 0 8"
+    };
+
+    private static final int MAX_PLIES = 80;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        // Warmup
+        playGame(FENS[0], depth - 2, new long[4], new int[1]);
+
+        long[] totals = new long[4];
+        int[] sameResult = new int[1];
+        int moves = 0;
+        for (int game = 0; game < games; game++) {
+            moves += playGame(FENS[game % FENS.length], depth, totals, sameResult);
+        }
+        System.out.printf("Depth %d, %d games, %d moves%n", depth, games, moves);
+        System.out.printf("  cold:       %,12d nodes %8.1f ms per move%n", totals[0], totals[1] / 1e6 / moves);
+        System.out.printf("  persistent: %,12d nodes %8.1f ms per move (%.1f%% of the nodes, %.1f%% of the time)%n",
+                totals[2], totals[3] / 1e6 / moves, 100.0 * totals[2] / totals[0], 100.0 * totals[3] / totals[1]);
+        System.out.printf("  same score and best moves in %d/%d moves%n", sameResult[0], moves);
+    }
+
+    /**
+     * Plays a game with persistent AIs and searches each position with cold AIs as well.
+     *
+     * @param totals     Nodes and nanoseconds of the cold and the persistent searches are added to it.
+     * @param sameResult Counts the moves where both searches had the same score and best moves.
+     * @return Number of moves played
+     */
+    private static int playGame(String fen, int depth, long[] totals, int[] sameResult) {
+        int[] board = PGNWriter.getBoardFromFen(fen);
+        int player = fen.contains(" w ") ? ChessRules.PLAYER_WHITE : ChessRules.PLAYER_BLACK;
+        double[] params = AI2_v3.getDefaultParams(depth);
+        AI2_v3[] persistent = {new AI2_v3(ChessRules.PLAYER_WHITE, params), new AI2_v3(ChessRules.PLAYER_BLACK, params)};
+        AI2_v3[] cold = {new AI2_v3(ChessRules.PLAYER_WHITE, params), new AI2_v3(ChessRules.PLAYER_BLACK, params)};
+        cold[0].setPersistentSearch(false);
+        cold[1].setPersistentSearch(false);
+        int plies = 0;
+        while (plies < MAX_PLIES && !ChessRules.noLegalMovesLeft(board, player) && ChessRules.countPieces(board) > 2) {
+            int side = player == ChessRules.PLAYER_WHITE ? 0 : 1;
+            long start = System.nanoTime();
+            cold[side].decideOnMove(board.clone());
+            totals[1] += System.nanoTime() - start;
+            totals[0] += cold[side].getNodeCount();
+            start = System.nanoTime();
+            int move = persistent[side].decideOnMove(board.clone());
+            totals[3] += System.nanoTime() - start;
+            totals[2] += persistent[side].getNodeCount();
+            if (cold[side].getBestScore() == persistent[side].getBestScore()
+                    && cold[side].getBestMoves().containsAll(persistent[side].getBestMoves())
+                    && persistent[side].getBestMoves().containsAll(cold[side].getBestMoves())) {
+                sameResult[0]++;
+            }
+            ChessRules.makeMove(board, move);
+            player ^= ChessRules.MASK_PLAYER;
+            plies++;
+        }
+        return plies;
+    }
+}
@@ -0,0 +1,116 @@
+package program.benchmarks;
+
+import program.ChessRules;
+import program.Position;
+import program.players.ais.v2.AI2_v3;
+import program.players.ais.v2.AI_MinmaxAbstract;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Compares AI2_v3 with the quiescence-search (see AI_MinmaxAbstract.setQuiescenceDepth()) to AI2_v3 without it, searching one layer deeper.</p>
+ * <p>
+ * First the nodes and the time both need for a set of middlegame-positions are printed.
+ * Then they play a match against each other: Each opening is played twice, with both colors. A game is a draw after a threefold repetition,
+ * 50 moves without capture or pawn move, or if nobody is ahead by at least 3 pawns of material after 240 plies.
+ * </p>
+ * <p>Arguments: [depth] [games] (default: depth 4 against depth 5 without the quiescence-search, 12 games).</p>
+ */
+public class QuiescenceBenchmark {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r2q1rk1/pp1nbppp/2p1pn2/3p4/2PP1B2/2N1PN2/PP3PPP/R2QKB1R b KQ - 0 8",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    };
+
+    private static final String[] OPENINGS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w KQkq - 1 5",
+            "rnbqkbnr/ppp1pppp/8/3p4/2PP4/8/PP2PPPP/RNBQKBNR b KQkq c3 0 2",
+            "rnbqkb1r/pppp1ppp/5n2/4p3/2P5/2N5/PP1PPPPP/R1BQKBNR w KQkq - 2 3",
+            "r1bqkbnr/pp1ppppp/2n5/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3"
+    };
+
+    private static final int MAX_PLIES = 240;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+
+        for (int d = depth; d <= depth + 1; d++) {
+            for (int quiescenceDepth : new int[]{0, AI_MinmaxAbstract.DEFAULT_QUIESCENCE_DEPTH}) {
+                long nodes = 0;
+                long time = System.nanoTime();
+                for (String fen : FENS) {
+                    Position position = Position.fromFen(fen);
+                    AI2_v3 ai = createAI(position.getPlayerToMove(), d, quiescenceDepth);
+                    ai.decideOnMove(position.toBoard());
+                    nodes += ai.getNodeCount();
+                }
+                time = System.nanoTime() - time;
+                System.out.printf("Depth %d, quiescence %d: %,12d nodes in %6.0f ms%n", d, quiescenceDepth, nodes, time / 1e6);
+            }
+        }
+
+        // Player A: depth with quiescence-search, player B: depth + 1 without
+        int winsA = 0;
+        int winsB = 0;
+        int draws = 0;
+        long[] time = new long[2];
+        int[] moves = new int[2];
+        System.out.printf("%nMatch: A (depth %d, quiescence %d) against B (depth %d, no quiescence)%n", depth, AI_MinmaxAbstract.DEFAULT_QUIESCENCE_DEPTH, depth + 1);
+        for (int game = 0; game < games; game++) {
+            String fen = OPENINGS[(game / 2) % OPENINGS.length];
+            boolean aIsWhite = game % 2 == 0;
+            Position position = Position.fromFen(fen);
+            Map<Long, Integer> repetitions = new HashMap<>();
+            int result = 0;
+            int ply = 0;
+            for (; ply < MAX_PLIES; ply++) {
+                int player = position.getPlayerToMove();
+                if (position.noLegalMovesLeft(player)) {
+                    result = !position.playerInCheck(player) ? 0 : player == ChessRules.PLAYER_WHITE ? -1 : 1;
+                    break;
+                }
+                if (position.getHalfMoveClock() >= 100 || repetitions.merge(position.getKey(), 1, Integer::sum) >= 3) {
+                    break;
+                }
+                int a = (player == ChessRules.PLAYER_WHITE) == aIsWhite ? 0 : 1;
+                AI2_v3 ai = a == 0 ? createAI(player, depth, AI_MinmaxAbstract.DEFAULT_QUIESCENCE_DEPTH) : createAI(player, depth + 1, 0);
+                long start = System.nanoTime();
+                int move = ai.decideOnMove(position.toBoard());
+                time[a] += System.nanoTime() - start;
+                moves[a]++;
+                position.makeMove(move);
+            }
+            if (ply == MAX_PLIES) {
+                int material = position.getScoreByPieceValue();
+                result = material >= 300 ? 1 : material <= -300 ? -1 : 0;
+            }
+            int resultA = aIsWhite ? result : -result;
+            if (resultA > 0) {
+                winsA++;
+            } else if (resultA < 0) {
+                winsB++;
+            } else {
+                draws++;
+            }
+            System.out.printf("  Game %2d, A plays %s: %s after %d plies%n", game + 1, aIsWhite ? "white" : "black",
+                    resultA > 0 ? "A wins" : resultA < 0 ? "B wins" : "draw", ply);
+        }
+        System.out.printf("A: +%d -%d =%d, %.1f ms per move. B: %.1f ms per move%n", winsA, winsB, draws,
+                time[0] / 1e6 / Math.max(1, moves[0]), time[1] / 1e6 / Math.max(1, moves[1]));
+    }
+
+    private static AI2_v3 createAI(int player, int depth, int quiescenceDepth) {
+        AI2_v3 ai = new AI2_v3(player, AI2_v3.getDefaultParams(depth));
+        ai.setQuiescenceDepth(quiescenceDepth);
+        return ai;
+    }
+}
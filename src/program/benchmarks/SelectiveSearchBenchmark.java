@@ -0,0 +1,85 @@
+package program.benchmarks;
+
+import program.Position;
+import program.players.ais.v2.AI2_v3;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * <p>Measures how many nodes each technique of the selective search saves: null-move pruning, late move reductions and futility pruning with razoring
+ * (see AI_MinmaxAbstract.setNullMovePruning(), setLateMoveReductions() and setFutilityPruning()).</p>
+ * <p>
+ * AI2_v3 searches a set of positions to a fixed depth with each technique alone and with all of them. The nodes and the time are compared to the full-width search.
+ * Since the selective search can change the result, it is also counted in how many positions the chosen move is still one of the best moves of the full-width search,
+ * and how far the best score moved on average.
+ * </p>
+ * <p>Arguments: [depth] (default: 6).</p>
+ */
+public class SelectiveSearchBenchmark {
+
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r2q1rk1/pp1nbppp/2p1pn2/3p4/2PP1B2/2N1PN2/PP3PPP/R2QKB1R b KQ - 0 8",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4",
+            "2rq1rk1/pp1bppbp/3p1np1/4n3/3NP3/1BN1BP2/PPPQ2PP/2KR3R w - - 0 12",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "8/8/1p1k4/1P6/2PK4/8/8/8 w - - 0 1",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"
+    };
+
+    private static final String[] CONFIGURATIONS = {"full width", "null move", "late move reductions", "futility/razoring", "all"};
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+
+        // Warmup
+        for (String fen : FENS) {
+            search(fen, depth - 2, 0);
+            search(fen, depth - 2, 4);
+        }
+
+        int[] fullWidthScores = new int[FENS.length];
+        List<?>[] fullWidthMoves = new List<?>[FENS.length];
+        long fullWidthNodes = 0;
+        System.out.printf("Depth %d, %d positions%n", depth, FENS.length);
+        for (int configuration = 0; configuration < CONFIGURATIONS.length; configuration++) {
+            long nodes = 0;
+            long time = 0;
+            int sameMove = 0;
+            long scoreDifference = 0;
+            for (int i = 0; i < FENS.length; i++) {
+                long start = System.nanoTime();
+                AI2_v3 ai = search(FENS[i], depth, configuration);
+                time += System.nanoTime() - start;
+                nodes += ai.getNodeCount();
+                if (configuration == 0) {
+                    fullWidthScores[i] = ai.getBestScore();
+                    fullWidthMoves[i] = ai.getBestMoves();
+                }
+                if (new HashSet<>(fullWidthMoves[i]).containsAll(ai.getBestMoves())) {
+                    sameMove++;
+                }
+                scoreDifference += Math.abs(ai.getBestScore() - fullWidthScores[i]);
+            }
+            if (configuration == 0) {
+                fullWidthNodes = nodes;
+            }
+            System.out.printf("  %-20s %,12d nodes (%5.1f%%) %8.0f ms, best move kept in %2d/%d positions, score moved by %.1f centipawns on average%n",
+                    CONFIGURATIONS[configuration] + ":", nodes, 100.0 * nodes / fullWidthNodes, time / 1e6, sameMove, FENS.length, (double) scoreDifference / FENS.length);
+        }
+    }
+
+    private static AI2_v3 search(String fen, int depth, int configuration) {
+        Position position = Position.fromFen(fen);
+        AI2_v3 ai = new AI2_v3(position.getPlayerToMove(), AI2_v3.getDefaultParams(depth));
+        ai.setNullMovePruning(configuration == 1 || configuration == 4);
+        ai.setLateMoveReductions(configuration == 2 || configuration == 4);
+        ai.setFutilityPruning(configuration == 3 || configuration == 4);
+        ai.decideOnMove(position.toBoard());
+        return ai;
+    }
+}
@@ -0,0 +1,396 @@
+package program.dataset_management;
+
+import program.ChessRules;
+import program.PGNWriter;
+import program.Position;
+import program.players.ais.v2.OpeningBook;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>Builds the binary OpeningBook from a PGN-database, like the one PlayPGN_SaveMoves reads (Database9mil.pgn).</p>
+ * <p>
+ * The first plies of every game are replayed, and every position is counted together with the move which was played in it.
+ * The database is streamed: It is read line by line and never held in memory. The counts are collected in a hash-table of a fixed size.
+ * When it is full, its entries are written sorted into a temporary run-file and the table starts empty again.
+ * At the end all runs are merged (the counts of the same position and move are added up), and the moves played in fewer than minGames games are left out.
+ * So the memory needed does not grow with the size of the database.
+ * </p>
+ * <p>Arguments: [pgn-file] [book-file] [plies] [min-games] (default: the database of PlayPGN_SaveMoves, OpeningBook.DEFAULT_PATH, 16 and 3).</p>
+ */
+public class OpeningBookBuilder {
+
+    public static final int DEFAULT_PLIES = 16;
+    public static final int DEFAULT_MIN_GAMES = 3;
+
+    /**
+     * Entries of the hash-table before it is written into a run. 16 bytes each, with a load of at most 3/4.
+     */
+    public static final int DEFAULT_RUN_SIZE = 1 << 22;
+
+    private final int plies;
+    private final int minGames;
+    private final int runSize;
+
+    // Hash-table of the current run: Key of the position, move and how often it was played. A count of 0 marks an empty slot.
+    private final long[] keys;
+    private final int[] moves;
+    private final int[] counts;
+    private int used;
+
+    // State of the movetext-parser, which goes on over the lines
+    private boolean inComment;
+    private int variations;
+
+    private final List<File> runs = new ArrayList<>();
+    private int games;
+    private int skippedGames;
+
+    /**
+     * @param plies    Number of plies (half-moves) of each game which go into the book
+     * @param minGames Moves which were played less often in a position are left out
+     * @param runSize  Number of different positions and moves kept in memory before they are written into a run-file
+     */
+    public OpeningBookBuilder(int plies, int minGames, int runSize) {
+        if (plies < 1 || minGames < 1 || runSize < 1) {
+            throw new IllegalArgumentException("Plies, games and run-size must be greater than 0");
+        }
+        this.plies = plies;
+        this.minGames = minGames;
+        this.runSize = runSize;
+        int capacity = Integer.highestOneBit(runSize * 4 / 3 + 1) << 1;
+        keys = new long[capacity];
+        moves = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path pgn = Path.of(args.length > 0 ? args[0] : "src/data/dataset/Database9mil.pgn");
+        Path book = Path.of(args.length > 1 ? args[1] : OpeningBook.DEFAULT_PATH);
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PLIES;
+        int minGames = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MIN_GAMES;
+        long time = System.currentTimeMillis();
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, minGames, DEFAULT_RUN_SIZE);
+        try (BufferedReader reader = Files.newBufferedReader(pgn)) {
+            builder.importGames(reader);
+        }
+        long entries = builder.writeBook(book);
+        System.out.printf("%,d games (%,d skipped), %,d entries written to %s in %.1f s%n",
+                builder.getGames(), builder.getSkippedGames(), entries, book, (System.currentTimeMillis() - time) / 1000.0);
+    }
+
+    /**
+     * @return Number of games read so far
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * @return Number of games which did not start from the normal starting position (SetUp/FEN-tag) and were left out
+     */
+    public int getSkippedGames() {
+        return skippedGames;
+    }
+
+    /**
+     * Reads all games of a PGN-database. Can be called several times, e.g. for several files.
+     *
+     * @param reader The PGN-text
+     */
+    public void importGames(BufferedReader reader) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        boolean customStart = false;
+        inComment = false;
+        variations = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!inComment && line.startsWith("[")) {
+                // The tags of the next game start: the movetext of the last one is complete
+                if (!tokens.isEmpty()) {
+                    importGame(tokens, customStart);
+                    tokens.clear();
+                    customStart = false;
+                    variations = 0;
+                }
+                customStart |= line.startsWith("[FEN ") || line.startsWith("[SetUp ");
+                continue;
+            }
+            tokenize(line, tokens);
+        }
+        if (!tokens.isEmpty()) {
+            importGame(tokens, customStart);
+        }
+    }
+
+    /**
+     * Splits a line of movetext into moves. Move-numbers, results, NAGs ($1), comments ({...} and ;...) and variations (...) are left out.
+     * Comments in braces and variations may go on over several lines.
+     */
+    private void tokenize(String line, List<String> tokens) {
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= line.length(); i++) {
+            char c = i < line.length() ? line.charAt(i) : ' ';
+            if (inComment) {
+                inComment = c != '}';
+                continue;
+            }
+            if (c == '{' || c == ';' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                if (!token.isEmpty() && variations == 0) {
+                    addToken(token.toString(), tokens);
+                }
+                token.setLength(0);
+                if (c == '{') {
+                    inComment = true;
+                } else if (c == ';') {
+                    break;
+                } else if (c == '(') {
+                    variations++;
+                } else if (c == ')') {
+                    variations = Math.max(variations - 1, 0);
+                }
+            } else {
+                token.append(c);
+            }
+        }
+    }
+
+    private static void addToken(String token, List<String> tokens) {
+        // "12." or "12...e5" or "12.e4"
+        int dot = token.lastIndexOf('.');
+        if (dot >= 0) {
+            token = token.substring(dot + 1);
+        }
+        if (token.isEmpty() || token.startsWith("$") || token.equals("*") || token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2")) {
+            return;
+        }
+        tokens.add(token);
+    }
+
+    /**
+     * Replays the first plies of a game and counts each position with the move played in it. The game is cut off at the first move which cannot be read.
+     */
+    private void importGame(List<String> sanMoves, boolean customStart) throws IOException {
+        games++;
+        if (customStart) {
+            skippedGames++;
+            return;
+        }
+        int[] board = PGNWriter.getBoardFromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        int player = ChessRules.PLAYER_WHITE;
+        for (int ply = 0; ply < plies && ply < sanMoves.size(); ply++) {
+            int move;
+            try {
+                move = PGNWriter.getMoveFromSAN(board, player, sanMoves.get(ply));
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            count(new Position(board, player).getKey(), move);
+            ChessRules.makeMove(board, move);
+            player ^= ChessRules.MASK_PLAYER;
+        }
+    }
+
+    private void count(long key, int move) throws IOException {
+        int mask = keys.length - 1;
+        int index = (int) (key ^ (key >>> 32) ^ (move * 0x9E3779B9)) & mask;
+        while (counts[index] != 0) {
+            if (keys[index] == key && moves[index] == move) {
+                counts[index]++;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        moves[index] = move;
+        counts[index] = 1;
+        used++;
+        if (used >= runSize) {
+            writeRun();
+        }
+    }
+
+    /**
+     * Writes the entries of the hash-table sorted into a temporary run-file and empties the table.
+     */
+    private void writeRun() throws IOException {
+        // Move all entries to the front, then sort them there
+        int size = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                keys[size] = keys[i];
+                moves[size] = moves[i];
+                counts[size] = counts[i];
+                size++;
+            }
+        }
+        sort(0, size - 1);
+        File run = File.createTempFile("openingBook", ".run");
+        run.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(keys[i]);
+                out.writeInt(moves[i]);
+                out.writeInt(counts[i]);
+            }
+        }
+        runs.add(run);
+        Arrays.fill(counts, 0);
+        used = 0;
+    }
+
+    /**
+     * Quicksort of the entries low to high (inclusive) by key and move.
+     */
+    private void sort(int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long pivotKey = keys[middle];
+            int pivotMove = moves[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(keys[i], moves[i], pivotKey, pivotMove) < 0) i++;
+                while (compare(keys[j], moves[j], pivotKey, pivotMove) > 0) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // Recursion into the smaller part only
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+    }
+
+    private static int compare(long key1, int move1, long key2, int move2) {
+        int result = Long.compare(key1, key2);
+        return result != 0 ? result : Integer.compare(move1, move2);
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+        int count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+    }
+
+    /**
+     * Merges all runs into the book-file. The counts of the same position and move are added up, moves played less than minGames times are left out.
+     *
+     * @param book Path of the book-file
+     * @return Number of entries written
+     */
+    public long writeBook(Path book) throws IOException {
+        if (used > 0 || runs.isEmpty()) {
+            writeRun();
+        }
+        if (book.getParent() != null) {
+            Files.createDirectories(book.getParent());
+        }
+        PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> compare(a.key, a.move, b.key, b.move));
+        for (File run : runs) {
+            RunReader reader = new RunReader(run);
+            if (reader.next()) {
+                queue.add(reader);
+            } else {
+                reader.close();
+            }
+        }
+        long entries = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(book)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeLong(0);
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                long key = reader.key;
+                int move = reader.move;
+                long count = reader.count;
+                advance(reader, queue);
+                while (!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move) {
+                    RunReader same = queue.poll();
+                    count += same.count;
+                    advance(same, queue);
+                }
+                if (count >= minGames) {
+                    out.writeLong(key);
+                    out.writeInt(move);
+                    out.writeInt((int) Math.min(count, Integer.MAX_VALUE));
+                    entries++;
+                }
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+            for (File run : runs) {
+                run.delete();
+            }
+            runs.clear();
+        }
+        // The number of entries is known only now
+        try (RandomAccessFile file = new RandomAccessFile(book.toFile(), "rw")) {
+            file.seek(8);
+            file.writeLong(entries);
+        }
+        return entries;
+    }
+
+    private static void advance(RunReader reader, PriorityQueue<RunReader> queue) throws IOException {
+        if (reader.next()) {
+            queue.add(reader);
+        } else {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the entries of a run-file one after another.
+     */
+    private static class RunReader implements Closeable {
+        private final DataInputStream in;
+        private long key;
+        private int move;
+        private int count;
+
+        private RunReader(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+        }
+
+        /**
+         * @return False if the run has no more entries.
+         */
+        private boolean next() throws IOException {
+            try {
+                key = in.readLong();
+                move = in.readInt();
+                count = in.readInt();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
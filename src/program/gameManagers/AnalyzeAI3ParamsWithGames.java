@@ -4,7 +4,10 @@ import program.ChessRules;
 import program.Game;
 import program.guis.NoGui;
 import program.players.ais.v2.AI2_v3;
+import program.players.ais.v2.SearchStatistics;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -92,9 +95,16 @@ public class AnalyzeAI3ParamsWithGames {
             System.out.println("Skipping one param set...");
         }
         int directoryCount = 1 + skip;
+        // Search statistics of the default and of the changed params, for each param set
+        List<String> paramSets = new ArrayList<>();
+        List<SearchStatistics[]> statistics = new ArrayList<>();
         try (ExecutorService service = Executors.newFixedThreadPool(10)) {
             do {
                 System.out.print("Changed Params: ");
+                SearchStatistics defaultStatistics = new SearchStatistics();
+                SearchStatistics otherStatistics = new SearchStatistics();
+                paramSets.add(iteratingParams.toString());
+                statistics.add(new SearchStatistics[]{defaultStatistics, otherStatistics});
                 for (int i = 0; i < samplesPerIteration; i++) {
                     double[] otherParams = iteratingParams.getParams();
 
@@ -102,7 +112,7 @@ public class AnalyzeAI3ParamsWithGames {
                     final int i1 = i + 1;
                     service.submit(() -> {
                         try {
-                            new Game(new AI2_v3(ChessRules.PLAYER_WHITE, defaultParams), new AI2_v3(ChessRules.PLAYER_BLACK, otherParams), new NoGui(), directory + dirCount1 + "/iterBlack/", "Game" + i1 + ".pgn");
+                            new Game(createAI(ChessRules.PLAYER_WHITE, defaultParams, defaultStatistics), createAI(ChessRules.PLAYER_BLACK, otherParams, otherStatistics), new NoGui(), directory + dirCount1 + "/iterBlack/", "Game" + i1 + ".pgn");
                             System.out.print("|");
                         } catch (IllegalStateException e) {
                             System.out.print("_");
@@ -113,7 +123,7 @@ public class AnalyzeAI3ParamsWithGames {
                     final int i2 = i + 1;
                     service.submit(() -> {
                         try {
-                            new Game(new AI2_v3(ChessRules.PLAYER_WHITE, otherParams), new AI2_v3(ChessRules.PLAYER_BLACK, defaultParams), new NoGui(), directory + dirCount2 + "/iterWhite/", "Game" + i2 + ".pgn");
+                            new Game(createAI(ChessRules.PLAYER_WHITE, otherParams, otherStatistics), createAI(ChessRules.PLAYER_BLACK, defaultParams, defaultStatistics), new NoGui(), directory + dirCount2 + "/iterWhite/", "Game" + i2 + ".pgn");
                             System.out.print("|");
                         } catch (IllegalStateException e) {
                             System.out.print("_");
@@ -126,8 +136,22 @@ public class AnalyzeAI3ParamsWithGames {
 
             } while (!iteratingParams.doneIterating());
         }
+        for (int i = 0; i < paramSets.size(); i++) {
+            System.out.println("Params " + paramSets.get(i) + ":");
+            System.out.println("  Default: " + statistics.get(i)[0]);
+            System.out.println("  Changed: " + statistics.get(i)[1]);
+        }
         System.out.println("\n----------------------------------------\n");
     }
 
+    /**
+     * Creates an AI2_v3 which adds the statistics of all its searches to 'statistics'.
+     */
+    private static AI2_v3 createAI(int player, double[] params, SearchStatistics statistics) {
+        AI2_v3 ai = new AI2_v3(player, params);
+        ai.addSearchListener(statistics::add);
+        return ai;
+    }
+
 
 }
@@ -56,9 +56,9 @@ public class TerminalUI extends Gui {
             System.out.println("\n           " + "H" + s + "G" + s + "F" + s + "E" + s + "D" + s + "C" + s + "B" + s + "A");
         }
 
-        float score = ChessRules.getScoreByPieceCost(board);
+        int score = ChessRules.getScoreByPieceValue(board);
         System.out.println("\nMove: " + PGNWriter.getSAN(board, lastMove));
-        System.out.println("Score: " + score);
+        System.out.println("Score: " + score / 100f);
     }
 
     /**
@@ -33,6 +33,21 @@ public abstract class Player {
      */
     public abstract int decideOnMove(int[] board);
 
+    /**
+     * <p>Called by the Game-Loop after the opponent has played a move, so that the player can use the time of the opponent (e.g. an AI which ponders).</p>
+     * <p>Does nothing by default.</p>
+     * @param board The board after the move. It belongs to the game and must not be changed or kept.
+     * @param move The move the opponent has played.
+     */
+    public void opponentMoved(int[] board, int move) {
+    }
+
+    /**
+     * Called by the Game-Loop when the game is over. Does nothing by default.
+     */
+    public void gameOver() {
+    }
+
     public String getPgnName() {
         return pgnName;
     }
@@ -40,14 +40,14 @@ public class AI2_AlphaBeta extends Player {
 
         Random r = new Random();
 
-        float bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
+        int bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
         List<Integer> bestMoves = new ArrayList<>();
         int[] backUpBoard;
 
         for (int move : moves) {
             backUpBoard = board.clone();
             ChessRules.makeMove(backUpBoard, move);
-            float score = minimax(backUpBoard, (player == ChessRules.PLAYER_WHITE) ? bestScore : -1000000000, (player == ChessRules.PLAYER_WHITE) ? 1000000000 : bestScore, SEARCH_DEPTH, player ^ ChessRules.MASK_PLAYER);
+            int score = minimax(backUpBoard, (player == ChessRules.PLAYER_WHITE) ? bestScore : -1000000000, (player == ChessRules.PLAYER_WHITE) ? 1000000000 : bestScore, SEARCH_DEPTH, player ^ ChessRules.MASK_PLAYER);
             if (bestScore == score && r.nextInt(7) == 0) {
                 bestMoves.add(move);
             } else if (player == ChessRules.PLAYER_WHITE && score > bestScore || player == ChessRules.PLAYER_BLACK && score < bestScore) {
@@ -73,7 +73,7 @@ public class AI2_AlphaBeta extends Player {
      * @param player The player which takes the current turn. (Alternates every layer)
      * @return The Score which the algorithm assigns to this board.
      */
-    public float minimax(int[] board, float a, float b, int depth, int player) {
+    public int minimax(int[] board, int a, int b, int depth, int player) {
         // White is max / Black is min
 
 
@@ -81,7 +81,7 @@ public class AI2_AlphaBeta extends Player {
             return analyzeBoard(board);
         }
 
-        float bestScore = (player == ChessRules.PLAYER_WHITE ? -10000000 - depth : 10000000 + depth);
+        int bestScore = (player == ChessRules.PLAYER_WHITE ? -10000000 - depth : 10000000 + depth);
         List<Integer> moves = ChessRules.getLegalMovesSorted(board, player);
 
         int[] backUpBoard;
@@ -89,7 +89,7 @@ public class AI2_AlphaBeta extends Player {
         for (int move : moves) {
             backUpBoard = board.clone();
             ChessRules.makeMove(backUpBoard, move);
-            float score = minimax(backUpBoard, a, b, depth - 1, player ^ ChessRules.MASK_PLAYER);
+            int score = minimax(backUpBoard, a, b, depth - 1, player ^ ChessRules.MASK_PLAYER);
             if (player == ChessRules.PLAYER_WHITE) {
                 bestScore = Math.max(bestScore, score);
                 a = Math.max(bestScore, a);
@@ -119,10 +119,10 @@ public class AI2_AlphaBeta extends Player {
      * @param board the board which needs to be analyzed.
      * @return A score for the board.
      */
-    public static float analyzeBoard(int[] board) {
-        float score = 0;
+    public static int analyzeBoard(int[] board) {
+        int score = 0;
         for (int cell : board) {
-            score += ChessRules.getCost(cell);
+            score += ChessRules.getPieceValue(cell);
         }
         return score;
     }
@@ -22,13 +22,19 @@ public class AI3_PosAna extends Player {
     private final float[] params;
     private final int SEARCH_DEPTH = 5;
 
-    private final float WEIGHT_POS_PAWNS = 1f;
+    private final int WEIGHT_POS_PAWNS = 1;
     private final int BIAS_PAWN_POS_PIECE_COUNT = 16;
+    /**
+     * Centipawns for each field a piece can go to.
+     */
     private final float WEIGHT_POS_KNIGHTS = 1.3f;
     private final float WEIGHT_POS_BISHOPS = .8f;
     private final float WEIGHT_POS_ROOKS = 1f;
     private final float WEIGHT_POS_QUEENS = 1.1f;
-    private final float CASTLING_BONUS = .4f;
+    /**
+     * Bonus for castling in centipawns.
+     */
+    private final int CASTLING_BONUS = 40;
 
     /**
      * Constructor which initializes the player in the Superclass.
@@ -59,14 +65,14 @@ public class AI3_PosAna extends Player {
 
         Random r = new Random();
 
-        float bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
+        int bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
         List<Integer> bestMoves = new ArrayList<>();
         int[] backUpBoard;
 
         for (int move : moves) {
             backUpBoard = board.clone();
             ChessRules.makeMove(backUpBoard, move);
-            float score = minimax(backUpBoard, (player == ChessRules.PLAYER_WHITE) ? bestScore : -1000000000, (player == ChessRules.PLAYER_WHITE) ? 1000000000 : bestScore, SEARCH_DEPTH - 1, player ^ ChessRules.MASK_PLAYER);
+            int score = minimax(backUpBoard, (player == ChessRules.PLAYER_WHITE) ? bestScore : -1000000000, (player == ChessRules.PLAYER_WHITE) ? 1000000000 : bestScore, SEARCH_DEPTH - 1, player ^ ChessRules.MASK_PLAYER);
             if (player == ChessRules.PLAYER_WHITE) {
                 if ((board[ChessRules.getMoveOldPos(move)] & ChessRules.MASK_PIECE) == ChessRules.PIECE_KING && (board[ChessRules.getMoveOldPos(move)] & ChessRules.MASK_HAS_MOVED) == 0) {
                     score += ChessRules.isCastlingMove(board, move) ? CASTLING_BONUS : -CASTLING_BONUS;
@@ -102,7 +108,7 @@ public class AI3_PosAna extends Player {
      * @param player The player which takes the current turn. (Alternates every layer)
      * @return The Score which the algorithm assigns to this board.
      */
-    public float minimax(int[] board, float a, float b, int depth, int player) {
+    public int minimax(int[] board, int a, int b, int depth, int player) {
         // White is max / Black is min
 
 
@@ -110,7 +116,7 @@ public class AI3_PosAna extends Player {
             return analyzeBoard(board);
         }
 
-        float bestScore = (player == ChessRules.PLAYER_WHITE ? -10000000 - depth : 10000000 + depth);
+        int bestScore = (player == ChessRules.PLAYER_WHITE ? -10000000 - depth : 10000000 + depth);
         List<Integer> moves = ChessRules.getLegalMovesSorted(board, player);
 
         int[] backUpBoard;
@@ -118,7 +124,7 @@ public class AI3_PosAna extends Player {
         for (int move : moves) {
             backUpBoard = board.clone();
             ChessRules.makeMove(backUpBoard, move);
-            float score = minimax(backUpBoard, a, b, depth - 1, player ^ ChessRules.MASK_PLAYER);
+            int score = minimax(backUpBoard, a, b, depth - 1, player ^ ChessRules.MASK_PLAYER);
             if (player == ChessRules.PLAYER_WHITE) {
                 if ((board[ChessRules.getMoveOldPos(move)] & ChessRules.MASK_PIECE) == ChessRules.PIECE_KING && (board[ChessRules.getMoveOldPos(move)] & ChessRules.MASK_HAS_MOVED) == 0) {
                     score += ChessRules.isCastlingMove(board, move) ? CASTLING_BONUS : -CASTLING_BONUS;
@@ -157,11 +163,11 @@ public class AI3_PosAna extends Player {
         if (moves.size() == 1)
             return moves.get(0);
         List<Integer> bestMoves = new ArrayList<>();
-        float bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
+        int bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
         for (int move : moves) {
             int[] boardCopy = board.clone();
             ChessRules.makeMove(boardCopy, move);
-            float score = analyzeBoard(boardCopy);
+            int score = analyzeBoard(boardCopy);
             if (score == bestScore) {
                 bestMoves.add(move);
             } else if (player == ChessRules.PLAYER_WHITE && score > bestScore || player == ChessRules.PLAYER_BLACK && score < bestScore) {
@@ -180,8 +186,8 @@ public class AI3_PosAna extends Player {
      * @param board the board which needs to be analyzed.
      * @return A score for the board.
      */
-    public float analyzeBoard(int[] board) {
-        float score = 0;
+    public int analyzeBoard(int[] board) {
+        int score = 0;
         score += getScoreModifier_PieceCosts(board);
         score += getScoreModifier_PawnPos(board);
         score += getScoreModifier_KnightPos(board);
@@ -191,10 +197,10 @@ public class AI3_PosAna extends Player {
         return score;
     }
 
-    private float getScoreModifier_PieceCosts(int[] board) {
-        float score = 0;
+    private int getScoreModifier_PieceCosts(int[] board) {
+        int score = 0;
         for (int cell : board) {
-            score += ChessRules.getCost(cell);
+            score += ChessRules.getPieceValue(cell);
         }
         return score;
     }
@@ -208,8 +214,8 @@ public class AI3_PosAna extends Player {
      * @param board An int-array which stores all the piece-information. Item 0 is in the top left corner, Item 7 in the top right, Item 63 in the bottom right.
      * @return The Score-Modifier
      */
-    private float getScoreModifier_PawnPos(int[] board) {
-        float scoreModifier = 0;
+    private int getScoreModifier_PawnPos(int[] board) {
+        int scoreModifier = 0;
         if (ChessRules.countPieces(board) <= BIAS_PAWN_POS_PIECE_COUNT) {
             for (int i = 0; i < board.length; i++) {
                 if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && (board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN) {
@@ -217,14 +223,14 @@ public class AI3_PosAna extends Player {
                     // The scoreModifier needs to be updated here based on the Position of the pawn
                     scoreModifier += ((player == ChessRules.PLAYER_WHITE) ? 1 : -1)
                             * switch (player == ChessRules.PLAYER_WHITE ? ((int) Math.floor(i / 8f)) : 8 - ((int) Math.floor(i / 8f))) {
-                        case 0 -> 1;
-                        case 1 -> .4f;
-                        case 2 -> .2f;
-                        case 3 -> .1f;
-                        case 4 -> .03f;
-                        case 5 -> -.01f;
-                        case 6 -> -.03f;
-                        case 7 -> -.04f;
+                        case 0 -> 100;
+                        case 1 -> 40;
+                        case 2 -> 20;
+                        case 3 -> 10;
+                        case 4 -> 3;
+                        case 5 -> -1;
+                        case 6 -> -3;
+                        case 7 -> -4;
                         default -> 0;
                     };
                 }
@@ -233,11 +239,11 @@ public class AI3_PosAna extends Player {
         return scoreModifier * WEIGHT_POS_PAWNS;
     }
 
-    private float getScoreModifier_KnightPos(int[] board) {
-        float modifier = 0;
+    private int getScoreModifier_KnightPos(int[] board) {
+        int modifier = 0;
         for (int i = 0; i < board.length; i++) {
             if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_KNIGHT)) {
-                float positionModifier = ChessRules.getKnightMoves(board, i).size() / 100f;
+                int positionModifier = ChessRules.getKnightMoves(board, i).size();
                 if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
                     modifier += positionModifier;
                 } else {
@@ -245,14 +251,14 @@ public class AI3_PosAna extends Player {
                 }
             }
         }
-        return modifier * WEIGHT_POS_KNIGHTS;
+        return Math.round(modifier * WEIGHT_POS_KNIGHTS);
     }
 
-    private float getScoreModifier_BishopPos(int[] board) {
-        float modifier = 0;
+    private int getScoreModifier_BishopPos(int[] board) {
+        int modifier = 0;
         for (int i = 0; i < board.length; i++) {
             if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_BISHOP)) {
-                float positionModifier = ChessRules.getBishopMoves(board, i).size() / 100f;
+                int positionModifier = ChessRules.getBishopMoves(board, i).size();
                 if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
                     modifier += positionModifier;
                 } else {
@@ -260,14 +266,14 @@ public class AI3_PosAna extends Player {
                 }
             }
         }
-        return modifier * WEIGHT_POS_BISHOPS;
+        return Math.round(modifier * WEIGHT_POS_BISHOPS);
     }
 
-    private float getScoreModifier_RookPos(int[] board) {
-        float modifier = 0;
+    private int getScoreModifier_RookPos(int[] board) {
+        int modifier = 0;
         for (int i = 0; i < board.length; i++) {
             if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_ROOK)) {
-                float positionModifier = ChessRules.getRookMoves(board, i).size() / 100f;
+                int positionModifier = ChessRules.getRookMoves(board, i).size();
                 if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
                     modifier += positionModifier;
                 } else {
@@ -275,14 +281,14 @@ public class AI3_PosAna extends Player {
                 }
             }
         }
-        return modifier * WEIGHT_POS_ROOKS;
+        return Math.round(modifier * WEIGHT_POS_ROOKS);
     }
 
-    private float getScoreModifier_QueenPos(int[] board) {
-        float modifier = 0;
+    private int getScoreModifier_QueenPos(int[] board) {
+        int modifier = 0;
         for (int i = 0; i < board.length; i++) {
             if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_QUEEN)) {
-                float positionModifier = ChessRules.getQueenMoves(board, i).size() / 100f;
+                int positionModifier = ChessRules.getQueenMoves(board, i).size();
                 if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
                     modifier += positionModifier;
                 } else {
@@ -290,7 +296,7 @@ public class AI3_PosAna extends Player {
                 }
             }
         }
-        return modifier * WEIGHT_POS_QUEENS;
+        return Math.round(modifier * WEIGHT_POS_QUEENS);
     }
 
 
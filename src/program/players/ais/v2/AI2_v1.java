@@ -14,7 +14,7 @@ public class AI2_v1 extends AI_MinmaxAbstract {
     }
 
     @Override
-    public double analyzeBoard(int[] board) {
+    public int analyzeBoard(int[] board) {
         return 0;
     }
 }
@@ -1,8 +1,7 @@
 package program.players.ais.v2;
 
 import program.ChessRules;
-
-import java.util.Arrays;
+import program.Position;
 
 /**
  * Generation 2 of Chess AIs<br>
@@ -18,10 +17,15 @@ public class AI2_v2 extends AI_MinmaxAbstract {
     }
 
     @Override
-    public double analyzeBoard(int[] board) {
-        return Arrays.stream(board)
-                .boxed()
-                .map(ChessRules::getCost)
-                .reduce(0f, Float::sum);
+    public int analyzeBoard(int[] board) {
+        return ChessRules.getScoreByPieceValue(board);
+    }
+
+    /**
+     * The material is kept up to date by the position, so it is not counted again.
+     */
+    @Override
+    public int analyzeBoard(Position position) {
+        return position.getScoreByPieceValue();
     }
 }
@@ -1,6 +1,8 @@
 package program.players.ais.v2;
 
+import program.Bitboards;
 import program.ChessRules;
+import program.Position;
 import program.players.Player;
 
 import java.util.ArrayList;
@@ -24,14 +26,31 @@ public class AI2_v3 extends AI_MinmaxAbstract {
      */
 
     private final double[] params;
-    private final double WEIGHT_POS_PAWNS;
     private final int BIAS_PAWN_POS_PIECE_COUNT;
     private final Function<Integer, Double> pawnRowToScore = i -> Math.exp(-0.5 * i)-0.1;
-    private final double WEIGHT_POS_KNIGHTS;
-    private final double WEIGHT_POS_BISHOPS;
-    private final double WEIGHT_POS_ROOKS;
-    private final double WEIGHT_POS_QUEENS;
-    private final double CASTLING_BONUS;
+
+    /**
+     * Score of a pawn by its row (0 to 8, counted from the row it promotes on), in 1/100 centipawns. See toHundredthsOfCentipawns().
+     */
+    private final int[] PAWN_ROW_SCORES;
+
+    /**
+     * PAWN_ROW_SCORES as a piece-square-table (see Position.setPieceSquareTable()), negative for black. The positions of the search keep its sum up to date.
+     */
+    private final int[] PAWN_SQUARE_TABLE = new int[16 * 64];
+
+    /**
+     * Score of each field a piece can go to, in 1/100 centipawns. See toHundredthsOfCentipawns().
+     */
+    private final int WEIGHT_POS_KNIGHTS;
+    private final int WEIGHT_POS_BISHOPS;
+    private final int WEIGHT_POS_ROOKS;
+    private final int WEIGHT_POS_QUEENS;
+
+    /**
+     * Bonus for castling in centipawns.
+     */
+    private final int CASTLING_BONUS;
 
     /**
      * Constructor which initializes the player in the Superclass.
@@ -39,38 +58,135 @@ public class AI2_v3 extends AI_MinmaxAbstract {
      * @param player Player which this AI will play.
      */
     public AI2_v3(int player) {
-        this(player, new double[]{6, 1, 16, 1.3f, .8f, 1f, 1.1f, .4f});
+        this(player, getDefaultParams(6));
+    }
+
+    /**
+     * @param searchDepth The search-depth, the first entry of the vector
+     * @return The parameter-vector of the default AI (see AI2_v3(int, double[])) with the given search-depth.
+     */
+    public static double[] getDefaultParams(int searchDepth) {
+        return new double[]{searchDepth, 1, 16, 1.3f, .8f, 1f, 1.1f, .4f};
     }
 
+    /**
+     * <p>The parameter-vector is {search-depth, weight of the pawn-rows, piece-count from which on the pawn-rows count, weight of the fields a knight / bishop / rook / queen can go to, castling-bonus}.</p>
+     * <p>
+     * The weights are in the units they were tuned in, when analyzeBoard() returned pawns as a double. So existing vectors (e.g. the ones in the pgn-names of played games) keep working unchanged:
+     * They are converted once here into integer weights (see toHundredthsOfCentipawns()), and analyzeBoard() returns the old score rounded to centipawns.
+     * </p>
+     */
     public AI2_v3(int player, double[] params) {
-        super(player, AI_NAME, (int) params[0], params[7]);
+        super(player, AI_NAME, (int) params[0], toCentipawns(params[7]));
         this.params = params;
-        WEIGHT_POS_PAWNS = params[1];
         BIAS_PAWN_POS_PIECE_COUNT = (int) params[2];
-        WEIGHT_POS_KNIGHTS = params[3];
-        WEIGHT_POS_BISHOPS = params[4];
-        WEIGHT_POS_ROOKS = params[5];
-        WEIGHT_POS_QUEENS = params[6];
-        CASTLING_BONUS = params[7];
+        PAWN_ROW_SCORES = new int[9];
+        for (int row = 0; row < PAWN_ROW_SCORES.length; row++) {
+            PAWN_ROW_SCORES[row] = toHundredthsOfCentipawns(params[1] * pawnRowToScore.apply(row));
+        }
+        for (int pos = 0; pos < 64; pos++) {
+            PAWN_SQUARE_TABLE[((ChessRules.PLAYER_WHITE | ChessRules.PIECE_PAWN) << 6) | pos] = PAWN_ROW_SCORES[pos / 8];
+            PAWN_SQUARE_TABLE[((ChessRules.PLAYER_BLACK | ChessRules.PIECE_PAWN) << 6) | pos] = -PAWN_ROW_SCORES[8 - pos / 8];
+        }
+        // One field is worth weight / 100 pawns
+        WEIGHT_POS_KNIGHTS = toHundredthsOfCentipawns(params[3] / 100);
+        WEIGHT_POS_BISHOPS = toHundredthsOfCentipawns(params[4] / 100);
+        WEIGHT_POS_ROOKS = toHundredthsOfCentipawns(params[5] / 100);
+        WEIGHT_POS_QUEENS = toHundredthsOfCentipawns(params[6] / 100);
+        CASTLING_BONUS = toCentipawns(params[7]);
         setPgnName(generatePgnName(AI_NAME, Arrays.stream(params).boxed().toList()));
     }
 
+    /**
+     * @param pawns A score in pawns, as in the parameter-vectors
+     * @return The score in centipawns, rounded.
+     */
+    public static int toCentipawns(double pawns) {
+        return (int) Math.round(pawns * 100);
+    }
+
+    /**
+     * The positional scores are added up in 1/100 centipawns and only rounded to centipawns at the end, so that small weights do not get lost.
+     *
+     * @param pawns A score in pawns, as in the parameter-vectors
+     * @return The score in 1/100 centipawns, rounded.
+     */
+    public static int toHundredthsOfCentipawns(double pawns) {
+        return (int) Math.round(pawns * 10000);
+    }
+
     /**
      * <p>Analyzes the board based on the score for each piece left on it.</p>
      * <p>A positive score is in favor of the white player, a negative one for th black player.</p>
+     * <p>The board is walked through once: The material is summed up and the fields of the pieces are collected into bitboards,
+     * from which the pawn-rows and the mobility are counted without allocating anything.</p>
      *
      * @param board the board which needs to be analyzed.
-     * @return A score for the board.
+     * @return A score for the board in centipawns.
      */
     @Override
-    public double analyzeBoard(int[] board) {
-        double score = ChessRules.getScoreByPieceCost(board);
-        score += getScoreModifier_PawnPos(board, pawnRowToScore);
-        score += getScoreModifier_KnightPos(board);
-        score += getScoreModifier_BishopPos(board);
-        score += getScoreModifier_RookPos(board);
-        score += getScoreModifier_QueenPos(board);
-        return score;
+    public int analyzeBoard(int[] board) {
+        int material = 0;
+        long white = 0, occupied = 0;
+        long pawns = 0, knights = 0, bishops = 0, rooks = 0, queens = 0;
+        for (int pos = 0; pos < board.length; pos++) {
+            int cell = board[pos];
+            if ((cell & ChessRules.MASK_SET_FIELD) == 0) {
+                continue;
+            }
+            long bit = 1L << pos;
+            material += ChessRules.getPieceValue(cell);
+            occupied |= bit;
+            if ((cell & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
+                white |= bit;
+            }
+            switch (cell & ChessRules.MASK_PIECE) {
+                case ChessRules.PIECE_PAWN -> pawns |= bit;
+                case ChessRules.PIECE_KNIGHT -> knights |= bit;
+                case ChessRules.PIECE_BISHOP -> bishops |= bit;
+                case ChessRules.PIECE_ROOK -> rooks |= bit;
+                case ChessRules.PIECE_QUEEN -> queens |= bit;
+            }
+        }
+        int modifier = Long.bitCount(occupied) <= BIAS_PAWN_POS_PIECE_COUNT ? getScoreModifier_PawnPos(pawns & white, pawns & ~white) : 0;
+        modifier += getScoreModifier_Mobility(knights, bishops, rooks, queens, white, occupied);
+        return material + roundToCentipawns(modifier);
+    }
+
+    /**
+     * Same as analyzeBoard(int[]), but the piece-value, the number of pieces, the bitboards and (for the positions of the search) the score of the pawn-rows
+     * are kept up to date by the position instead of walking through the board.
+     *
+     * @param position the position which needs to be analyzed.
+     * @return A score for the position in centipawns.
+     */
+    @Override
+    public int analyzeBoard(Position position) {
+        int modifier = 0;
+        if (position.countPieces() <= BIAS_PAWN_POS_PIECE_COUNT) {
+            modifier = position.getPieceSquareTable() == PAWN_SQUARE_TABLE ? position.getPieceSquareScore()
+                    : getScoreModifier_PawnPos(position.getPieces(ChessRules.PLAYER_WHITE, ChessRules.PIECE_PAWN), position.getPieces(ChessRules.PLAYER_BLACK, ChessRules.PIECE_PAWN));
+        }
+        modifier += getScoreModifier_Mobility(
+                position.getPieces(ChessRules.PLAYER_WHITE, ChessRules.PIECE_KNIGHT) | position.getPieces(ChessRules.PLAYER_BLACK, ChessRules.PIECE_KNIGHT),
+                position.getPieces(ChessRules.PLAYER_WHITE, ChessRules.PIECE_BISHOP) | position.getPieces(ChessRules.PLAYER_BLACK, ChessRules.PIECE_BISHOP),
+                position.getPieces(ChessRules.PLAYER_WHITE, ChessRules.PIECE_ROOK) | position.getPieces(ChessRules.PLAYER_BLACK, ChessRules.PIECE_ROOK),
+                position.getPieces(ChessRules.PLAYER_WHITE, ChessRules.PIECE_QUEEN) | position.getPieces(ChessRules.PLAYER_BLACK, ChessRules.PIECE_QUEEN),
+                position.getPlayerPieces(ChessRules.PLAYER_WHITE), position.getOccupied());
+        return position.getScoreByPieceValue() + roundToCentipawns(modifier);
+    }
+
+    @Override
+    protected int[] getPieceSquareTable() {
+        return PAWN_SQUARE_TABLE;
+    }
+
+    /**
+     * @param hundredths A score in 1/100 centipawns
+     * @return The score in centipawns, rounded half up.
+     */
+    private static int roundToCentipawns(int hundredths) {
+        return Math.floorDiv(hundredths + 50, 100);
     }
 
     /**
@@ -78,84 +194,78 @@ public class AI2_v3 extends AI_MinmaxAbstract {
      * <p>
      * The further the pawn is to the end of the board, the higher the score.
      * In the middle of the board it needs to be approximately 0, and on the start-pos it needs to be negative.
+     * It only counts if there are at most BIAS_PAWN_POS_PIECE_COUNT pieces on the board, which the caller checks.
      *
-     * @param board An int-array which stores all the piece-information. Item 0 is in the top left corner, Item 7 in the top right, Item 63 in the bottom right.
-     * @return The Score-Modifier
+     * @param whitePawns Bitboard of the white pawns. Field 0 is in the top left corner, field 7 in the top right, field 63 in the bottom right.
+     * @param blackPawns Bitboard of the black pawns
+     * @return The Score-Modifier in 1/100 centipawns
      */
-    private double getScoreModifier_PawnPos(int[] board, Function<Integer, Double> rowToScore) {
-        double scoreModifier = 0;
-        if (ChessRules.countPieces(board) <= BIAS_PAWN_POS_PIECE_COUNT) {
-            for (int i = 0; i < board.length; i++) {
-                if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && (board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN) {
-                    int player = board[i] & ChessRules.MASK_PLAYER;
-                    // The scoreModifier needs to be updated here based on the Position of the pawn
-                    int row = player == ChessRules.PLAYER_WHITE ? ((int) Math.floor(i / 8f)) : 8 - ((int) Math.floor(i / 8f));
-                    scoreModifier += ((player == ChessRules.PLAYER_WHITE) ? 1 : -1) * rowToScore.apply(row);
-                }
-            }
+    private int getScoreModifier_PawnPos(long whitePawns, long blackPawns) {
+        int scoreModifier = 0;
+        while (whitePawns != 0) {
+            scoreModifier += PAWN_ROW_SCORES[Long.numberOfTrailingZeros(whitePawns) / 8];
+            whitePawns &= whitePawns - 1;
         }
-        return scoreModifier * WEIGHT_POS_PAWNS;
+        while (blackPawns != 0) {
+            scoreModifier -= PAWN_ROW_SCORES[8 - Long.numberOfTrailingZeros(blackPawns) / 8];
+            blackPawns &= blackPawns - 1;
+        }
+        return scoreModifier;
     }
 
-    private double getScoreModifier_KnightPos(int[] board) {
-        double modifier = 0;
-        for (int i = 0; i < board.length; i++) {
-            if ((board[i] & ChessRules.MASK_SET_FIELD) > 0
-                    && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_KNIGHT)) {
-                double positionModifier = ChessRules.getKnightMoves(board, i).size() / 100f;
-                if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
-                    modifier += positionModifier;
-                } else {
-                    modifier -= positionModifier;
-                }
-            }
+    /**
+     * <p>Scores the fields the knights, bishops, rooks and queens of both players can go to: empty fields and fields of enemy pieces,
+     * without checking whether the own king gets into check (the same as the sizes of ChessRules.getKnightMoves() and the others).</p>
+     * <p>The fields are counted on the attack-bitboards (see Bitboards), so no moves are generated.</p>
+     *
+     * @param knights  Bitboard of the knights of both players, the same for the other pieces
+     * @param white    Bitboard of all white pieces
+     * @param occupied Bitboard of all pieces
+     * @return The Score-Modifier in 1/100 centipawns
+     */
+    private int getScoreModifier_Mobility(long knights, long bishops, long rooks, long queens, long white, long occupied) {
+        long black = occupied & ~white;
+        int modifier = WEIGHT_POS_KNIGHTS * (countKnightFields(knights & white, white) - countKnightFields(knights & black, black));
+        modifier += WEIGHT_POS_BISHOPS * (countBishopFields(bishops & white, white, occupied) - countBishopFields(bishops & black, black, occupied));
+        modifier += WEIGHT_POS_ROOKS * (countRookFields(rooks & white, white, occupied) - countRookFields(rooks & black, black, occupied));
+        modifier += WEIGHT_POS_QUEENS * (countQueenFields(queens & white, white, occupied) - countQueenFields(queens & black, black, occupied));
+        return modifier;
+    }
+
+    private static int countKnightFields(long knights, long own) {
+        int fields = 0;
+        while (knights != 0) {
+            fields += Long.bitCount(Bitboards.KNIGHT_ATTACKS[Long.numberOfTrailingZeros(knights)] & ~own);
+            knights &= knights - 1;
         }
-        return modifier * WEIGHT_POS_KNIGHTS;
+        return fields;
     }
 
-    private double getScoreModifier_BishopPos(int[] board) {
-        double modifier = 0;
-        for (int i = 0; i < board.length; i++) {
-            if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_BISHOP)) {
-                double positionModifier = ChessRules.getBishopMoves(board, i).size() / 100f;
-                if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
-                    modifier += positionModifier;
-                } else {
-                    modifier -= positionModifier;
-                }
-            }
+    private static int countBishopFields(long bishops, long own, long occupied) {
+        int fields = 0;
+        while (bishops != 0) {
+            fields += Long.bitCount(Bitboards.bishopAttacks(Long.numberOfTrailingZeros(bishops), occupied) & ~own);
+            bishops &= bishops - 1;
         }
-        return modifier * WEIGHT_POS_BISHOPS;
+        return fields;
     }
 
-    private double getScoreModifier_RookPos(int[] board) {
-        double modifier = 0;
-        for (int i = 0; i < board.length; i++) {
-            if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_ROOK)) {
-                double positionModifier = ChessRules.getRookMoves(board, i).size() / 100f;
-                if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
-                    modifier += positionModifier;
-                } else {
-                    modifier -= positionModifier;
-                }
-            }
+    private static int countRookFields(long rooks, long own, long occupied) {
+        int fields = 0;
+        while (rooks != 0) {
+            fields += Long.bitCount(Bitboards.rookAttacks(Long.numberOfTrailingZeros(rooks), occupied) & ~own);
+            rooks &= rooks - 1;
         }
-        return modifier * WEIGHT_POS_ROOKS;
+        return fields;
     }
 
-    private double getScoreModifier_QueenPos(int[] board) {
-        double modifier = 0;
-        for (int i = 0; i < board.length; i++) {
-            if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && ((board[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_QUEEN)) {
-                double positionModifier = ChessRules.getQueenMoves(board, i).size() / 100f;
-                if ((board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE) {
-                    modifier += positionModifier;
-                } else {
-                    modifier -= positionModifier;
-                }
-            }
+    private static int countQueenFields(long queens, long own, long occupied) {
+        int fields = 0;
+        while (queens != 0) {
+            fields += Long.bitCount(Bitboards.queenAttacks(Long.numberOfTrailingZeros(queens), occupied) & ~own);
+            queens &= queens - 1;
         }
-        return modifier * WEIGHT_POS_QUEENS;
+        return fields;
     }
 
     // TODO: 28.01.2024 score has to take the square root of the number of fields a piece can go to - so that it is less difference between 10 and 11 then between 0 and 1
@@ -1,9 +1,17 @@
 package program.players.ais.v2;
 
 import program.ChessRules;
+import program.Position;
 import program.players.Player;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -16,6 +24,73 @@ public abstract class AI_MinmaxAbstract extends Player {
 
     public static final int DEFAULT_SEARCH_DEPTH = 6;
 
+    /**
+     * Default size of the transposition-table in MB.
+     */
+    public static final int DEFAULT_TRANSPOSITION_TABLE_MB = 16;
+
+    /**
+     * Deepest iteration of the iterative deepening. Only reached if the budget is big enough, e.g. in endgames with few moves.
+     */
+    public static final int MAX_SEARCH_DEPTH = 64;
+
+    /**
+     * <p>Score of a checkmate, in centipawns like all scores. A player who is mated after n plies (counted from the root of the search) scores -(SCORE_MATE - n),
+     * the other one SCORE_MATE - n. So a mate which comes sooner is better, and a mate which comes later is not as bad.</p>
+     * <p>See isMateScore() and getMatePlies().</p>
+     */
+    public static final int SCORE_MATE = 1_000_000;
+
+    /**
+     * Scores at least this far from zero are mates. No line of the search is longer than SCORE_MATE - SCORE_MATE_BOUND plies.
+     */
+    private static final int SCORE_MATE_BOUND = SCORE_MATE - 10_000;
+
+    /**
+     * Bigger than any score, used as the open end of a window.
+     */
+    private static final int SCORE_INFINITY = 2 * SCORE_MATE;
+
+    /**
+     * Half the width of the aspiration window around the score of the last iteration, in centipawns. It grows by ASPIRATION_GROWTH each time the score falls outside.
+     */
+    private static final int ASPIRATION_WINDOW = 50;
+    private static final int ASPIRATION_GROWTH = 4;
+
+    /**
+     * Default number of plies the quiescence-search may play after the search-depth is reached.
+     */
+    public static final int DEFAULT_QUIESCENCE_DEPTH = 8;
+
+    /**
+     * Delta pruning: A capture is not searched in the quiescence-search if the value of the captured piece plus this margin
+     * (in centipawns) still does not reach alpha.
+     */
+    private static final int DELTA_MARGIN = 200;
+
+    /**
+     * Null-move pruning: The search after the null move is this many plies shallower than the normal one. Only used from NULL_MOVE_MIN_DEPTH on.
+     */
+    private static final int NULL_MOVE_REDUCTION = 2;
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+
+    /**
+     * Late move reductions: From the move with this index on, quiet moves are searched one ply shallower. Only used from LMR_MIN_DEPTH on.
+     */
+    private static final int LMR_MIN_MOVE_INDEX = 3;
+    private static final int LMR_MIN_DEPTH = 3;
+
+    /**
+     * Futility pruning (depth 1) and razoring (depth 2): Margins in centipawns by which the analyzed position has to be below the bound.
+     */
+    private static final int FUTILITY_MARGIN = 200;
+    private static final int RAZORING_MARGIN = 400;
+
+    /**
+     * The budget is checked against the clock every this many nodes (must be a power of two).
+     */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
     /**
      * The Search-Depth of the MiniMax-Algorithm. 5 Works well for this AI.
      */
@@ -23,14 +98,133 @@ public abstract class AI_MinmaxAbstract extends Player {
     protected final int searchDepth;
     protected final List<Double> ai_parameters;
     private final ScoreBonusInMinmaxFunction scoreBonusInMinmaxFunction;
-    private final double[] scoreBonusInMinmaxFunctionParams;
+    private final int[] scoreBonusInMinmaxFunctionParams;
+
+    /**
+     * Size of the transposition-table in MB, 0 if the search runs without one.
+     */
+    private int transpositionTableMegabytes = DEFAULT_TRANSPOSITION_TABLE_MB;
+
+    /**
+     * The transposition-table, the killers and history of the workers and the last principal variation. Created with the first search,
+     * and kept for the next searches of the game (see setPersistentSearch()). Settings which change the search set it to null, so it is created again.
+     */
+    private SearchContext context;
+    private boolean persistentSearch = true;
+
+    /**
+     * True if the moves are sorted by MoveOrdering (hash move, MVV-LVA, killers, history), false if only the captures and the hash move are moved to the front.
+     */
+    private boolean moveOrdering = true;
+
+    /**
+     * Maximum number of plies of the quiescence-search, 0 if the positions at the search-depth are analyzed directly.
+     */
+    private int quiescenceDepth = DEFAULT_QUIESCENCE_DEPTH;
+
+    /**
+     * Switches of the selective search, see setNullMovePruning(), setLateMoveReductions() and setFutilityPruning(). All off by default.
+     */
+    private boolean nullMovePruning;
+    private boolean lateMoveReductions;
+    private boolean futilityPruning;
+
+    /**
+     * Budget of a search in milliseconds and in nodes, 0 if there is none. Without any budget the search goes straight to searchDepth.
+     */
+    private long timeLimitMillis;
+    private long nodeLimit;
+
+    /**
+     * Number of workers which search at the same time. 1 for the sequential search.
+     */
+    private int threads = 1;
+
+    /**
+     * How the workers split the work if there is more than one.
+     */
+    private ParallelSearch parallelSearch = ParallelSearch.ROOT_MOVES;
+
+    /**
+     * Runs the workers of the parallel search. Either set with setExecutor() or a ForkJoinPool which is created for this AI (ownExecutor).
+     */
+    private ExecutorService executor;
+    private boolean ownExecutor;
+
+    /**
+     * Set with setPondering().
+     */
+    private boolean ponderingEnabled;
+
+    /**
+     * The search on the time of the opponent, null if there is none. It searches ponderBoard, the board after the own move and ponderMove,
+     * the reply the AI expects.
+     */
+    private FutureTask<Integer> ponderSearch;
+    private int[] ponderBoard;
+    private int ponderMove;
+    private int ponderHits;
+
+    /**
+     * Set with setOpeningBook(), null if the AI has none.
+     */
+    private OpeningBook openingBook;
+    private final Random random = new Random();
+
+    /**
+     * Set with setTablebase(), null if the AI has none.
+     */
+    private Tablebase tablebase;
+
+    /**
+     * Listeners which get the statistics of each search, see addSearchListener().
+     */
+    private final List<SearchListener> searchListeners = new ArrayList<>();
+
+    // State of the current search, shared by all workers
+    private volatile long searchStartNanos;
+    /**
+     * Nodes of all workers. Each worker adds its nodes in steps of TIME_CHECK_INTERVAL, see SearchWorker.countNode().
+     */
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean abortAllowed;
+    private volatile boolean aborted;
+    /**
+     * True while the search runs on the time of the opponent and the opponent has not played the expected move yet. The budget is not checked meanwhile.
+     */
+    private volatile boolean pondering;
+    /**
+     * Best score at the root so far in the current iteration, from the view of the AI. The workers take it as their alpha, so later root-moves are still pruned.
+     * It starts at the lower end of the aspiration window.
+     */
+    private volatile int sharedRootScore;
+    /**
+     * Upper end of the aspiration window of the current iteration. If a root-move scores above it, rootFailedHigh is set and the iteration is searched again with a wider window.
+     */
+    private volatile int rootBeta;
+    private volatile boolean rootFailedHigh;
+    /**
+     * Set when the main worker has completed an iteration of the Lazy SMP search, so that the helpers stop.
+     */
+    private volatile boolean iterationDone;
+
+    // Result of the last search
+    private int completedDepth;
+    private long nodeCount;
+    private int bestScore;
+    private List<Integer> bestMoves = List.of();
+    private List<Integer> principalVariation = List.of();
+    /**
+     * Statistics of the last search, only collected if there is a listener.
+     */
+    private SearchStatistics statistics;
 
     /**
      * Constructor which initializes the player in the Superclass.
      *
      * @param player Player which this AI will play.
      */
-    public AI_MinmaxAbstract(int player, String aiName, int depth, ScoreBonusInMinmaxFunction scoreBonusInMinmaxFunction, double... scoreBonusInMinmaxFunctionParams) {
+    public AI_MinmaxAbstract(int player, String aiName, int depth, ScoreBonusInMinmaxFunction scoreBonusInMinmaxFunction, int... scoreBonusInMinmaxFunctionParams) {
         super(player, aiName);
         if (depth <= 0) {
             throw new IllegalArgumentException("Depth must be greater than 0");
@@ -61,113 +255,1331 @@ public abstract class AI_MinmaxAbstract extends Player {
         this(player, aiName, depth, AI_MinmaxAbstract::calculateScoreBonusInMinmax_NoBonus);
     }
 
-    public AI_MinmaxAbstract(int player, String aiName, int depth, double castlingBonus) {
+    /**
+     * Constructor with a bonus for castling, see calculateScoreBonusInMinmax_Castling().
+     *
+     * @param castlingBonus Bonus in centipawns
+     */
+    public AI_MinmaxAbstract(int player, String aiName, int depth, int castlingBonus) {
         this(player, aiName, depth, AI_MinmaxAbstract::calculateScoreBonusInMinmax_Castling, castlingBonus);
     }
 
 
     /**
-     * The Method which is being called by the Game-Class. It decides which Move the AI will play using the minMax Algorithm. If multiple moves have the same score a random one is chosen.
+     * <p>Sets the size of the transposition-table. The table is created with the next search.</p>
+     * <p>A bigger table keeps more positions, but takes more memory and is cleared slower. The counters of getTranspositionTable() help to size it.</p>
+     *
+     * @param megabytes Size in MB. 0 turns the transposition-table off.
+     */
+    public void setTranspositionTableSize(int megabytes) {
+        if (megabytes < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        transpositionTableMegabytes = megabytes;
+        discardContext();
+    }
+
+    /**
+     * @return The transposition-table of the last search (with its hit-, store- and collision-counters), null if there was none.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return context == null ? null : context.getTranspositionTable();
+    }
+
+    /**
+     * <p>Turns on or off whether the AI keeps what it has learned from one move to the next during a game:
+     * The transposition-table, the killers and history of the move-ordering and the principal variation (see SearchContext).</p>
+     * <p>
+     * The positions of a search were mostly already searched with the move before, so their results are taken from the table.
+     * Instead of clearing the table, each search starts a new generation, which replaces the entries of older searches first.
+     * Since stored scores are only used for the same remaining depth, the scores of a search stay the same, it just needs fewer nodes.
+     * Without it every search starts cold, as if the AI was new.
+     * </p>
+     * <p>gameOver() forgets everything, so the next game starts cold.</p>
+     *
+     * @param persistentSearch True to keep the search context between the moves (default).
+     */
+    public void setPersistentSearch(boolean persistentSearch) {
+        this.persistentSearch = persistentSearch;
+    }
+
+    /**
+     * <p>Sets an opening-book (see OpeningBook). As long as the position is in the book, the AI plays a move of it instead of searching,
+     * chosen by how often it was played in the games of the book. So the AI varies its openings and saves the time of the searches.</p>
+     * <p>After a move of the book getNodeCount() and getCompletedDepth() are 0, getBestMoves() and getPrincipalVariation() contain just that move and getBestScore() is 0.</p>
+     *
+     * @param openingBook The book, null for none (default).
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * <p>Sets the endgame-tablebases (see Tablebase). A position with few enough pieces whose material has a table is not searched, its exact score is looked up.
+     * If the position at the root is in the tables, the AI plays the best move of the tables at once: The fastest mate, or the slowest one if it is lost.</p>
+     * <p>After a move of the tables getNodeCount() and getCompletedDepth() are 0, getBestMoves() contains all moves which are equally good and getBestScore() is the exact score.</p>
+     *
+     * @param tablebase The tablebases, null for none (default).
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * <p>Turns the move-ordering of the search on or off. It only changes the order in which the moves are searched, not the scores:
+     * With a good order alpha-beta prunes more, so the search needs fewer nodes for the same depth.</p>
+     * <p>Without it only the captures and the hash move are searched first, as with getLegalMovesSorted().</p>
+     *
+     * @param moveOrdering True to sort the moves with MoveOrdering (default).
+     */
+    public void setMoveOrdering(boolean moveOrdering) {
+        this.moveOrdering = moveOrdering;
+        discardContext();
+    }
+
+    /**
+     * <p>Sets how deep the quiescence-search may go. At the search-depth the position is not analyzed directly, because the last move may have left
+     * a piece hanging or started an exchange (horizon effect). Instead only captures and promotions are searched until the position is quiet.</p>
+     * <p>
+     * The side to move can always refuse to capture (stand pat), then the position is analyzed as it is.
+     * A player in check has to search all moves, since standing pat may be impossible. Captures which cannot even reach the bound with
+     * the value of the captured piece plus DELTA_MARGIN are skipped (delta pruning).
+     * </p>
+     * <p>
+     * Delta pruning assumes that the positional part of the score does not change by more than DELTA_MARGIN with one capture.
+     * Only if this fails the result can depend on the window, e.g. differ slightly between the sequential and the parallel search.
+     * </p>
+     *
+     * @param plies Maximum number of plies after the search-depth, 0 turns the quiescence-search off.
+     */
+    public void setQuiescenceDepth(int plies) {
+        if (plies < 0) {
+            throw new IllegalArgumentException("Depth must not be negative");
+        }
+        quiescenceDepth = plies;
+        discardContext();
+    }
+
+    /**
+     * <p>Turns null-move pruning on or off. Before the moves of a node are searched, the player passes (see Position.makeNullMove())
+     * and the opponent is searched NULL_MOVE_REDUCTION plies shallower. If the player is still above beta (white) or below alpha (black),
+     * the node is cut off without searching any move.</p>
+     * <p>
+     * This fails in zugzwang, where every move makes the position worse and passing would be the best option.
+     * So there is no null move if the player has nothing but pawns and the king (where zugzwang is common), in check, or right after another null move.
+     * </p>
+     * <p>The selective search can change the scores and so the chosen move, also between the sequential and the parallel search. Off by default.</p>
+     *
+     * @param nullMovePruning True to turn it on.
+     */
+    public void setNullMovePruning(boolean nullMovePruning) {
+        this.nullMovePruning = nullMovePruning;
+        discardContext();
+    }
+
+    /**
+     * <p>Turns late move reductions on or off. The move-ordering puts the moves which are most likely to be good first.
+     * Quiet moves from index LMR_MIN_MOVE_INDEX on (no captures, killers, checks or moves out of check) are therefore searched one ply shallower
+     * with a null window first. Only if such a move turns out to be better than the best move so far, it is searched again with the full depth.</p>
+     * <p>The selective search can change the scores and so the chosen move. Off by default.</p>
+     *
+     * @param lateMoveReductions True to turn it on.
+     */
+    public void setLateMoveReductions(boolean lateMoveReductions) {
+        this.lateMoveReductions = lateMoveReductions;
+        discardContext();
+    }
+
+    /**
+     * <p>Turns futility pruning and razoring on or off. Both look at the analyzed position close to the search-depth:</p>
+     * <ul>
+     *     <li>Futility pruning: One ply before the search-depth, quiet moves (which do not give check) are skipped
+     *     if the position is more than FUTILITY_MARGIN below the bound. One quiet move will hardly win that much.</li>
+     *     <li>Razoring: Two plies before the search-depth, a position more than RAZORING_MARGIN below the bound only gets a quiescence-search.
+     *     If that stays below the bound as well, the node is cut off.</li>
+     * </ul>
+     * <p>Neither is used in check. The selective search can change the scores and so the chosen move. Off by default.</p>
+     *
+     * @param futilityPruning True to turn it on.
+     */
+    public void setFutilityPruning(boolean futilityPruning) {
+        this.futilityPruning = futilityPruning;
+        discardContext();
+    }
+
+    /**
+     * Sets the number of workers which search the root-moves in parallel, see ParallelSearch.ROOT_MOVES.
+     *
+     * @param threads Number of workers, 1 for the sequential search.
+     */
+    public void setThreads(int threads) {
+        setThreads(threads, ParallelSearch.ROOT_MOVES);
+    }
+
+    /**
+     * <p>Sets the number of workers which search in parallel and how they split the work. Each worker plays the moves on its own copy of the position,
+     * all of them share the transposition-table.</p>
+     * <p>
+     * In both modes the scores (and so the moves the AI chooses from) are the same as in the sequential search, only the number of nodes differs.
+     * Unless an executor is set with setExecutor(), the workers run on a ForkJoinPool of this AI.
+     * </p>
+     *
+     * @param threads Number of workers, 1 for the sequential search.
+     * @param parallelSearch How the workers split the work.
+     */
+    public void setThreads(int threads, ParallelSearch parallelSearch) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Needs at least one thread");
+        }
+        if (threads != this.threads && ownExecutor) {
+            // A search on the time of the opponent may still run on the pool
+            stopPondering();
+            executor.shutdown();
+            executor = null;
+            ownExecutor = false;
+        }
+        if (threads != this.threads) {
+            discardContext();
+        }
+        this.threads = threads;
+        this.parallelSearch = parallelSearch;
+    }
+
+    /**
+     * Sets the executor the workers of the parallel search run on, e.g. to share one thread-pool between several AIs. It is not shut down by the AI.
+     *
+     * @param executor The executor, null for a ForkJoinPool of this AI.
+     */
+    public void setExecutor(ExecutorService executor) {
+        stopPondering();
+        if (ownExecutor && this.executor != null) {
+            this.executor.shutdown();
+        }
+        this.executor = executor;
+        ownExecutor = false;
+    }
+
+    /**
+     * <p>Sets a time-budget for each move. The iterative deepening (depth 1, 2, 3, ...) then goes on beyond searchDepth until the time is up,
+     * and plays the best move of the deepest iteration which was completed. Depth 1 is always completed.</p>
+     *
+     * @param millis Time in milliseconds, 0 for no time-budget.
+     */
+    public void setTimeLimit(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time limit must not be negative");
+        }
+        timeLimitMillis = millis;
+    }
+
+    /**
+     * <p>Sets a budget of nodes (calls of negamax()) for each move. Same as setTimeLimit(), but independent of the speed of the machine,
+     * so the AI plays the same on every machine.</p>
+     * <p>If both budgets are set, the search stops as soon as one of them runs out.</p>
+     *
+     * @param nodes Number of nodes, 0 for no node-budget.
+     */
+    public void setNodeLimit(long nodes) {
+        if (nodes < 0) {
+            throw new IllegalArgumentException("Node limit must not be negative");
+        }
+        nodeLimit = nodes;
+    }
+
+    /**
+     * <p>Turns pondering on or off. With pondering, the AI does not wait idle while the opponent thinks: After returning its move,
+     * it searches the position after the reply it expects (the second move of the principal variation) in a background-thread.</p>
+     * <p>
+     * If the opponent plays that move (see opponentMoved()), the search goes on and its result is played in the next decideOnMove(),
+     * so the AI answers at once or after a shorter search. A time-budget starts when the opponent has moved, a node-budget counts the nodes searched before as well.
+     * If the opponent plays another move, the search is thrown away. So is it if an option of the search which needs a new SearchContext
+     * (e.g. setQuiescenceDepth() or setThreads()) is changed in the meantime.
+     * </p>
+     * <p>Pondering takes a core of its own (or all cores of setThreads()) while the opponent thinks, so it only pays off against a human or an engine on other cores.</p>
+     * <p>While the AI ponders, getBestScore(), getBestMoves() and the other results of the last search are those of the search in the background.</p>
+     *
+     * @param pondering True to search on the time of the opponent.
+     */
+    public void setPondering(boolean pondering) {
+        ponderingEnabled = pondering;
+        if (!pondering) {
+            stopPondering();
+        }
+    }
+
+    /**
+     * <p>Adds a listener which gets the statistics (nodes, cut-offs, hash hits, time, ...) of each search, see SearchStatistics.</p>
+     * <p>The counters are always kept by the workers, but the statistics are only put together if there is a listener, so without one they cost nothing.</p>
+     *
+     * @param listener The listener
+     */
+    public void addSearchListener(SearchListener listener) {
+        searchListeners.add(listener);
+    }
+
+    public void removeSearchListener(SearchListener listener) {
+        searchListeners.remove(listener);
+    }
+
+    /**
+     * @return The reply of the opponent the AI is pondering on, 0 if it does not ponder.
+     */
+    public int getPonderMove() {
+        return ponderSearch == null ? 0 : ponderMove;
+    }
+
+    /**
+     * @return Number of moves which were taken from a search on the time of the opponent, since the opponent played the expected move.
+     */
+    public int getPonderHits() {
+        return ponderHits;
+    }
+
+    /**
+     * @return The depth of the deepest iteration the last search completed.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * @return Number of nodes (calls of negamax(), including the quiescence-search) of the last search, including an iteration which was aborted.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return The score of the best root-moves in the deepest iteration the last search completed, in centipawns.
+     * Positive scores are in favor of white, as in analyzeBoard(). For a mate see isMateScore().
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * @param score A score of the search, e.g. getBestScore()
+     * @return True if the score is a checkmate (see SCORE_MATE) and not the analysis of a position.
+     */
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) >= SCORE_MATE_BOUND;
+    }
+
+    /**
+     * @param score A score for which isMateScore() is true
+     * @return Number of plies (counted from the root of the search) until the mate.
+     */
+    public static int getMatePlies(int score) {
+        return SCORE_MATE - Math.abs(score);
+    }
+
+    /**
+     * The transposition-table keeps mates counted from the stored position instead of the root, since the position can be reached at different plies.
+     */
+    private static int toTranspositionTable(int score, int ply) {
+        if (score >= SCORE_MATE_BOUND) {
+            return score + ply;
+        } else if (score <= -SCORE_MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTranspositionTable(int score, int ply) {
+        if (score >= SCORE_MATE_BOUND) {
+            return score - ply;
+        } else if (score <= -SCORE_MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * @return All root-moves which had the best score in the deepest iteration the last search completed, in the order they were searched.
+     * The AI plays one of them.
+     */
+    public List<Integer> getBestMoves() {
+        return Collections.unmodifiableList(bestMoves);
+    }
+
+    /**
+     * <p>The principal variation of the deepest iteration the last search completed: The first best move and the moves both players are expected to answer with.</p>
+     * <p>It ends early where the rest of the line was taken from the transposition-table, and does not contain the captures of the quiescence-search.</p>
+     *
+     * @return The moves, starting with the move of the AI.
+     */
+    public List<Integer> getPrincipalVariation() {
+        return Collections.unmodifiableList(principalVariation);
+    }
+
+    /**
+     * <p>The Method which is being called by the Game-Class. It decides which Move the AI will play using the minMax Algorithm. If multiple moves have the same score a random one is chosen.</p>
+     * <p>If the position is in the opening-book (see setOpeningBook()) or in the endgame-tablebases (see setTablebase()), the move is taken from there.
+     * If the AI has pondered on this board (see setPondering()), the move is taken from that search. Otherwise search() is called.</p>
      *
      * @param board The current board-Array
      * @return The chosen Move.
      */
     @Override
     public int decideOnMove(int[] board) {
-        List<Integer> moves = ChessRules.getLegalMovesSorted(board, player);
+        int move = probeOpeningBook(board);
+        if (move == 0) {
+            move = probeTablebase(board);
+        }
+        if (move == 0 && ponderSearch != null && Arrays.equals(board, ponderBoard)) {
+            ponderHit();
+            move = waitForPonderSearch();
+            ponderHits++;
+        }
+        stopPondering();
+        if (move == 0) {
+            resetSearch();
+            move = search(board);
+        }
+        if (statistics != null) {
+            for (SearchListener listener : searchListeners) {
+                listener.searchCompleted(statistics);
+            }
+        }
+        if (ponderingEnabled) {
+            startPondering(board, move);
+        }
+        return move;
+    }
 
-        Random r = new Random();
+    /**
+     * @return A move of the opening-book for the board, 0 if there is no book or the position is not in it. The results of the last search are set to the move.
+     */
+    private int probeOpeningBook(int[] board) {
+        if (openingBook == null) {
+            return 0;
+        }
+        int move = openingBook.chooseMove(board, player, random);
+        if (move != 0) {
+            completedDepth = 0;
+            nodeCount = 0;
+            bestScore = 0;
+            bestMoves = List.of(move);
+            principalVariation = List.of(move);
+            statistics = null;
+        }
+        return move;
+    }
 
-        double bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
-        List<Integer> bestMoves = new ArrayList<>();
-        int[] backUpBoard;
+    /**
+     * @return One of the best moves of the tablebases for the board, 0 if there are no tablebases or the position is not in them.
+     * The results of the last search are set to the moves.
+     */
+    private int probeTablebase(int[] board) {
+        if (tablebase == null || ChessRules.countPieces(board) > tablebase.getMaxPieces()) {
+            return 0;
+        }
+        Position position = new Position(board, player);
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int count = tablebase.getBestMoves(position, moves);
+        if (count == 0) {
+            return 0;
+        }
+        int score = tablebase.probe(position, 0);
+        completedDepth = 0;
+        nodeCount = 0;
+        bestScore = player == ChessRules.PLAYER_WHITE ? score : -score;
+        bestMoves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            bestMoves.add(moves[i]);
+        }
+        int move = bestMoves.get(random.nextInt(count));
+        principalVariation = List.of(move);
+        statistics = null;
+        return move;
+    }
 
-        for (int move : moves) {
-            backUpBoard = board.clone();
-            ChessRules.makeMove(backUpBoard, move);
-            double score = minimax(backUpBoard, (player == ChessRules.PLAYER_WHITE) ? bestScore : -1000000000, (player == ChessRules.PLAYER_WHITE) ? 1000000000 : bestScore, searchDepth - 1, player ^ ChessRules.MASK_PLAYER);
-            score += scoreBonusInMinmaxFunction.calculate(backUpBoard, move, player, scoreBonusInMinmaxFunctionParams);
-            if (bestScore == score) {
-                bestMoves.add(move);
-            } else if (player == ChessRules.PLAYER_WHITE && score > bestScore || player == ChessRules.PLAYER_BLACK && score < bestScore) {
-                bestScore = score;
+    /**
+     * Called by the Game-Loop after the opponent has moved. If it is the move the AI is pondering on, the search goes on and the time-budget starts now.
+     * Otherwise the search is stopped.
+     */
+    @Override
+    public void opponentMoved(int[] board, int move) {
+        if (ponderSearch == null) {
+            return;
+        }
+        if (move == ponderMove && Arrays.equals(board, ponderBoard)) {
+            ponderHit();
+        } else {
+            stopPondering();
+        }
+    }
+
+    @Override
+    public void gameOver() {
+        stopPondering();
+        if (context != null) {
+            context.clear();
+        }
+    }
+
+    /**
+     * Starts the search on the board after the own move and the reply the AI expects. Nothing happens if there is no reply to expect.
+     */
+    private void startPondering(int[] board, int move) {
+        int[] nextBoard = board.clone();
+        ChessRules.makeMove(nextBoard, move);
+        int reply = expectReply(nextBoard, move);
+        if (reply == 0) {
+            return;
+        }
+        ChessRules.makeMove(nextBoard, reply);
+        if (ChessRules.noLegalMovesLeft(nextBoard, player)) {
+            return;
+        }
+        ponderBoard = nextBoard;
+        ponderMove = reply;
+        resetSearch();
+        pondering = true;
+        ponderSearch = new FutureTask<>(() -> search(nextBoard.clone()));
+        Thread.ofPlatform().daemon().name(getPgnName() + "-ponder").start(ponderSearch);
+    }
+
+    /**
+     * @param board The board after the own move
+     * @param move  The own move
+     * @return The reply of the opponent from the principal variation. If the AI plays another of its best moves, the best move stored in
+     * the transposition-table for the board. 0 if neither is known.
+     */
+    private int expectReply(int[] board, int move) {
+        if (principalVariation.size() > 1 && principalVariation.get(0) == move) {
+            return principalVariation.get(1);
+        }
+        TranspositionTable transpositionTable = getTranspositionTable();
+        if (transpositionTable == null) {
+            return 0;
+        }
+        Position position = new Position(board, player ^ ChessRules.MASK_PLAYER);
+        TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        if (transpositionTable.probe(position.getKey(), entry) && entry.getMove() != 0 && position.moveIsLegal(entry.getMove())) {
+            return entry.getMove();
+        }
+        return 0;
+    }
+
+    /**
+     * The opponent has played the expected move: From now on the search is a normal one, with its budget starting now.
+     */
+    private void ponderHit() {
+        searchStartNanos = System.nanoTime();
+        pondering = false;
+    }
+
+    private int waitForPonderSearch() {
+        try {
+            return ponderSearch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Aborts the search on the time of the opponent, if there is one, and waits until it has stopped. Its result is thrown away.
+     */
+    private void stopPondering() {
+        if (ponderSearch == null) {
+            return;
+        }
+        aborted = true;
+        pondering = false;
+        waitForPonderSearch();
+        ponderSearch = null;
+        ponderBoard = null;
+    }
+
+    /**
+     * Throws the search context away after an option it depends on has changed, the next search creates a new one.
+     * A search on the time of the opponent still uses it, so it is stopped first.
+     */
+    private void discardContext() {
+        stopPondering();
+        context = null;
+    }
+
+    /**
+     * Resets the state shared by the workers. Called on the calling thread before a search starts, so that a search on the time of the opponent
+     * can be aborted before its thread has started.
+     */
+    private void resetSearch() {
+        searchStartNanos = System.nanoTime();
+        nodes.set(0);
+        abortAllowed = false;
+        aborted = false;
+    }
+
+    /**
+     * <p>Searches the board and returns the move to play.</p>
+     * <p>
+     * The depths 1, 2, 3, ... are searched one after another, without a budget up to searchDepth, with a time- or node-budget
+     * until the budget runs out (at most MAX_SEARCH_DEPTH). The best move of each iteration is searched first in the next one,
+     * and the transposition-table and the history fill up, so all iterations together need fewer nodes than searching searchDepth directly.
+     * </p>
+     * <p>
+     * From the second iteration on, the root is searched with an aspiration window around the score of the last iteration.
+     * Most of the time the score stays inside, and the narrow window prunes more. If the best score falls outside, the iteration is searched again
+     * with a window which is ASPIRATION_GROWTH times wider on that side, until the score is inside.
+     * </p>
+     *
+     * @param board The current board-Array
+     * @return One of the best moves, 0 if the search was aborted before depth 1 was completed.
+     */
+    private int search(int[] board) {
+        boolean budget = timeLimitMillis > 0 || nodeLimit > 0;
+        boolean lazySmp = threads > 1 && parallelSearch == ParallelSearch.LAZY_SMP;
+        int maxDepth = budget ? MAX_SEARCH_DEPTH : searchDepth;
+        completedDepth = 0;
+        statistics = null;
+        long startNanos = System.nanoTime();
+        long[] iterationNodes = new long[maxDepth + 1];
+        long[] iterationNanos = new long[maxDepth + 1];
+        SearchWorker[] workers = createWorkers(board, maxDepth);
+        Position position = workers[0].position;
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int count = workers[0].generateMoves(player, moves, context.getRootMove(board, position.getKey()), 0);
+        int[] scores = new int[count];
+        int[][] principalVariations = new int[count][];
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long iterationStartNodes = countNodes(workers);
+            long iterationStartNanos = System.nanoTime();
+            // The score of the last iteration from the view of the AI. No aspiration window around a mate.
+            int lastScore = player == ChessRules.PLAYER_WHITE ? bestScore : -bestScore;
+            boolean aspiration = completedDepth > 0 && !isMateScore(lastScore);
+            int lowerWindow = ASPIRATION_WINDOW;
+            int upperWindow = ASPIRATION_WINDOW;
+            while (true) {
+                int alpha = aspiration && lowerWindow < SCORE_MATE ? lastScore - lowerWindow : -SCORE_INFINITY;
+                int beta = aspiration && upperWindow < SCORE_MATE ? lastScore + upperWindow : SCORE_INFINITY;
+                sharedRootScore = alpha;
+                rootBeta = beta;
+                rootFailedHigh = false;
+                if (lazySmp) {
+                    searchLazySmp(workers, moves, count, depth, scores, principalVariations);
+                } else if (workers.length == 1) {
+                    workers[0].searchRootMoves(moves, count, depth, scores, principalVariations, new AtomicInteger(), true);
+                } else {
+                    searchRootParallel(workers, moves, count, depth, scores, principalVariations);
+                }
+                if (aborted) {
+                    break;
+                }
+                if (rootFailedHigh) {
+                    upperWindow *= ASPIRATION_GROWTH;
+                } else if (maxScore(scores, count) < alpha) {
+                    lowerWindow *= ASPIRATION_GROWTH;
+                } else {
+                    break;
+                }
+            }
+            if (aborted) {
+                break;
+            }
+            collectBestMoves(moves, count, scores, principalVariations);
+            completedDepth = depth;
+            abortAllowed = true;
+            if (!bestMoves.isEmpty()) {
+                moveToFront(moves, count, bestMoves.get(0));
+            }
+            long iterationEndNodes = countNodes(workers);
+            iterationNodes[depth] = iterationEndNodes - iterationStartNodes;
+            iterationNanos[depth] = System.nanoTime() - iterationStartNanos;
+            if (!searchListeners.isEmpty()) {
+                SearchStatistics iterationStatistics = createStatistics(workers, startNanos, iterationNodes, iterationNanos);
+                for (SearchListener listener : searchListeners) {
+                    listener.iterationCompleted(depth, iterationStatistics);
+                }
+            }
+            if (budgetExhausted(iterationEndNodes)) {
+                break;
+            }
+        }
+        nodeCount = countNodes(workers);
+        if (!searchListeners.isEmpty() && completedDepth > 0) {
+            statistics = createStatistics(workers, startNanos, iterationNodes, iterationNanos);
+        }
+        if (completedDepth == 0) {
+            // Only a search on the time of the opponent is aborted before depth 1 is completed
+            return 0;
+        }
+        //System.out.println("Possible best moves: " + bestMoves.size());
+        int move = getBestMoveFromEqualScored(position, bestMoves);
+        context.setPrincipalVariation(board, principalVariation.get(0) == move ? principalVariation : List.of());
+        return move;
+    }
+
+    /**
+     * Creates the workers of a search, each with its own copy of the position and its MoveOrdering of the context. The first one is the main worker,
+     * the others are helpers in Lazy SMP.
+     */
+    private SearchWorker[] createWorkers(int[] board, int maxDepth) {
+        if (context == null) {
+            context = new SearchContext(transpositionTableMegabytes, threads, moveOrdering, MAX_SEARCH_DEPTH + 2 + quiescenceDepth);
+        } else if (persistentSearch) {
+            context.newSearch();
+        } else {
+            context.clear();
+        }
+        SearchWorker[] workers = new SearchWorker[threads];
+        int[] pieceSquareTable = getPieceSquareTable();
+        for (int i = 0; i < threads; i++) {
+            Position position = new Position(board, player);
+            position.setPieceSquareTable(pieceSquareTable);
+            workers[i] = new SearchWorker(position, maxDepth, i > 0, context.getOrdering(i));
+        }
+        return workers;
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = new ForkJoinPool(threads);
+            ownExecutor = true;
+        }
+        return executor;
+    }
+
+    /**
+     * <p>Lets all workers take root-moves from the buffer until there are none left, and waits for them.</p>
+     * <p>The first move (the best one of the last iteration, if there was one) is searched alone first,
+     * so that the workers start with a good bound instead of searching all the other moves with a full window.</p>
+     */
+    private void searchRootParallel(SearchWorker[] workers, int[] moves, int count, int depth, int[] scores, int[][] principalVariations) {
+        workers[0].searchRootMoves(moves, Math.min(count, 1), depth, scores, principalVariations, new AtomicInteger(), true);
+        if (aborted || rootFailedHigh) {
+            return;
+        }
+        AtomicInteger nextMove = new AtomicInteger(1);
+        List<Future<?>> results = new ArrayList<>(workers.length);
+        for (SearchWorker worker : workers) {
+            results.add(getExecutor().submit(() -> worker.searchRootMoves(moves, count, depth, scores, principalVariations, nextMove, true)));
+        }
+        waitFor(results);
+    }
+
+    /**
+     * <p>Lazy SMP: The main worker searches the iteration on the calling thread like the sequential search.
+     * At the same time the helpers search the same position, half of them one layer deeper, each starting with a different root-move.</p>
+     * <p>
+     * The results of the helpers are thrown away. They only fill the shared transposition-table, from which the main worker then takes
+     * scores and best moves instead of searching them itself. The helpers stop as soon as the main worker has completed the iteration.
+     * </p>
+     */
+    private void searchLazySmp(SearchWorker[] workers, int[] moves, int count, int depth, int[] scores, int[][] principalVariations) {
+        iterationDone = false;
+        List<Future<?>> results = new ArrayList<>(workers.length - 1);
+        for (int i = 1; i < workers.length; i++) {
+            SearchWorker helper = workers[i];
+            int helperDepth = Math.min(depth + i % 2, helper.moveStack.length - 1 - quiescenceDepth);
+            int[] helperMoves = new int[count];
+            for (int j = 0; j < count; j++) {
+                helperMoves[j] = moves[(j + i) % count];
+            }
+            results.add(getExecutor().submit(() -> helper.searchRootMoves(helperMoves, count, helperDepth, new int[count], null, new AtomicInteger(), false)));
+        }
+        try {
+            workers[0].searchRootMoves(moves, count, depth, scores, principalVariations, new AtomicInteger(), true);
+        } finally {
+            iterationDone = true;
+        }
+        waitFor(results);
+    }
+
+    private void waitFor(List<Future<?>> results) {
+        try {
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            aborted = true;
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search was interrupted", e);
+        } catch (ExecutionException e) {
+            aborted = true;
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Called by the workers after each root-move. Keeps the best score so far in sharedRootScore.
+     */
+    private synchronized void updateRootScore(int score) {
+        if (score > sharedRootScore) {
+            sharedRootScore = score;
+        }
+    }
+
+    private static int maxScore(int[] scores, int count) {
+        int max = -SCORE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(scores[i], max);
+        }
+        return max;
+    }
+
+    /**
+     * Sets bestScore, bestMoves and the principal variation from the scores of an iteration (from the view of the AI). The moves are compared in the order they were searched,
+     * so it makes no difference whether they were searched sequentially or in parallel.
+     */
+    private void collectBestMoves(int[] moves, int count, int[] scores, int[][] principalVariations) {
+        int best = -SCORE_INFINITY;
+        int bestIndex = -1;
+        bestMoves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int score = scores[i];
+            if (best == score) {
+                bestMoves.add(moves[i]);
+            } else if (score > best) {
+                best = score;
+                bestIndex = i;
                 bestMoves = new ArrayList<>();
-                bestMoves.add(move);
+                bestMoves.add(moves[i]);
             }
+        }
+        bestScore = player == ChessRules.PLAYER_WHITE ? best : -best;
+        principalVariation = new ArrayList<>();
+        if (bestIndex >= 0) {
+            for (int move : principalVariations[bestIndex]) {
+                principalVariation.add(move);
+            }
+        }
+    }
 
+    /**
+     * @return The statistics of the current search up to the last completed iteration.
+     */
+    private SearchStatistics createStatistics(SearchWorker[] workers, long startNanos, long[] iterationNodes, long[] iterationNanos) {
+        long evaluations = 0, cutoffs = 0, firstMoveCutoffs = 0, hashProbes = 0, hashHits = 0;
+        for (SearchWorker worker : workers) {
+            evaluations += worker.evaluations;
+            cutoffs += worker.cutoffs;
+            firstMoveCutoffs += worker.firstMoveCutoffs;
+            hashProbes += worker.hashProbes;
+            hashHits += worker.hashHits;
         }
-        //System.out.println("Possible best moves: " + bestMoves.size());
-        return getBestMoveFromEqualScored(board, bestMoves);
+        SearchStatistics statistics = new SearchStatistics(completedDepth, countNodes(workers), evaluations, cutoffs, firstMoveCutoffs, hashProbes, hashHits, System.nanoTime() - startNanos);
+        statistics.setIterations(iterationNodes, iterationNanos);
+        return statistics;
     }
 
     /**
-     * <p>Recursive MiniMax-Algorithm-Implementation with Alpha-Beta-Pruning</p>
-     * <p>Decides recursively for each board-position which is the best one (alternating between both players as the turn-order determines)</p>
-     * <p>At the end of each branch the analyzeBoard-Method is called</p>
-     * <p>Do to Alpha-Beta-Pruning many branches can be pruned away, so that it is not necessary to analyze them</p>
-     *
-     * @param board  The current board-array. In order to be able to alter the board without messing up the main-one, it gets cloned before calling this method again.
-     * @param a      Alpha-Value (For AlphaBetaPruning)
-     * @param b      Beta-Value (For AlphaBetaPruning)
-     * @param depth  The Depth the Algorithm will go recursively. It counts down by one every layer.
-     * @param player The player which takes the current turn. (Alternates every layer)
-     * @return The Score which the algorithm assigns to this board.
+     * @return Number of nodes of all workers in the current search.
      */
-    private double minimax(int[] board, double a, double b, int depth, int player) {
-        // White is max / Black is min
+    private long countNodes(SearchWorker[] workers) {
+        long count = nodes.get();
+        for (SearchWorker worker : workers) {
+            count += worker.nodes & (TIME_CHECK_INTERVAL - 1);
+        }
+        return count;
+    }
 
+    /**
+     * @param nodeCount Nodes searched so far
+     * @return True if the time- or node-budget of the search is used up. Never while pondering.
+     */
+    private boolean budgetExhausted(long nodeCount) {
+        return !pondering && ((nodeLimit > 0 && nodeCount >= nodeLimit)
+                || (timeLimitMillis > 0 && System.nanoTime() - searchStartNanos >= timeLimitMillis * 1_000_000));
+    }
 
-        if (depth <= 0) {
-            return analyzeBoard(board);
+    /**
+     * <p>One thread of the search: It has its own position (all moves are played and taken back on it), its own move-buffers and its own killers and history.</p>
+     * <p>The sequential search is a single worker.</p>
+     */
+    private final class SearchWorker {
+
+        private final Position position;
+
+        /**
+         * One move-buffer per layer of the search. Allocated once per search, so generating moves inside negamax() allocates nothing.
+         */
+        private final int[][] moveStack;
+
+        /**
+         * True at the ply where a null move was played, so that the next ply does not play another one.
+         */
+        private final boolean[] nullMoves;
+
+        /**
+         * Triangular table of principal variations: pv[ply] holds the best line found below the position at that ply, in pv[ply][ply] to pv[ply][pvLength[ply] - 1].
+         */
+        private final int[][] pv;
+        private final int[] pvLength;
+
+        /**
+         * Killers and history of this worker (kept in the context), null if the move-ordering is turned off.
+         */
+        private final MoveOrdering ordering;
+
+        /**
+         * The transposition-table of the context, null if there is none.
+         */
+        private final TranspositionTable transpositionTable = context.getTranspositionTable();
+
+        /**
+         * Copy of the entries probed in the transposition-table.
+         */
+        private final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+
+        /**
+         * True for the helpers of Lazy SMP, which stop as soon as the main worker has completed the iteration.
+         */
+        private final boolean helper;
+
+        /**
+         * Nodes of this worker. Every TIME_CHECK_INTERVAL nodes they are added to the shared counter.
+         */
+        private long nodes;
+
+        /**
+         * Counters for the SearchStatistics: Calls of analyzeBoard(), cut-offs in negamax() (and how many of them by the first move) and probes of the transposition-table.
+         * Plain fields of the worker, so counting costs next to nothing.
+         */
+        private long evaluations;
+        private long cutoffs;
+        private long firstMoveCutoffs;
+        private long hashProbes;
+        private long hashHits;
+
+        private SearchWorker(Position position, int maxDepth, boolean helper, MoveOrdering ordering) {
+            this.position = position;
+            // Helpers of Lazy SMP search one layer deeper, the quiescence-search goes on behind the search-depth
+            this.moveStack = new int[maxDepth + 2 + quiescenceDepth][ChessRules.MAX_MOVES];
+            this.nullMoves = new boolean[moveStack.length];
+            this.pv = new int[moveStack.length + 1][moveStack.length + 1];
+            this.pvLength = new int[moveStack.length + 1];
+            this.ordering = ordering;
+            this.helper = helper;
         }
 
-        double bestScore = (player == ChessRules.PLAYER_WHITE ? -10000000 - depth : 10000000 + depth);
-        List<Integer> moves = ChessRules.getLegalMovesSorted(board, player);
+        /**
+         * Writes the legal moves of the player into the buffer, in the order they are searched.
+         *
+         * @param hashMove Move which is searched first, 0 if there is none
+         * @param ply      Distance to the root of the search
+         * @return The number of moves
+         */
+        private int generateMoves(int player, int[] moves, int hashMove, int ply) {
+            if (ordering != null) {
+                int count = position.getLegalMoves(player, moves);
+                ordering.orderMoves(position, player, moves, count, hashMove, ply);
+                return count;
+            }
+            int count = position.getLegalMovesSorted(player, moves);
+            if (hashMove != 0) {
+                moveToFront(moves, count, hashMove);
+            }
+            return count;
+        }
 
-        int[] backUpBoard;
+        /**
+         * <p>Takes root-moves from the buffer (the next index comes from nextMove) and searches them until there are none left or the search is aborted.</p>
+         * <p>
+         * The first move is searched with the whole window. All other moves are searched with a null window at the best score so far first,
+         * which only tells whether they are better. Only if one is, it is searched again with the whole window.
+         * A move which scores above the aspiration window sets rootFailedHigh and ends the iteration.
+         * </p>
+         *
+         * @param scores      The score of each root-move (from the view of the AI) is written to the same index.
+         * @param pvs         The principal variation of each root-move is written to the same index, null if it is not needed.
+         * @param sharedBound True if the best score so far is shared with the other workers in sharedRootScore, false if the worker keeps its own.
+         */
+        private void searchRootMoves(int[] moves, int count, int depth, int[] scores, int[][] pvs, AtomicInteger nextMove, boolean sharedBound) {
+            int ownBound = -SCORE_INFINITY;
+            int beta = sharedBound ? rootBeta : SCORE_INFINITY;
+            for (int i = nextMove.getAndIncrement(); i < count; i = nextMove.getAndIncrement()) {
+                if (sharedBound && rootFailedHigh) {
+                    return;
+                }
+                int move = moves[i];
+                int bound = sharedBound ? sharedRootScore : ownBound;
+                long undo = position.makeMove(move);
+                int bonus = bonus(move, player);
+                int score;
+                if (i == 0) {
+                    score = searchMove(bound, beta, depth - 1, player ^ ChessRules.MASK_PLAYER, 0, bonus);
+                } else {
+                    score = searchMove(bound, bound, depth - 1, player ^ ChessRules.MASK_PLAYER, 0, bonus);
+                    if (score > bound && score <= beta) {
+                        score = searchMove(bound, beta, depth - 1, player ^ ChessRules.MASK_PLAYER, 0, bonus);
+                    }
+                }
+                position.unmakeMove(move, undo);
+                if (stopped()) {
+                    return;
+                }
+                scores[i] = score;
+                if (pvs != null) {
+                    pvs[i] = new int[pvLength[1]];
+                    pvs[i][0] = move;
+                    System.arraycopy(pv[1], 1, pvs[i], 1, pvLength[1] - 1);
+                }
+                if (sharedBound && score > beta) {
+                    rootFailedHigh = true;
+                    return;
+                }
+                if (sharedBound) {
+                    updateRootScore(score);
+                } else if (score > ownBound) {
+                    ownBound = score;
+                }
+            }
+        }
 
-        for (int move : moves) {
-            backUpBoard = board.clone();
-            ChessRules.makeMove(backUpBoard, move);
-            double score = minimax(backUpBoard, a, b, depth - 1, player ^ ChessRules.MASK_PLAYER);
-            score += scoreBonusInMinmaxFunction.calculate(backUpBoard, move, player, scoreBonusInMinmaxFunctionParams);
-            if (player == ChessRules.PLAYER_WHITE) {
-                bestScore = Math.max(bestScore, score);
+        /**
+         * @return True if the search was aborted, or if this is a helper and the main worker has completed the iteration.
+         */
+        private boolean stopped() {
+            return aborted || (helper && iterationDone);
+        }
+
+        /**
+         * Counts a node and checks the budget.
+         *
+         * @return True if the search has to be aborted.
+         */
+        private boolean countNode() {
+            nodes++;
+            if ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0) {
+                long total = AI_MinmaxAbstract.this.nodes.addAndGet(TIME_CHECK_INTERVAL);
+                if (abortAllowed && budgetExhausted(total)) {
+                    aborted = true;
+                }
+            } else if (abortAllowed && nodeLimit > 0 && !pondering && AI_MinmaxAbstract.this.nodes.get() + (nodes & (TIME_CHECK_INTERVAL - 1)) >= nodeLimit) {
+                aborted = true;
+            }
+            return stopped();
+        }
+
+        /**
+         * <p>Recursive NegaMax-Algorithm-Implementation with Alpha-Beta-Pruning and Principal Variation Search</p>
+         * <p>Decides recursively for each board-position which is the best one. Scores are always from the view of the player to move,
+         * so the score of a move is the negated score of the position after it, and the window is negated and swapped as well.</p>
+         * <p>At the end of each branch the quiescence-search is called, which plays the captures until the position is quiet and then calls the analyzeBoard-Method</p>
+         * <p>
+         * Principal Variation Search: The first move (the hash move or the best capture) is searched with the whole window.
+         * All later moves are expected to be worse, so they are only searched with a null window at alpha, which prunes much more.
+         * Only if one of them turns out to be better, it is searched again with the whole window.
+         * </p>
+         * <p>
+         * Positions which were already searched to the same depth are taken from the transposition-table.
+         * A score which is exactly a or b is always exact (cut-offs only happen at strictly better scores), so stored bounds are
+         * only used and only given if the score is strictly outside the window. This keeps equal scores at the root comparable,
+         * and it also makes a null window [a, a] tell apart whether a move is worse, equally good or better.
+         * Since only entries of the same depth are used, the table never changes a score, no matter in which order the positions were searched.
+         * </p>
+         * <p>Positions which are in the endgame-tablebases (see setTablebase()) are not searched, they return the exact score of the tables.</p>
+         * <p>The position of the worker is played on: Every move is taken back again with unmakeMove(), so it is the same again when the method returns.</p>
+         *
+         * @param a      Alpha-Value (For AlphaBetaPruning)
+         * @param b      Beta-Value (For AlphaBetaPruning)
+         * @param depth  The Depth the Algorithm will go recursively. It counts down by one every layer.
+         * @param player The player which takes the current turn. (Alternates every layer)
+         * @param ply    Distance to the root of the search. Selects the move-buffer and the principal variation of this layer.
+         * @return The Score which the algorithm assigns to this board, from the view of the player.
+         */
+        private int negamax(int a, int b, int depth, int player, int ply) {
+            pvLength[ply] = ply;
+
+            if (countNode()) {
+                return 0;
+            }
+
+            // Positions with few pieces are looked up instead of searched
+            if (tablebase != null && ply > 0 && position.countPieces() <= tablebase.getMaxPieces()) {
+                int score = tablebase.probe(position, ply);
+                if (score != Tablebase.NOT_FOUND) {
+                    return score;
+                }
+            }
+
+            if (depth <= 0) {
+                return quiescence(a, b, depth, player, ply);
+            }
+
+            long key = position.getKey();
+            int hashMove = 0;
+            if (transpositionTable != null) {
+                hashProbes++;
+                if (transpositionTable.probe(key, entry)) {
+                    hashHits++;
+                    hashMove = entry.getMove();
+                    if (entry.getDepth() == depth) {
+                        int storedScore = fromTranspositionTable(entry.getScore(), ply);
+                        switch (entry.getBound()) {
+                            case TranspositionTable.BOUND_EXACT -> {
+                                return storedScore;
+                            }
+                            case TranspositionTable.BOUND_LOWER -> {
+                                if (storedScore > b)
+                                    return storedScore;
+                            }
+                            case TranspositionTable.BOUND_UPPER -> {
+                                if (storedScore < a)
+                                    return storedScore;
+                            }
+                        }
+                    }
+                }
+            }
+            int alpha = a;
+            int beta = b;
+            int opponent = player ^ ChessRules.MASK_PLAYER;
+            boolean inCheck = (nullMovePruning || lateMoveReductions || futilityPruning) && position.playerInCheck(player);
+
+            // Razoring and futility pruning
+            boolean futile = false;
+            int futileScore = 0;
+            if (futilityPruning && !inCheck && depth <= 2) {
+                int staticScore = analyze(player);
+                if (depth == 2 && staticScore + RAZORING_MARGIN < a) {
+                    int score = quiescence(a, b, 0, player, ply);
+                    if (stopped() || score < a) {
+                        return score;
+                    }
+                }
+                futileScore = staticScore + FUTILITY_MARGIN;
+                futile = depth == 1 && futileScore < a;
+            }
+
+            // Null-move pruning
+            if (nullMovePruning && !inCheck && depth >= NULL_MOVE_MIN_DEPTH && !nullMoves[ply - 1] && hasPiecesBesidesPawns(player)) {
+                int undo = position.makeNullMove();
+                nullMoves[ply] = true;
+                // Null window: Only whether the score is above b counts
+                int score = -negamax(-b, -b, depth - 1 - NULL_MOVE_REDUCTION, opponent, ply + 1);
+                nullMoves[ply] = false;
+                position.unmakeNullMove(undo);
+                if (stopped()) {
+                    return 0;
+                }
+                if (score > b) {
+                    return score;
+                }
+            }
+
+            int bestScore = -SCORE_MATE + ply;
+            int bestMove = 0;
+            boolean first = true;
+            int[] moves = moveStack[ply];
+            int count = generateMoves(player, moves, hashMove, ply);
+
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                boolean quiet = (futile || lateMoveReductions) && !inCheck && MoveOrdering.isQuiet(position.getBoard(), move) && !isKiller(move, ply);
+                long undo = position.makeMove(move);
+                quiet = quiet && !position.playerInCheck(opponent);
+                if (futile && quiet) {
+                    position.unmakeMove(move, undo);
+                    bestScore = Math.max(futileScore, bestScore);
+                    continue;
+                }
+                int bonus = bonus(move, player);
+                int score;
+                if (first) {
+                    score = searchMove(a, b, depth - 1, opponent, ply, bonus);
+                    first = false;
+                } else {
+                    // Late move reductions: The reduced search is only trusted if the move is worse than the best one so far
+                    boolean reduced = lateMoveReductions && quiet && depth >= LMR_MIN_DEPTH && i >= LMR_MIN_MOVE_INDEX;
+                    score = searchMove(a, a, reduced ? depth - 2 : depth - 1, opponent, ply, bonus);
+                    if (reduced && score >= a) {
+                        score = searchMove(a, a, depth - 1, opponent, ply, bonus);
+                    }
+                    if (score > a && score <= b) {
+                        score = searchMove(a, b, depth - 1, opponent, ply, bonus);
+                    }
+                }
+                position.unmakeMove(move, undo);
+                if (stopped()) {
+                    return 0;
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                    pv[ply][ply] = move;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = pvLength[ply + 1];
+                }
                 a = Math.max(bestScore, a);
                 if (a > b) {
+                    cutoffs++;
+                    if (i == 0) {
+                        firstMoveCutoffs++;
+                    }
+                    addCutoff(player, move, depth, ply);
                     break;
                 }
-            } else if (player == ChessRules.PLAYER_BLACK) {
-                bestScore = Math.min(bestScore, score);
-                b = Math.min(bestScore, b);
-                if (b < a) {
+            }
+            if (count == 0) {
+                if (!position.playerInCheck(player)) {
+                    bestScore = 0;
+                }
+            }
+
+            if (transpositionTable != null) {
+                int bound = bestScore < alpha ? TranspositionTable.BOUND_UPPER : bestScore > beta ? TranspositionTable.BOUND_LOWER : TranspositionTable.BOUND_EXACT;
+                transpositionTable.store(key, depth, toTranspositionTable(bestScore, ply), bound, bound == TranspositionTable.BOUND_UPPER ? 0 : bestMove);
+            }
+            return bestScore;
+        }
+
+        /**
+         * Searches the position after a move of the player (already played on the position) and returns the score of the move from the view of the player.
+         * The window [a, b] is shifted by the bonus of the move, so that the bonus counts when deciding about cut-offs.
+         *
+         * @param opponent The player to move after the move
+         * @param ply      Distance of the position before the move to the root of the search
+         * @param bonus    See bonus()
+         */
+        private int searchMove(int a, int b, int depth, int opponent, int ply, int bonus) {
+            return bonus - negamax(bonus - b, bonus - a, depth, opponent, ply + 1);
+        }
+
+        /**
+         * @return analyzeBoard() from the view of the player.
+         */
+        private int analyze(int player) {
+            evaluations++;
+            int score = analyzeBoard(position);
+            return player == ChessRules.PLAYER_WHITE ? score : -score;
+        }
+
+        /**
+         * @param move The move which was just played by the player
+         * @return The ScoreBonusInMinmaxFunction of the move, from the view of the player.
+         */
+        private int bonus(int move, int player) {
+            int bonus = scoreBonusInMinmaxFunction.calculate(position.getBoard(), move, player, scoreBonusInMinmaxFunctionParams);
+            return player == ChessRules.PLAYER_WHITE ? bonus : -bonus;
+        }
+
+        /**
+         * <p>Quiescence-search: Only captures and promotions to a queen are played (all moves if the player is in check), until none are left
+         * or quiescenceDepth plies are reached. See setQuiescenceDepth().</p>
+         * <p>The side to move may stand pat: The analyzed position counts like a move, so a score is never worse than the position as it is.</p>
+         *
+         * @param depth 0 at the search-depth, it counts down by one every ply of the quiescence-search.
+         * @return The Score of the position after the captures, from the view of the player.
+         */
+        private int quiescence(int a, int b, int depth, int player, int ply) {
+            if (depth <= -quiescenceDepth) {
+                return analyze(player);
+            }
+            int[] moves = moveStack[ply];
+            boolean inCheck = position.playerInCheck(player);
+            int standPat = 0;
+            int bestScore;
+            int count;
+            if (inCheck) {
+                bestScore = -SCORE_MATE + ply;
+                count = generateMoves(player, moves, 0, ply);
+            } else {
+                standPat = analyze(player);
+                bestScore = standPat;
+                if (standPat > b) {
+                    return standPat;
+                }
+                a = Math.max(standPat, a);
+                count = position.getLegalCaptures(player, moves);
+                if (ordering != null) {
+                    ordering.orderMoves(position, player, moves, count, 0, ply);
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (!inCheck && deltaPruned(standPat, move, a)) {
+                    continue;
+                }
+                long undo = position.makeMove(move);
+                int score = searchMove(a, b, depth - 1, player ^ ChessRules.MASK_PLAYER, ply, bonus(move, player));
+                position.unmakeMove(move, undo);
+                if (stopped()) {
+                    return 0;
+                }
+                bestScore = Math.max(score, bestScore);
+                a = Math.max(bestScore, a);
+                if (a > b) {
                     break;
                 }
             }
+            return bestScore;
         }
-        if (moves.size() == 0) {
-            if (!ChessRules.pieceInCheck(board, ChessRules.findPiecePos(board, player, ChessRules.PIECE_KING), player)) {
-                bestScore = 0;
+
+        /**
+         * @return True if even winning the captured piece (plus DELTA_MARGIN) does not bring the score of the player up to alpha.
+         */
+        private boolean deltaPruned(int standPat, int move, int a) {
+            int[] board = position.getBoard();
+            int oldPos = ChessRules.getMoveOldPos(move);
+            int newPos = ChessRules.getMoveNewPos(move);
+            int gain = Math.abs(ChessRules.getPieceValue(board[newPos]));
+            if ((board[oldPos] & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN) {
+                if (gain == 0 && oldPos % 8 != newPos % 8) {
+                    // En passant
+                    gain = ChessRules.getPieceValue(ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_WHITE | ChessRules.PIECE_PAWN);
+                }
+                if (newPos < 8 || newPos >= 56) {
+                    gain += ChessRules.getPieceValue(ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_WHITE | ChessRules.PIECE_QUEEN)
+                            - ChessRules.getPieceValue(ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_WHITE | ChessRules.PIECE_PAWN);
+                }
             }
+            return standPat + gain + DELTA_MARGIN < a;
         }
 
-        return bestScore;
+        /**
+         * @return True if the player has a piece which is neither a pawn nor the king. Otherwise zugzwang is likely and no null move is played.
+         */
+        private boolean hasPiecesBesidesPawns(int player) {
+            return (position.getPlayerPieces(player) & ~position.getPieces(player, ChessRules.PIECE_PAWN) & ~position.getPieces(player, ChessRules.PIECE_KING)) != 0;
+        }
+
+        private boolean isKiller(int move, int ply) {
+            return ordering != null && (move == ordering.getKiller(ply, 0) || move == ordering.getKiller(ply, 1));
+        }
+
+        private void addCutoff(int player, int move, int depth, int ply) {
+            if (ordering != null) {
+                ordering.addCutoff(position, player, move, depth, ply);
+            }
+        }
+    }
+
+    /**
+     * Moves one move to the front of the buffer, so that it is searched first. The order of the other moves stays the same.
+     * Nothing happens if the move is not in the buffer.
+     */
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
     }
 
     /**
-     * @param board
+     * @param position
      * @param moves
      * @return
      */
-    private int getBestMoveFromEqualScored(int[] board, List<Integer> moves) {
+    private int getBestMoveFromEqualScored(Position position, List<Integer> moves) {
         if (moves.size() == 1)
             return moves.get(0);
         List<Integer> bestMoves = new ArrayList<>();
-        double bestScore = (player == ChessRules.PLAYER_WHITE) ? -1000000000 : 1000000000;
+        int bestScore = (player == ChessRules.PLAYER_WHITE) ? -SCORE_INFINITY : SCORE_INFINITY;
         for (int move : moves) {
-            int[] boardCopy = board.clone();
-            ChessRules.makeMove(boardCopy, move);
-            double score = analyzeBoard(boardCopy);
+            long undo = position.makeMove(move);
+            int score = analyzeBoard(position);
+            position.unmakeMove(move, undo);
             if (score == bestScore) {
                 bestMoves.add(move);
             } else if (player == ChessRules.PLAYER_WHITE && score > bestScore || player == ChessRules.PLAYER_BLACK && score < bestScore) {
@@ -189,32 +1601,95 @@ public abstract class AI_MinmaxAbstract extends Player {
     /**
      * <p>Analyzes the board based on the score for each piece left on it.</p>
      * <p>A positive score is in favor of the white player, a negative one for th black player.</p>
+     * <p>
+     * The score is in centipawns (a pawn is 100, see ChessRules.getPieceValue()), so the search compares, stores and adds up integers only.
+     * It has to stay well below SCORE_MATE, otherwise it would be taken for a mate.
+     * </p>
      *
      * @param board the board which needs to be analyzed.
-     * @return A score for the board.
+     * @return A score for the board in centipawns.
+     */
+    public abstract int analyzeBoard(int[] board);
+
+    /**
+     * <p>Analyzes a position of the search. By default the board-array of the position is passed to analyzeBoard(int[]).</p>
+     * <p>AIs can override this in order to use what the position keeps track of anyway, e.g. the number of pieces or the king-fields.</p>
+     *
+     * @param position the position which needs to be analyzed. It must not be changed.
+     * @return A score for the position.
+     */
+    public int analyzeBoard(Position position) {
+        return analyzeBoard(position.getBoard());
+    }
+
+    /**
+     * <p>The piece-square-table the positions of the search keep track of (see Position.setPieceSquareTable()), so that analyzeBoard(Position)
+     * gets the sum of it with Position.getPieceSquareScore() instead of looping over the board. By default there is none.</p>
+     *
+     * @return The table, null for none. The same array on every call, it is not copied.
      */
-    public abstract double analyzeBoard(int[] board);
+    protected int[] getPieceSquareTable() {
+        return null;
+    }
 
 
-    public static double calculateScoreBonusInMinmax_Castling(int[] board, int lastMove, int player, double... params) {
+    public static int calculateScoreBonusInMinmax_Castling(int[] board, int lastMove, int player, int... params) {
         if (params.length < 1) {
-            return 0f;
+            return 0;
         }
-        double castlingBonus = params[0];
+        int castlingBonus = params[0];
         if ((board[ChessRules.getMoveOldPos(lastMove)] & ChessRules.MASK_PIECE) == ChessRules.PIECE_KING && (board[ChessRules.getMoveOldPos(lastMove)] & ChessRules.MASK_HAS_MOVED) == 0) {
             return ChessRules.isCastlingMove(board, lastMove) ^ (player == ChessRules.PLAYER_BLACK) ? castlingBonus : -castlingBonus;
         }
-        return 0f;
+        return 0;
+    }
+
+    public static int calculateScoreBonusInMinmax_NoBonus(int[] board, int lastMove, int player, int... params) {
+        return 0;
+    }
+
+    /**
+     * How several workers split the search, see setThreads().
+     */
+    public enum ParallelSearch {
+        /**
+         * The root-moves are split between the workers. The best root-score is shared between them, so later root-moves are still pruned.
+         * The first root-move is searched alone first, so that the workers start with a good bound.
+         */
+        ROOT_MOVES,
+        /**
+         * Lazy SMP: All workers search the whole tree, the helpers half of the time one layer deeper and each starting with a different root-move.
+         * They only communicate through the shared transposition-table: The main worker takes the results of the helpers from it.
+         */
+        LAZY_SMP
     }
 
-    public static double calculateScoreBonusInMinmax_NoBonus(int[] board, int lastMove, int player, double... params) {
-        return 0f;
+    /**
+     * Gets the statistics of the searches of an AI, see addSearchListener(). SearchStatistics.add() sums them up, e.g. for all games of a tournament.
+     */
+    @FunctionalInterface
+    public interface SearchListener {
+
+        /**
+         * Called after each completed iteration, on the thread which searches (with pondering also in the background).
+         *
+         * @param depth      The depth of the iteration
+         * @param statistics The statistics of the search up to this iteration
+         */
+        default void iterationCompleted(int depth, SearchStatistics statistics) {
+        }
+
+        /**
+         * Called at the end of decideOnMove() with the statistics of the search the move was taken from.
+         */
+        void searchCompleted(SearchStatistics statistics);
+
     }
 
     @FunctionalInterface
     public interface ScoreBonusInMinmaxFunction {
 
-        double calculate(int[] board, int lastMove, int player, double... params);
+        int calculate(int[] board, int lastMove, int player, int... params);
 
     }
 
@@ -0,0 +1,215 @@
+package program.players.ais.v2;
+
+import program.Bitboards;
+import program.ChessRules;
+import program.Position;
+
+import java.util.Arrays;
+
+import static program.ChessRules.*;
+
+/**
+ * <p>Sorts the moves of a node of the search by how likely they are to be the best one, so that alpha-beta can prune as early as possible.</p>
+ * <p>
+ * Each move gets a score, the moves are then sorted by it (highest first):
+ * <ol>
+ *     <li>The hash move, i.e. the best move the transposition-table knows for the position.</li>
+ *     <li>Captures and promotions to a queen by MVV-LVA (most valuable victim, least valuable attacker): PxQ before QxQ before QxP.</li>
+ *     <li>The two killer moves of the ply: Quiet moves which caused a cut-off in a sibling node, so they will probably do it again.</li>
+ *     <li>All other moves by the history-table: How much each move (from-field to to-field) caused cut-offs anywhere in the tree so far.</li>
+ * </ol>
+ * Moves with the same score keep the order of the move generator.
+ * </p>
+ * <p>
+ * The scores are written into a buffer of the ply, and both buffers are sorted in place, so ordering allocates nothing.
+ * Killers and history are learned during the search: Every worker needs its own MoveOrdering. It is kept for the next search of the game, see age().
+ * </p>
+ */
+public class MoveOrdering {
+
+    /**
+     * Number of killer moves kept per ply.
+     */
+    public static final int KILLERS_PER_PLY = 2;
+
+    private static final int SCORE_HASH_MOVE = 1 << 30;
+    private static final int SCORE_CAPTURE = 1 << 29;
+    private static final int SCORE_KILLER = 1 << 28;
+
+    /**
+     * If a history-value gets bigger than this, all values of the player are halved. This keeps them below SCORE_KILLER
+     * and lets newer cut-offs count more than old ones.
+     */
+    private static final int HISTORY_MAX = 1 << 20;
+
+    private final int[][] killers;
+    private final int[][] history = new int[2][64 * 64];
+    private final int[][] scoreStack;
+
+    /**
+     * @param maxPly Number of plies (distance to the root) the search can reach. One score-buffer and the killers are kept per ply.
+     */
+    public MoveOrdering(int maxPly) {
+        killers = new int[maxPly][KILLERS_PER_PLY];
+        scoreStack = new int[maxPly][ChessRules.MAX_MOVES];
+    }
+
+    /**
+     * Sorts the moves of a node, the best ones first.
+     *
+     * @param position The position the moves are played on
+     * @param player   The player who takes the moves
+     * @param moves    The move-buffer. The first count moves are sorted in place.
+     * @param count    Number of moves in the buffer
+     * @param hashMove Move which is searched first, 0 if there is none
+     * @param ply      Distance to the root of the search
+     */
+    public void orderMoves(Position position, int player, int[] moves, int count, int hashMove, int ply) {
+        int[] board = position.getBoard();
+        int[] scores = scoreStack[ply];
+        int[] killersOfPly = killers[ply];
+        int[] historyOfPlayer = history[Bitboards.side(player)];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove) {
+                score = SCORE_HASH_MOVE;
+            } else if (!isQuiet(board, move)) {
+                score = SCORE_CAPTURE + captureScore(board, move);
+            } else if (move == killersOfPly[0]) {
+                score = SCORE_KILLER + 1;
+            } else if (move == killersOfPly[1]) {
+                score = SCORE_KILLER;
+            } else {
+                score = historyOfPlayer[historyIndex(move)];
+            }
+            scores[i] = score;
+        }
+        sort(moves, scores, count);
+    }
+
+    /**
+     * Insertion-sort of both buffers by the scores, highest first. It is stable and fast for the few moves of a node.
+     */
+    private static void sort(int[] moves, int[] scores, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * MVV-LVA: The value of the victim counts most, the value of the attacker decides between captures of the same piece-type.
+     * A promotion to a queen counts as if a queen was captured.
+     */
+    private static int captureScore(int[] board, int move) {
+        int attacker = board[getMoveOldPos(move)] & MASK_PIECE;
+        int target = board[getMoveNewPos(move)];
+        // A pawn moving diagonally onto an empty field captures en passant
+        int victim = (target & MASK_SET_FIELD) > 0 ? target & MASK_PIECE : (attacker == PIECE_PAWN && isDiagonal(move) ? PIECE_PAWN : 0);
+        if (isQueenPromotion(board, move)) {
+            victim += PIECE_QUEEN;
+        }
+        return victim * 8 - attacker;
+    }
+
+    /**
+     * @return True if the move neither captures a piece nor promotes a pawn to a queen. Under-promotions count as quiet.
+     */
+    public static boolean isQuiet(int[] board, int move) {
+        int newPos = getMoveNewPos(move);
+        if ((board[newPos] & MASK_SET_FIELD) > 0)
+            return false;
+        if ((board[getMoveOldPos(move)] & MASK_PIECE) != PIECE_PAWN)
+            return true;
+        return !isDiagonal(move) && !isQueenPromotion(board, move);
+    }
+
+    private static boolean isDiagonal(int move) {
+        return getMoveOldPos(move) % 8 != getMoveNewPos(move) % 8;
+    }
+
+    private static boolean isQueenPromotion(int[] board, int move) {
+        int newPos = getMoveNewPos(move);
+        return (board[getMoveOldPos(move)] & MASK_PIECE) == PIECE_PAWN && (newPos < 8 || newPos >= 56) && getMovePromotion(move) == PIECE_QUEEN;
+    }
+
+    /**
+     * Called when a move caused a cut-off. Quiet moves become the first killer of the ply and their history-value grows by depth * depth.
+     *
+     * @param position The position the move was played on (with the move taken back again)
+     * @param player   The player who took the move
+     * @param move     The move which caused the cut-off
+     * @param depth    The remaining search-depth of the node. Cut-offs close to the root save more work, so they count more.
+     * @param ply      Distance to the root of the search
+     */
+    public void addCutoff(Position position, int player, int move, int depth, int ply) {
+        if (!isQuiet(position.getBoard(), move))
+            return;
+        int[] killersOfPly = killers[ply];
+        if (killersOfPly[0] != move) {
+            killersOfPly[1] = killersOfPly[0];
+            killersOfPly[0] = move;
+        }
+        int[] historyOfPlayer = history[Bitboards.side(player)];
+        int index = historyIndex(move);
+        historyOfPlayer[index] += depth * depth;
+        if (historyOfPlayer[index] > HISTORY_MAX) {
+            for (int i = 0; i < historyOfPlayer.length; i++) {
+                historyOfPlayer[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * @return The killer move of the ply in the given slot (0 is the newest one), 0 if there is none.
+     */
+    public int getKiller(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    /**
+     * @return The history-value of a move of the player.
+     */
+    public int getHistory(int player, int move) {
+        return history[Bitboards.side(player)][historyIndex(move)];
+    }
+
+    /**
+     * Called between two searches of the same game: The killers belong to the plies of the last search and are forgotten,
+     * the history-values are halved, so that what was learned in the last search still counts, but less than the new cut-offs.
+     */
+    public void age() {
+        for (int[] killersOfPly : killers) {
+            Arrays.fill(killersOfPly, 0);
+        }
+        for (int[] historyOfPlayer : history) {
+            for (int i = 0; i < historyOfPlayer.length; i++) {
+                historyOfPlayer[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Forgets all killers and history-values.
+     */
+    public void clear() {
+        for (int[] killersOfPly : killers) {
+            Arrays.fill(killersOfPly, 0);
+        }
+        Arrays.fill(history[0], 0);
+        Arrays.fill(history[1], 0);
+    }
+
+    private static int historyIndex(int move) {
+        return getMoveOldPos(move) * 64 + getMoveNewPos(move);
+    }
+}
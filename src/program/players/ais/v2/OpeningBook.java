@@ -0,0 +1,159 @@
+package program.players.ais.v2;
+
+import program.ChessRules;
+import program.Position;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * <p>Opening-book read from a binary file, which is built from a PGN-database by OpeningBookBuilder.
+ * AI_MinmaxAbstract plays a move of the book instead of searching as long as the position is in it (see AI_MinmaxAbstract.setOpeningBook()).</p>
+ * <p>
+ * The file is a header (MAGIC, VERSION and the number of entries) followed by the entries, each a long and two ints:
+ * The Zobrist-key of the position (see Position.getKey()), a move and its weight, i.e. how often the move was played in the position.
+ * The entries are sorted by key (and by move for the same key), so all moves of a position are next to each other and are found by binary search.
+ * </p>
+ * <p>
+ * The file is memory-mapped instead of read: Opening the book costs nothing, the operating system loads the pages which are looked up
+ * and shares them between all AIs and processes which use the same file. getMoves() allocates nothing, and the book can be used by many threads.
+ * </p>
+ */
+public class OpeningBook {
+
+    /**
+     * First int of a book-file.
+     */
+    public static final int MAGIC = 0x43414F42;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 4 + 4 + 8;
+    public static final int BYTES_PER_ENTRY = 8 + 4 + 4;
+
+    /**
+     * Where OpeningBookBuilder puts the book built from the database of PlayPGN_SaveMoves.
+     */
+    public static final String DEFAULT_PATH = "src/data/dataset/openingBook.bin";
+
+    /**
+     * Moves of one position are never more than this.
+     */
+    private static final int MAX_MOVES_PER_POSITION = ChessRules.MAX_MOVES;
+
+    private final MappedByteBuffer buffer;
+    private final int entries;
+
+    private OpeningBook(MappedByteBuffer buffer, int entries) {
+        this.buffer = buffer;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps a book-file into memory.
+     *
+     * @param file The file written by OpeningBookBuilder
+     * @return The book
+     * @throws IOException If the file cannot be read or is no book-file
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE)
+                throw new IOException("Not an opening-book: " + file);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("Not an opening-book of version " + VERSION + ": " + file);
+            long entries = buffer.getLong(8);
+            if (HEADER_BYTES + entries * BYTES_PER_ENTRY != size)
+                throw new IOException("Opening-book is truncated: " + file);
+            return new OpeningBook(buffer, (int) entries);
+        }
+    }
+
+    /**
+     * @return Number of entries (positions and moves) in the book.
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Looks up all moves of a position.
+     *
+     * @param key     Zobrist-key of the position
+     * @param moves   Filled with the moves of the position
+     * @param weights Filled with the weights of the moves
+     * @return Number of moves found, 0 if the position is not in the book.
+     */
+    public int getMoves(long key, int[] moves, int[] weights) {
+        int count = 0;
+        for (int i = findFirst(key); i < entries && getKey(i) == key && count < moves.length; i++) {
+            int offset = HEADER_BYTES + i * BYTES_PER_ENTRY;
+            moves[count] = buffer.getInt(offset + 8);
+            weights[count] = buffer.getInt(offset + 12);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Chooses a move of the book for a board. A move is chosen with a probability proportional to its weight,
+     * so the AI plays the openings as often as they were played in the games the book was built from. Moves which are not legal on the board
+     * (if another position has the same key) are skipped.
+     *
+     * @param board  The current board-array
+     * @param player The player to move
+     * @param random Source of the randomness
+     * @return The move, 0 if the position is not in the book.
+     */
+    public int chooseMove(int[] board, int player, Random random) {
+        long key = new Position(board, player).getKey();
+        int[] moves = new int[MAX_MOVES_PER_POSITION];
+        int[] weights = new int[MAX_MOVES_PER_POSITION];
+        int count = getMoves(key, moves, weights);
+        long totalWeight = 0;
+        for (int i = 0; i < count; i++) {
+            if (!ChessRules.moveIsLegal(board, moves[i])) {
+                weights[i] = 0;
+            }
+            totalWeight += weights[i];
+        }
+        if (totalWeight == 0) {
+            return 0;
+        }
+        long chosen = (long) (random.nextDouble() * totalWeight);
+        for (int i = 0; i < count; i++) {
+            chosen -= weights[i];
+            if (chosen < 0) {
+                return moves[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return Index of the first entry with the key, or of the first entry with a greater key if there is none.
+     */
+    private int findFirst(long key) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getKey(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long getKey(int index) {
+        return buffer.getLong(HEADER_BYTES + index * BYTES_PER_ENTRY);
+    }
+}
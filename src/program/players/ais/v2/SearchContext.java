@@ -0,0 +1,124 @@
+package program.players.ais.v2;
+
+import program.ChessRules;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>What AI_MinmaxAbstract keeps from one search to the next during a game (see AI_MinmaxAbstract.setPersistentSearch()):</p>
+ * <ul>
+ *     <li>The transposition-table. Each search starts a new generation of it instead of clearing it (see TranspositionTable.newSearch()).</li>
+ *     <li>The killers and history of each worker, which are aged between the searches (see MoveOrdering.age()).</li>
+ *     <li>The principal variation of the last search: If both players played along it, its third move is searched first at the root.</li>
+ * </ul>
+ * <p>
+ * Most positions of a search were already searched in the search of the move before, two plies deeper in the tree and with the same remaining depth
+ * two plies less. Their results and best moves are still in the table.
+ * </p>
+ */
+final class SearchContext {
+
+    private final TranspositionTable transpositionTable;
+    private final MoveOrdering[] orderings;
+
+    /**
+     * The board after the first two moves of the last principal variation, and the third move, 0 if there is none.
+     */
+    private int[] expectedBoard;
+    private int expectedMove;
+
+    private final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+
+    /**
+     * @param transpositionTableMegabytes Size of the transposition-table, 0 for none.
+     * @param workers                     Number of workers of the search
+     * @param moveOrdering                False if the workers do not use MoveOrdering
+     * @param maxPly                      Number of plies the search can reach
+     */
+    SearchContext(int transpositionTableMegabytes, int workers, boolean moveOrdering, int maxPly) {
+        transpositionTable = transpositionTableMegabytes > 0 ? new TranspositionTable(transpositionTableMegabytes) : null;
+        orderings = new MoveOrdering[workers];
+        if (moveOrdering) {
+            for (int i = 0; i < workers; i++) {
+                orderings[i] = new MoveOrdering(maxPly);
+            }
+        }
+    }
+
+    /**
+     * @return The transposition-table, null if there is none.
+     */
+    TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * @return The MoveOrdering of a worker, null without move-ordering.
+     */
+    MoveOrdering getOrdering(int worker) {
+        return orderings[worker];
+    }
+
+    /**
+     * Called before each search which goes on with what the last searches have learned.
+     */
+    void newSearch() {
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+        for (MoveOrdering ordering : orderings) {
+            if (ordering != null) {
+                ordering.age();
+            }
+        }
+    }
+
+    /**
+     * Forgets everything, as if the context was new.
+     */
+    void clear() {
+        if (transpositionTable != null) {
+            transpositionTable.clear();
+        }
+        for (MoveOrdering ordering : orderings) {
+            if (ordering != null) {
+                ordering.clear();
+            }
+        }
+        expectedBoard = null;
+    }
+
+    /**
+     * Keeps the principal variation of a search for the next one.
+     *
+     * @param board              The board of the search
+     * @param principalVariation The principal variation, starting with the move of the AI
+     */
+    void setPrincipalVariation(int[] board, List<Integer> principalVariation) {
+        expectedBoard = null;
+        if (principalVariation.size() < 3) {
+            return;
+        }
+        expectedBoard = board.clone();
+        ChessRules.makeMove(expectedBoard, principalVariation.get(0));
+        ChessRules.makeMove(expectedBoard, principalVariation.get(1));
+        expectedMove = principalVariation.get(2);
+    }
+
+    /**
+     * @param board The board at the root of a search
+     * @param key   Its Zobrist-key
+     * @return The move to search first at the root: The next move of the last principal variation if both players played along it,
+     * otherwise the best move the transposition-table knows for the position. 0 if there is none.
+     */
+    int getRootMove(int[] board, long key) {
+        if (expectedBoard != null && Arrays.equals(board, expectedBoard)) {
+            return expectedMove;
+        }
+        if (transpositionTable != null && transpositionTable.probe(key, entry)) {
+            return entry.getMove();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,184 @@
+package program.players.ais.v2;
+
+/**
+ * <p>Counters of one or more searches of AI_MinmaxAbstract, see AI_MinmaxAbstract.SearchListener.</p>
+ * <p>
+ * The AI creates one after each completed iteration (counting the search up to it) and one at the end of each search.
+ * add() sums up the statistics of many searches, e.g. all moves of the games of a tournament. It is synchronized,
+ * so one object can collect the searches of AIs playing in different threads.
+ * </p>
+ * <p>
+ * Nodes are calls of negamax(), including the quiescence-search. Cut-offs and hash-probes are only counted in negamax() (not in the quiescence-search).
+ * </p>
+ */
+public class SearchStatistics {
+
+    private int searches;
+    private long depths;
+    private long nodes;
+    private long evaluations;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private long hashProbes;
+    private long hashHits;
+    private long nanos;
+
+    /**
+     * Nodes of the deepest iteration and of the iteration before it, for the effective branching factor.
+     */
+    private long lastIterationNodes;
+    private long previousIterationNodes;
+
+    /**
+     * Time and number of the iterations, by depth.
+     */
+    private final long[] iterationNanos = new long[AI_MinmaxAbstract.MAX_SEARCH_DEPTH + 1];
+    private final int[] iterations = new int[AI_MinmaxAbstract.MAX_SEARCH_DEPTH + 1];
+
+    /**
+     * Creates empty statistics, to which searches can be added with add().
+     */
+    public SearchStatistics() {
+    }
+
+    /**
+     * Statistics of a single search, filled by AI_MinmaxAbstract.
+     */
+    SearchStatistics(int depth, long nodes, long evaluations, long cutoffs, long firstMoveCutoffs, long hashProbes, long hashHits, long nanos) {
+        this.searches = 1;
+        this.depths = depth;
+        this.nodes = nodes;
+        this.evaluations = evaluations;
+        this.cutoffs = cutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.hashProbes = hashProbes;
+        this.hashHits = hashHits;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Sets the nodes and the time of the completed iterations of a single search.
+     *
+     * @param iterationNodes Nodes of the iterations, index 1 for depth 1
+     * @param iterationNanos Time of the iterations in nanoseconds, index 1 for depth 1
+     */
+    void setIterations(long[] iterationNodes, long[] iterationNanos) {
+        int depth = (int) depths;
+        for (int i = 1; i <= depth; i++) {
+            this.iterationNanos[i] = iterationNanos[i];
+            this.iterations[i] = 1;
+        }
+        lastIterationNodes = depth >= 2 ? iterationNodes[depth] : 0;
+        previousIterationNodes = depth >= 2 ? iterationNodes[depth - 1] : 0;
+    }
+
+    /**
+     * Adds the counters of other statistics to these ones.
+     *
+     * @param other Statistics of a search or of many searches, which do not change meanwhile
+     */
+    public synchronized void add(SearchStatistics other) {
+        searches += other.searches;
+        depths += other.depths;
+        nodes += other.nodes;
+        evaluations += other.evaluations;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        hashProbes += other.hashProbes;
+        hashHits += other.hashHits;
+        nanos += other.nanos;
+        lastIterationNodes += other.lastIterationNodes;
+        previousIterationNodes += other.previousIterationNodes;
+        for (int i = 0; i < iterations.length; i++) {
+            iterationNanos[i] += other.iterationNanos[i];
+            iterations[i] += other.iterations[i];
+        }
+    }
+
+    /**
+     * @return Number of searches (moves) counted.
+     */
+    public synchronized int getSearches() {
+        return searches;
+    }
+
+    /**
+     * @return The average depth of the deepest iteration the searches completed.
+     */
+    public synchronized double getAverageDepth() {
+        return searches == 0 ? 0 : (double) depths / searches;
+    }
+
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return Number of calls of analyzeBoard() by the search.
+     */
+    public synchronized long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return Number of positions in negamax() which were cut off, since a move scored above beta.
+     */
+    public synchronized long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * @return Share of the cut-offs which came from the first move searched (between 0 and 1). The higher, the better the move-ordering.
+     */
+    public synchronized double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public synchronized long getHashProbes() {
+        return hashProbes;
+    }
+
+    /**
+     * @return Share of the probes of the transposition-table which found the position (between 0 and 1).
+     */
+    public synchronized double getHashHitRate() {
+        return hashProbes == 0 ? 0 : (double) hashHits / hashProbes;
+    }
+
+    /**
+     * @return Time of the searches in nanoseconds.
+     */
+    public synchronized long getNanos() {
+        return nanos;
+    }
+
+    public synchronized double getNodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+
+    /**
+     * @return The nodes of the deepest iteration divided by the nodes of the iteration before it. Searches which completed only depth 1 are not counted.
+     */
+    public synchronized double getEffectiveBranchingFactor() {
+        return previousIterationNodes == 0 ? 0 : (double) lastIterationNodes / previousIterationNodes;
+    }
+
+    /**
+     * @param depth Depth of the iteration
+     * @return The average time of the iterations with this depth in milliseconds, 0 if none was completed.
+     */
+    public synchronized double getAverageIterationMillis(int depth) {
+        return iterations[depth] == 0 ? 0 : iterationNanos[depth] / 1e6 / iterations[depth];
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder(String.format(
+                "SearchStatistics[%,d searches, depth %.2f, %,d nodes, %,.0f nodes/s, %,d evaluations, %,d cut-offs (%.1f%% first move), hash hits %.1f%%, branching factor %.2f, ms per iteration:",
+                searches, getAverageDepth(), nodes, getNodesPerSecond(), evaluations, cutoffs, 100 * getFirstMoveCutoffRate(), 100 * getHashHitRate(), getEffectiveBranchingFactor()));
+        for (int depth = 1; depth < iterations.length && iterations[depth] > 0; depth++) {
+            builder.append(String.format(" %d: %.1f", depth, getAverageIterationMillis(depth)));
+        }
+        return builder.append(']').toString();
+    }
+}
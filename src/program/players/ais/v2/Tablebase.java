@@ -0,0 +1,444 @@
+package program.players.ais.v2;
+
+import program.ChessRules;
+import program.Position;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Endgame-tablebases: For every position of a few pieces the exact result with best play, read from files built by TablebaseGenerator.
+ * AI_MinmaxAbstract takes the result from here instead of searching as soon as a position with few enough pieces is reached (see AI_MinmaxAbstract.setTablebase()).</p>
+ * <p>
+ * There is one file per material, e.g. KQK.tb or KRKB.tb (the pieces of white, then the ones of black). A position where black has the material of white
+ * is looked up mirrored: The board is flipped vertically and the colors are swapped. A file is a header (MAGIC, VERSION and the number of pieces)
+ * followed by one byte per position, at the index of Material.getIndex(): 0 is a draw, otherwise the distance to mate in plies + 1. An odd distance is a win
+ * for the player to move, an even one a loss (0 is checkmate). ILLEGAL marks the indices which are no legal positions.
+ * </p>
+ * <p>
+ * The files are memory-mapped: The operating system loads the pages which are probed and shares them between all AIs and processes. probe() allocates nothing
+ * and can be called by many threads. Castling-rights, en passant and the fifty-move rule are not part of the tables.
+ * </p>
+ */
+public class Tablebase {
+
+    /**
+     * First int of a tablebase-file.
+     */
+    public static final int MAGIC = 0x43415442;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    /**
+     * Positions with more pieces (kings included) have no tables, since the file would not fit into a mapped buffer.
+     */
+    public static final int MAX_PIECES = 4;
+
+    public static final String FILE_EXTENSION = ".tb";
+
+    /**
+     * Where TablebaseGenerator puts the tables by default.
+     */
+    public static final String DEFAULT_PATH = "src/data/tablebases";
+
+    public static final byte DRAW = 0;
+    public static final byte ILLEGAL = (byte) 0xFF;
+
+    /**
+     * Longest distance to mate in plies a table can store. The byte-values above it are ILLEGAL and one value the TablebaseGenerator uses while it works.
+     */
+    public static final int MAX_DISTANCE = 252;
+
+    /**
+     * Returned by probe() if there is no table for the position.
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    private final Material[] materials;
+    private final MappedByteBuffer[] buffers;
+    private final int maxPieces;
+
+    private Tablebase(List<Material> materials, List<MappedByteBuffer> buffers) {
+        this.materials = materials.toArray(new Material[0]);
+        this.buffers = buffers.toArray(new MappedByteBuffer[0]);
+        int max = 0;
+        for (Material material : materials) {
+            max = Math.max(max, material.getPieceCount());
+        }
+        this.maxPieces = max;
+    }
+
+    /**
+     * Maps all tablebase-files of a directory into memory.
+     *
+     * @param directory The directory the TablebaseGenerator has written the files into
+     * @return The tablebases, which has no tables if there are no files
+     * @throws IOException If a file cannot be read or is no tablebase-file
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        List<Material> materials = new ArrayList<>();
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Material material = new Material(name.substring(0, name.length() - FILE_EXTENSION.length()));
+                buffers.add(map(file, material));
+                materials.add(material);
+            }
+        }
+        return new Tablebase(materials, buffers);
+    }
+
+    private static MappedByteBuffer map(Path file, Material material) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + (long) material.size())
+                throw new IOException("Tablebase has the wrong size: " + file);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != material.getPieceCount())
+                throw new IOException("Not a tablebase of version " + VERSION + ": " + file);
+            return buffer;
+        }
+    }
+
+    /**
+     * @return Number of pieces (kings included) of the biggest table, 0 if there is none.
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return The names of the materials which have a table, e.g. KQK.
+     */
+    public List<String> getMaterials() {
+        List<String> names = new ArrayList<>();
+        for (Material material : materials) {
+            names.add(material.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Looks up the value of a position as stored in the table.
+     *
+     * @param position The position
+     * @return DRAW, ILLEGAL or the distance to mate in plies + 1 (see the class-comment), -1 if there is no table for the material.
+     */
+    public int probeValue(Position position) {
+        if (position.countPieces() > maxPieces) {
+            return -1;
+        }
+        long code = Material.getCode(position);
+        for (int i = 0; i < materials.length; i++) {
+            Material material = materials[i];
+            if (material.getCode() == code || material.getMirroredCode() == code) {
+                int index = material.getIndex(position, material.getCode() != code);
+                return buffers[i].get(HEADER_BYTES + index) & 0xFF;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Looks up the exact score of a position, in the form the search uses (see AI_MinmaxAbstract.SCORE_MATE).
+     *
+     * @param position The position
+     * @param ply      Distance of the position to the root of the search
+     * @return The score from the view of the player to move: 0 for a draw, SCORE_MATE - (ply + distance) for a win and the negated one for a loss.
+     * NOT_FOUND if there is no table for the position.
+     */
+    public int probe(Position position, int ply) {
+        int value = probeValue(position);
+        if (value < 0 || value == (ILLEGAL & 0xFF)) {
+            return NOT_FOUND;
+        }
+        if (value == DRAW) {
+            return 0;
+        }
+        int distance = value - 1;
+        return (distance & 1) == 1 ? AI_MinmaxAbstract.SCORE_MATE - ply - distance : -AI_MinmaxAbstract.SCORE_MATE + ply + distance;
+    }
+
+    /**
+     * Chooses the best moves of a position from the tables: The wins with the shortest distance to mate, otherwise the draws,
+     * otherwise the losses with the longest distance to mate.
+     *
+     * @param position The position, which is the same again when the method returns
+     * @param best     Filled with the best moves
+     * @return Number of best moves, 0 if the position or one of the positions after its moves has no table.
+     */
+    public int getBestMoves(Position position, int[] best) {
+        int player = position.getPlayerToMove();
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int count = position.getLegalMoves(player, moves);
+        if (count == 0 || probe(position, 0) == NOT_FOUND) {
+            return 0;
+        }
+        int bestScore = Integer.MIN_VALUE;
+        int bestCount = 0;
+        for (int i = 0; i < count; i++) {
+            long undo = position.makeMove(moves[i]);
+            int score = position.countPieces() <= 2 ? 0 : probe(position, 1);
+            position.unmakeMove(moves[i], undo);
+            if (score == NOT_FOUND) {
+                return 0;
+            }
+            score = -score;
+            if (score > bestScore) {
+                bestScore = score;
+                bestCount = 0;
+            }
+            if (score == bestScore) {
+                best[bestCount++] = moves[i];
+            }
+        }
+        return bestCount;
+    }
+
+    /**
+     * <p>The pieces of a table and the index of each position in it.</p>
+     * <p>
+     * The index is made of the fields of the pieces in the order of the name (white king, the other white pieces, black king, the other black pieces),
+     * 6 bits each, and the player to move as the lowest bit. Several pieces of the same type and color take their fields in ascending order.
+     * So a table of n pieces has 2 * 64^n entries, many of them ILLEGAL, but an index is computed with a few shifts.
+     * </p>
+     */
+    public static final class Material {
+
+        private static final String PIECE_LETTERS = " PNBRQK";
+
+        private final String name;
+        private final int[] cells;
+        private final long code;
+        private final long mirroredCode;
+
+        /**
+         * @param name The pieces of white and of black, each starting with the king, e.g. KQK or KBNK
+         * @throws IllegalArgumentException If the name is no material or has more than MAX_PIECES pieces
+         */
+        public Material(String name) {
+            int blackKing = name.indexOf('K', 1);
+            if (!name.startsWith("K") || blackKing < 0 || name.length() > MAX_PIECES || name.length() < 3)
+                throw new IllegalArgumentException("No material with at most " + MAX_PIECES + " pieces: " + name);
+            this.name = name;
+            cells = new int[name.length()];
+            long code = 0;
+            long mirroredCode = 0;
+            for (int i = 0; i < name.length(); i++) {
+                int piece = PIECE_LETTERS.indexOf(name.charAt(i));
+                if (piece <= 0 || (piece == ChessRules.PIECE_KING && i != 0 && i != blackKing))
+                    throw new IllegalArgumentException("No material: " + name);
+                int player = i < blackKing ? ChessRules.PLAYER_WHITE : ChessRules.PLAYER_BLACK;
+                cells[i] = player | piece;
+                if (piece != ChessRules.PIECE_KING) {
+                    code += 1L << codeShift(player, piece);
+                    mirroredCode += 1L << codeShift(player ^ ChessRules.MASK_PLAYER, piece);
+                }
+            }
+            // The pieces of a player have to be sorted from the queen to the pawn, so every material has one name
+            if (!name.equals(sortPieces(name.substring(0, blackKing)) + sortPieces(name.substring(blackKing))))
+                throw new IllegalArgumentException("Pieces are not sorted: " + name);
+            this.code = code;
+            this.mirroredCode = mirroredCode;
+        }
+
+        private static int codeShift(int player, int piece) {
+            return ((player == ChessRules.PLAYER_WHITE ? 0 : 5) + piece - 1) * 4;
+        }
+
+        /**
+         * @return The number of pieces of each type and color other than the kings, 4 bits each.
+         */
+        public static long getCode(Position position) {
+            long code = 0;
+            for (int piece = ChessRules.PIECE_PAWN; piece < ChessRules.PIECE_KING; piece++) {
+                code += (long) Long.bitCount(position.getPieces(ChessRules.PLAYER_WHITE, piece)) << codeShift(ChessRules.PLAYER_WHITE, piece);
+                code += (long) Long.bitCount(position.getPieces(ChessRules.PLAYER_BLACK, piece)) << codeShift(ChessRules.PLAYER_BLACK, piece);
+            }
+            return code;
+        }
+
+        /**
+         * @return The name of the material of a position, with the stronger side (by the value of the pieces) as white, e.g. KRK for a black rook.
+         */
+        public static String getName(Position position) {
+            return canonicalName(getPieces(position, ChessRules.PLAYER_WHITE) + getPieces(position, ChessRules.PLAYER_BLACK));
+        }
+
+        private static String getPieces(Position position, int player) {
+            StringBuilder pieces = new StringBuilder("K");
+            for (int piece = ChessRules.PIECE_QUEEN; piece >= ChessRules.PIECE_PAWN; piece--) {
+                pieces.append(String.valueOf(PIECE_LETTERS.charAt(piece)).repeat(Long.bitCount(position.getPieces(player, piece))));
+            }
+            return pieces.toString();
+        }
+
+        /**
+         * @param name The pieces of white and of black, e.g. KKR
+         * @return The same material with the pieces of each side sorted and the stronger side as white, e.g. KRK. The table of it covers both.
+         */
+        public static String canonicalName(String name) {
+            int blackKing = name.indexOf('K', 1);
+            String white = sortPieces(name.substring(0, blackKing));
+            String black = sortPieces(name.substring(blackKing));
+            int whiteValue = pieceValue(white);
+            int blackValue = pieceValue(black);
+            if (blackValue > whiteValue || (blackValue == whiteValue && black.compareTo(white) > 0)) {
+                return black + white;
+            }
+            return white + black;
+        }
+
+        private static String sortPieces(String pieces) {
+            StringBuilder sorted = new StringBuilder("K");
+            for (int piece = ChessRules.PIECE_QUEEN; piece >= ChessRules.PIECE_PAWN; piece--) {
+                char letter = PIECE_LETTERS.charAt(piece);
+                for (int i = 0; i < pieces.length(); i++) {
+                    if (pieces.charAt(i) == letter) {
+                        sorted.append(letter);
+                    }
+                }
+            }
+            return sorted.toString();
+        }
+
+        private static int pieceValue(String pieces) {
+            int value = 0;
+            for (int i = 1; i < pieces.length(); i++) {
+                value += ChessRules.getPieceValue(ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_WHITE | PIECE_LETTERS.indexOf(pieces.charAt(i)));
+            }
+            return value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPieceCount() {
+            return cells.length;
+        }
+
+        /**
+         * @return Number of entries of the table.
+         */
+        public int size() {
+            return 2 << (6 * cells.length);
+        }
+
+        public long getCode() {
+            return code;
+        }
+
+        /**
+         * @return The code of the material with the colors swapped.
+         */
+        public long getMirroredCode() {
+            return mirroredCode;
+        }
+
+        /**
+         * @param position A position of this material, or of the mirrored one
+         * @param mirrored True if the position has the mirrored material: It is flipped vertically and the colors are swapped.
+         * @return The index of the position in the table
+         */
+        public int getIndex(Position position, boolean mirrored) {
+            int index = 0;
+            long bits = 0;
+            for (int i = 0; i < cells.length; i++) {
+                if (i == 0 || cells[i] != cells[i - 1]) {
+                    int player = mirrored ? (cells[i] & ChessRules.MASK_PLAYER) ^ ChessRules.MASK_PLAYER : cells[i] & ChessRules.MASK_PLAYER;
+                    bits = position.getPieces(player, cells[i] & ChessRules.MASK_PIECE);
+                    // Flipping the board vertically reverses the order of the ranks, i.e. of the bytes
+                    if (mirrored)
+                        bits = Long.reverseBytes(bits);
+                }
+                index = (index << 6) | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+            boolean whiteToMove = position.getPlayerToMove() == ChessRules.PLAYER_WHITE;
+            return (index << 1) | (whiteToMove != mirrored ? 0 : 1);
+        }
+
+        /**
+         * @return The player to move in the positions of an index.
+         */
+        public static int getPlayer(int index) {
+            return (index & 1) == 0 ? ChessRules.PLAYER_WHITE : ChessRules.PLAYER_BLACK;
+        }
+
+        /**
+         * Puts the pieces of an index on a board. Pawns on their starting row have not moved, all other pieces have, so there are no castling-rights.
+         *
+         * @param index The index
+         * @param board Cleared and filled with the pieces
+         * @return False if the index is no position: Two pieces on the same field, pieces of the same type not in ascending order or a pawn on the first or last row.
+         * Whether the king of the player who is not to move is in check is not tested.
+         */
+        public boolean decode(int index, int[] board) {
+            Arrays.fill(board, ChessRules.EMPTY_FIELD);
+            int previous = -1;
+            for (int i = cells.length - 1; i >= 0; i--) {
+                int pos = (index >>> (1 + 6 * (cells.length - 1 - i))) & 63;
+                if (board[pos] != ChessRules.EMPTY_FIELD)
+                    return false;
+                if (i < cells.length - 1 && cells[i] == cells[i + 1] && pos >= previous)
+                    return false;
+                previous = pos;
+                int cell = ChessRules.MASK_SET_FIELD | cells[i];
+                if ((cells[i] & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN) {
+                    if (pos < 8 || pos >= 56)
+                        return false;
+                    int startRow = (cells[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE ? 6 : 1;
+                    if (pos / 8 != startRow)
+                        cell |= ChessRules.MASK_HAS_MOVED;
+                } else {
+                    cell |= ChessRules.MASK_HAS_MOVED;
+                }
+                board[pos] = cell;
+            }
+            return true;
+        }
+
+        /**
+         * @return The names of the materials a capture or a promotion leads to, without KK.
+         */
+        public List<String> getSubMaterials() {
+            List<String> subMaterials = new ArrayList<>();
+            for (int i = 0; i < name.length(); i++) {
+                char letter = name.charAt(i);
+                if (letter == 'K') {
+                    continue;
+                }
+                List<String> names = new ArrayList<>();
+                names.add(name.substring(0, i) + name.substring(i + 1));
+                if (letter == 'P') {
+                    for (char promotion : "QRBN".toCharArray()) {
+                        names.add(name.substring(0, i) + promotion + name.substring(i + 1));
+                    }
+                }
+                for (String subMaterial : names) {
+                    String canonical = canonicalName(subMaterial);
+                    if (canonical.length() > 2 && !subMaterials.contains(canonical)) {
+                        subMaterials.add(canonical);
+                    }
+                }
+            }
+            return subMaterials;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package program.players.ais.v2;
+
+import java.util.Arrays;
+
+/**
+ * <p>Fixed-size hash-table which stores the results of the minimax-search by the Zobrist-key of the position (see Position.getKey()).</p>
+ * <p>
+ * The same position is often reached by different move-orders (transpositions). With the table it only has to be searched once:
+ * If a stored result was searched as deep as needed, it is used instead of searching the position again.
+ * Otherwise the stored best move is at least tried first, which makes alpha-beta prune more.
+ * </p>
+ * <p>
+ * The table is split into a power of two of buckets, the lower bits of the key select the bucket. Each bucket has two slots:
+ * The first one keeps the result of the deepest search (depth-preferred), the second one always takes the newest result (always-replace).
+ * So deep results, which saved the most work, are not pushed out by the many shallow ones.
+ * </p>
+ * <p>
+ * The table is kept from one search to the next (see AI_MinmaxAbstract.setPersistentSearch()). Instead of clearing it, newSearch() starts a new generation:
+ * Entries of older searches are still found, but the depth-preferred slot no longer protects them, so they are replaced by the results of the current search.
+ * </p>
+ * <p>
+ * Since alpha-beta does not always search a position completely, each score has a bound: It is either exact,
+ * a lower bound (the search was cut off because the score was too good, the real one may be even higher) or an upper bound.
+ * </p>
+ * <p>
+ * Several threads can use the same table without any locks. An entry consists of two words (check and data) which are written one after another,
+ * so another thread may read an entry while it is half written. The check-word is the key XOR-ed with the data-word:
+ * If they do not belong together, the XOR does not give the key and the entry is ignored.
+ * Since scores are integers (centipawns), the score fits into the upper half of the data-word, next to the move, the depth and the bound.
+ * The counters are not synchronized, with several threads they are approximate.
+ * </p>
+ * <p>Probing and storing allocates nothing, probe() copies the entry into an Entry-object of the caller.</p>
+ */
+public class TranspositionTable {
+
+    /**
+     * The score is the exact minimax-value of the position.
+     */
+    public static final int BOUND_EXACT = 1;
+
+    /**
+     * The real score is the same or higher than the stored score.
+     */
+    public static final int BOUND_LOWER = 2;
+
+    /**
+     * The real score is the same or lower than the stored score.
+     */
+    public static final int BOUND_UPPER = 3;
+
+    /**
+     * Bytes needed for one entry: The check-word (long) and the data-word (long) with the score and the packed data.
+     */
+    public static final int BYTES_PER_ENTRY = 8 + 8;
+
+    // Layout of the data-word: Move in bits 0-19, depth in bits 20-26, bound in bits 27-28, generation in bits 29-31, score in bits 32-63.
+    // A bound of 0 marks an empty slot.
+    private static final int DATA_MASK_MOVE = 0xFFFFF;
+    private static final int DATA_SHIFT_DEPTH = 20;
+    private static final int DATA_MASK_DEPTH = 0x7F;
+    private static final int DATA_SHIFT_BOUND = 27;
+    private static final int DATA_MASK_BOUND = 0x3;
+    private static final int DATA_SHIFT_GENERATION = 29;
+    private static final int DATA_MASK_GENERATION = 0x7;
+    private static final int DATA_SHIFT_SCORE = 32;
+
+    /**
+     * Copy of one entry of the table, filled by probe(). Each thread needs its own one.
+     */
+    public static class Entry {
+        private int score;
+        private int data;
+
+        /**
+         * @return The stored score
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return The stored best move, 0 if there is none
+         */
+        public int getMove() {
+            return data & DATA_MASK_MOVE;
+        }
+
+        /**
+         * @return The remaining search-depth the stored score was searched with
+         */
+        public int getDepth() {
+            return (data >>> DATA_SHIFT_DEPTH) & DATA_MASK_DEPTH;
+        }
+
+        /**
+         * @return BOUND_EXACT, BOUND_LOWER or BOUND_UPPER
+         */
+        public int getBound() {
+            return (data >>> DATA_SHIFT_BOUND) & DATA_MASK_BOUND;
+        }
+
+        /**
+         * @return The generation of the search which stored the entry, see newSearch()
+         */
+        public int getGeneration() {
+            return (data >>> DATA_SHIFT_GENERATION) & DATA_MASK_GENERATION;
+        }
+    }
+
+    private final long[] checks;
+    private final long[] data;
+    private final int bucketMask;
+    private int generation;
+
+    private long probes;
+    private long hits;
+    private long stores;
+    private long collisions;
+
+    /**
+     * Creates a table which takes up at most the given amount of memory. The number of buckets is rounded down to a power of two.
+     * @param megabytes Size of the table in MB. Needs to be at least 1.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+        long buckets = Long.highestOneBit(megabytes * 1024L * 1024L / (2 * BYTES_PER_ENTRY));
+        // Arrays are limited to 2^31 - 1 entries
+        buckets = Math.min(buckets, 1L << 29);
+        checks = new long[(int) buckets * 2];
+        data = new long[(int) buckets * 2];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key Zobrist-key of the position
+     * @param entry Is filled with the stored entry if the position was found.
+     * @return True if the position is in the table.
+     */
+    public boolean probe(long key, Entry entry) {
+        probes++;
+        int index = ((int) key & bucketMask) << 1;
+        return read(index, key, entry) || read(index + 1, key, entry);
+    }
+
+    private boolean read(int index, long key, Entry entry) {
+        long d = data[index];
+        if (d == 0 || (checks[index] ^ d) != key)
+            return false;
+        hits++;
+        entry.score = (int) (d >> DATA_SHIFT_SCORE);
+        entry.data = (int) d;
+        return true;
+    }
+
+    /**
+     * Starts a new generation: The entries stored so far are kept and still found, but the depth-preferred slots give them up to the next search.
+     * There are 8 generations, after that they start at 0 again.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & DATA_MASK_GENERATION;
+    }
+
+    /**
+     * @return The generation new entries are stored with
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Stores the result of a search. The depth-preferred slot takes it if the search was at least as deep as the one stored there,
+     * if the entry there is from an older generation (or if it is the same position), otherwise it goes into the always-replace slot.
+     * @param key Zobrist-key of the position
+     * @param depth The remaining search-depth the position was searched with (at most 127)
+     * @param score The score the search returned
+     * @param bound BOUND_EXACT, BOUND_LOWER or BOUND_UPPER
+     * @param move The best move which was found, 0 if there is none
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        stores++;
+        int index = ((int) key & bucketMask) << 1;
+        long stored = data[index];
+        if (!holds(index, key) && stored != 0 && depth < ((stored >>> DATA_SHIFT_DEPTH) & DATA_MASK_DEPTH)
+                && ((stored >>> DATA_SHIFT_GENERATION) & DATA_MASK_GENERATION) == generation)
+            index++;
+        if (!holds(index, key) && data[index] != 0)
+            collisions++;
+        long d = ((long) score << DATA_SHIFT_SCORE)
+                | ((move & DATA_MASK_MOVE) | (Math.min(depth, DATA_MASK_DEPTH) << DATA_SHIFT_DEPTH) | (bound << DATA_SHIFT_BOUND)
+                | ((long) generation << DATA_SHIFT_GENERATION));
+        checks[index] = key ^ d;
+        data[index] = d;
+    }
+
+    /**
+     * @return True if the slot holds an entry of the position (a half written one counts as well, it is overwritten anyway).
+     */
+    private boolean holds(int index, long key) {
+        return (checks[index] ^ data[index]) == key;
+    }
+
+    /**
+     * Removes all entries. The counters are kept.
+     */
+    public void clear() {
+        Arrays.fill(checks, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * @return Number of slots in the table (two per bucket)
+     */
+    public int getCapacity() {
+        return checks.length;
+    }
+
+    /**
+     * @return Number of calls to probe()
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return Number of calls to probe() which found the position
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of calls to store()
+     */
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * @return Number of calls to store() which overwrote an entry of a different position
+     */
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * @return Number of used slots. Loops over the whole table.
+     */
+    public int countUsedSlots() {
+        int used = 0;
+        for (long d : data) {
+            if (d != 0)
+                used++;
+        }
+        return used;
+    }
+
+    public void resetCounters() {
+        probes = 0;
+        hits = 0;
+        stores = 0;
+        collisions = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable[%,d slots, %,d used, %,d probes, %,d hits (%.1f%%), %,d stores, %,d collisions]",
+                getCapacity(), countUsedSlots(), probes, hits, probes == 0 ? 0 : 100.0 * hits / probes, stores, collisions);
+    }
+}
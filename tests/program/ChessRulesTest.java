@@ -0,0 +1,118 @@
+package program;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessRulesTest {
+
+    static int[] startBoard() {
+        int[] board = new int[64];
+        int[] backRow = {ChessRules.PIECE_ROOK, ChessRules.PIECE_KNIGHT, ChessRules.PIECE_BISHOP, ChessRules.PIECE_QUEEN,
+                ChessRules.PIECE_KING, ChessRules.PIECE_BISHOP, ChessRules.PIECE_KNIGHT, ChessRules.PIECE_ROOK};
+        for (int i = 0; i < 8; i++) {
+            board[i] = ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_BLACK | backRow[i];
+            board[8 + i] = ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_BLACK | ChessRules.PIECE_PAWN;
+            board[48 + i] = ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_WHITE | ChessRules.PIECE_PAWN;
+            board[56 + i] = ChessRules.MASK_SET_FIELD | ChessRules.PLAYER_WHITE | backRow[i];
+        }
+        return board;
+    }
+
+    @Test
+    public void unmakeMoveRestoresBoardInRandomGames() {
+        Random random = new Random(7);
+        for (int game = 0; game < 100; game++) {
+            int[] board = startBoard();
+            int player = ChessRules.PLAYER_WHITE;
+            for (int halfMove = 0; halfMove < 200; halfMove++) {
+                List<Integer> moves = ChessRules.getLegalMoves(board, player);
+                if (moves.isEmpty())
+                    break;
+                // Every move has to be taken back exactly
+                for (int move : moves) {
+                    int[] before = board.clone();
+                    int undo = ChessRules.makeMove(board, move);
+                    ChessRules.unmakeMove(board, move, undo);
+                    assertArrayEquals(before, board, "Game " + game + ", half-move " + halfMove + ", move " + move);
+                }
+                ChessRules.makeMove(board, moves.get(random.nextInt(moves.size())));
+                player ^= ChessRules.MASK_PLAYER;
+            }
+        }
+    }
+
+    @Test
+    public void bufferAndListGenerationAgree() {
+        Random random = new Random(11);
+        int[] buffer = new int[ChessRules.MAX_MOVES];
+        int[] board = startBoard();
+        int player = ChessRules.PLAYER_WHITE;
+        for (int halfMove = 0; halfMove < 200; halfMove++) {
+            List<Integer> sorted = ChessRules.getLegalMovesSorted(board, player);
+            int count = ChessRules.getLegalMovesSorted(board, player, buffer);
+            assertEquals(sorted.size(), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals((int) sorted.get(i), buffer[i]);
+            }
+            if (count == 0)
+                break;
+            ChessRules.makeMove(board, buffer[random.nextInt(count)]);
+            player ^= ChessRules.MASK_PLAYER;
+        }
+    }
+
+    @Test
+    public void legalMovesMatchSelfCheckFilter() {
+        // Positions with pins, checks, discovered checks and en passant
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+        };
+        for (String fen : fens) {
+            int[] board = PGNWriter.getBoardFromFen(fen);
+            assertLegalMovesMatchSelfCheckFilter(board, ChessRules.PLAYER_WHITE, 3);
+        }
+        assertLegalMovesMatchSelfCheckFilter(startBoard(), ChessRules.PLAYER_WHITE, 3);
+    }
+
+    /**
+     * Compares getLegalMoves() with all moves of the getXMoves()-Methods which pass moveIllegalDueToSelfCheck(), for the whole tree down to depth.
+     */
+    private static void assertLegalMovesMatchSelfCheckFilter(int[] board, int player, int depth) {
+        int[] pseudoLegal = new int[ChessRules.MAX_MOVES];
+        int count = 0;
+        for (int i = 0; i < board.length; i++) {
+            if ((board[i] & ChessRules.MASK_SET_FIELD) > 0 && (board[i] & ChessRules.MASK_PLAYER) == player) {
+                switch (board[i] & ChessRules.MASK_PIECE) {
+                    case ChessRules.PIECE_PAWN -> count = ChessRules.getPawnMoves(board, i, pseudoLegal, count);
+                    case ChessRules.PIECE_KNIGHT -> count = ChessRules.getKnightMoves(board, i, pseudoLegal, count);
+                    case ChessRules.PIECE_BISHOP -> count = ChessRules.getBishopMoves(board, i, pseudoLegal, count);
+                    case ChessRules.PIECE_ROOK -> count = ChessRules.getRookMoves(board, i, pseudoLegal, count);
+                    case ChessRules.PIECE_QUEEN -> count = ChessRules.getQueenMoves(board, i, pseudoLegal, count);
+                    case ChessRules.PIECE_KING -> count = ChessRules.getKingMoves(board, i, pseudoLegal, count);
+                }
+            }
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (!ChessRules.moveIllegalDueToSelfCheck(board, pseudoLegal[i]))
+                expected.add(pseudoLegal[i]);
+        }
+        List<Integer> actual = ChessRules.getLegalMoves(board, player);
+        assertEquals(expected, actual);
+        if (depth == 0)
+            return;
+        for (int move : actual) {
+            int undo = ChessRules.makeMove(board, move);
+            assertLegalMovesMatchSelfCheckFilter(board, player ^ ChessRules.MASK_PLAYER, depth - 1);
+            ChessRules.unmakeMove(board, move, undo);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package program;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerftTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void startPosition() {
+        long[] expected = {1, 20, 400, 8902, 197281};
+        for (int depth = 0; depth < expected.length; depth++) {
+            assertEquals(expected[depth], Perft.perft(Position.fromFen(Perft.START_FEN), depth));
+            assertEquals(expected[depth], Perft.perft(ChessRulesTest.startBoard(), ChessRules.PLAYER_WHITE, depth));
+        }
+    }
+
+    @Test
+    public void referencePositions() {
+        // Castling, en passant, promotions and underpromotions, pins and checks
+        assertEquals(97862, Perft.perft(Position.fromFen(KIWIPETE), 3));
+        assertEquals(43238, Perft.perft(Position.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"), 4));
+        assertEquals(9467, Perft.perft(Position.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"), 3));
+        assertEquals(62379, Perft.perft(Position.fromFen("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"), 3));
+        assertEquals(89890, Perft.perft(Position.fromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"), 3));
+        Position position = Position.fromFen(KIWIPETE);
+        assertEquals(97862, Perft.perft(position.toBoard(), position.getPlayerToMove(), 3));
+    }
+
+    @Test
+    public void divideAndParallelMatchPerft() {
+        Position position = Position.fromFen(KIWIPETE);
+        Map<Integer, Long> divide = Perft.divide(position, 3);
+        assertEquals(48, divide.size());
+        assertEquals(97862, divide.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(97862, Perft.perftParallel(position, 3, 4));
+        // Neither of them may leave anything changed
+        assertArrayEquals(Position.fromFen(KIWIPETE).toBoard(), position.toBoard());
+        assertEquals(Position.fromFen(KIWIPETE).getState(), position.getState());
+    }
+
+    @Test
+    public void moveToString() {
+        int[] board = PGNWriter.getBoardFromFen("4k3/1P6/8/8/8/8/K7/8 w - - 0 1");
+        assertEquals("a2a3", Perft.moveToString(board, ChessRules.getMove(48, 40)));
+        assertEquals("b7b8q", Perft.moveToString(board, ChessRules.getMove(9, 1)));
+        assertEquals("b7b8n", Perft.moveToString(board, ChessRules.getMove(9, 1, ChessRules.PIECE_KNIGHT)));
+    }
+}
@@ -0,0 +1,261 @@
+package program;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionTest {
+
+    @Test
+    public void startPosition() {
+        Position position = new Position(ChessRulesTest.startBoard());
+        assertEquals(20, position.getLegalMoves(ChessRules.PLAYER_WHITE).size());
+        assertEquals(20, position.getLegalMoves(ChessRules.PLAYER_BLACK).size());
+        assertEquals(32, position.countPieces());
+        assertEquals(16, position.countPieces(ChessRules.PLAYER_BLACK));
+        assertEquals(60, position.findPiecePos(ChessRules.PLAYER_WHITE, ChessRules.PIECE_KING));
+        assertArrayEquals(ChessRulesTest.startBoard(), position.toBoard());
+    }
+
+    @Test
+    public void sameMovesAsChessRulesInRandomGames() {
+        Random random = new Random(42);
+        for (int game = 0; game < 100; game++) {
+            int[] board = ChessRulesTest.startBoard();
+            Position position = new Position(board);
+            int player = ChessRules.PLAYER_WHITE;
+            for (int halfMove = 0; halfMove < 200; halfMove++) {
+                List<Integer> expected = ChessRules.getLegalMoves(board, player);
+                List<Integer> actual = position.getLegalMoves(player);
+                assertEquals(expected.size(), actual.size(), "Number of moves in game " + game + ", half-move " + halfMove);
+                assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+                assertEquals(ChessRules.playerInCheck(board, player), position.playerInCheck(player));
+                assertEquals(ChessRules.countPieces(board, player), position.countPieces(player));
+                assertEquals(ChessRules.getScoreByPieceValue(board), position.getScoreByPieceValue());
+                assertEquals(ChessRules.findPiecePos(board, player, ChessRules.PIECE_KING), position.getKingPos(player));
+                if (expected.isEmpty())
+                    break;
+
+                int move = expected.get(random.nextInt(expected.size()));
+                ChessRules.makeMove(board, move);
+                position.makeMove(move);
+                assertArrayEquals(board, position.toBoard());
+                player ^= ChessRules.MASK_PLAYER;
+            }
+        }
+    }
+
+    @Test
+    public void incrementalScoresMatchRecomputation() {
+        Random random = new Random(11);
+        int[] pieceSquareTable = new int[16 * 64];
+        for (int i = 0; i < pieceSquareTable.length; i++)
+            pieceSquareTable[i] = random.nextInt(201) - 100;
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        for (int game = 0; game < 30; game++) {
+            Position position = new Position(ChessRulesTest.startBoard());
+            position.setPieceSquareTable(pieceSquareTable);
+            position.setVerifyIncrementalScores(true);
+            int player = ChessRules.PLAYER_WHITE;
+            for (int halfMove = 0; halfMove < 200; halfMove++) {
+                int count = position.getLegalMoves(player, moves);
+                if (count == 0)
+                    break;
+                // Every move is made and taken back, so captures, promotions, castling and en passant are all checked
+                for (int i = 0; i < count; i++) {
+                    long undo = position.makeMove(moves[i]);
+                    position.unmakeMove(moves[i], undo);
+                }
+                position.makeMove(moves[random.nextInt(count)]);
+                player ^= ChessRules.MASK_PLAYER;
+            }
+            Position copy = new Position(position);
+            assertEquals(position.getPieceSquareScore(), copy.getPieceSquareScore());
+            copy.setPieceSquareTable(null);
+            assertEquals(0, copy.getPieceSquareScore());
+            assertEquals(ChessRules.getScoreByPieceValue(position.toBoard()), copy.getScoreByPieceValue());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Position(ChessRulesTest.startBoard()).setPieceSquareTable(new int[64]));
+    }
+
+    @Test
+    public void unmakeMoveRestoresPosition() {
+        Random random = new Random(3);
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        for (int game = 0; game < 50; game++) {
+            Position position = new Position(ChessRulesTest.startBoard());
+            int player = ChessRules.PLAYER_WHITE;
+            for (int halfMove = 0; halfMove < 200; halfMove++) {
+                int count = position.getLegalMoves(player, moves);
+                if (count == 0)
+                    break;
+                for (int i = 0; i < count; i++) {
+                    int[] before = position.toBoard();
+                    int stateBefore = position.getState();
+                    long undo = position.makeMove(moves[i]);
+                    position.unmakeMove(moves[i], undo);
+                    assertArrayEquals(before, position.toBoard(), "Game " + game + ", half-move " + halfMove + ", move " + moves[i]);
+                    assertEquals(stateBefore, position.getState());
+                    assertEquals(Zobrist.computeKey(position), position.getKey());
+                    // The bitboards, king-fields and the pawn with the DoubleMoveBit have to be restored as well
+                    Position rebuilt = new Position(before, player);
+                    for (int side : new int[]{ChessRules.PLAYER_WHITE, ChessRules.PLAYER_BLACK}) {
+                        assertEquals(rebuilt.getPlayerPieces(side), position.getPlayerPieces(side));
+                        assertEquals(rebuilt.getKingPos(side), position.getKingPos(side));
+                        assertEquals(new HashSet<>(rebuilt.getLegalMoves(side)), new HashSet<>(position.getLegalMoves(side)));
+                    }
+                }
+                position.makeMove(moves[random.nextInt(count)]);
+                player ^= ChessRules.MASK_PLAYER;
+            }
+        }
+    }
+
+    @Test
+    public void stateWordFollowsTheGame() {
+        Position position = new Position(ChessRulesTest.startBoard());
+        assertEquals(ChessRules.PLAYER_WHITE, position.getPlayerToMove());
+        assertEquals(Position.CASTLING_WHITE_KINGSIDE | Position.CASTLING_WHITE_QUEENSIDE
+                | Position.CASTLING_BLACK_KINGSIDE | Position.CASTLING_BLACK_QUEENSIDE, position.getCastlingRights());
+
+        position.makeMove(ChessRules.getMove(52, 36)); // e2-e4
+        assertEquals(44, position.getEnPassantField());
+        assertEquals(ChessRules.PLAYER_BLACK, position.getPlayerToMove());
+        position.makeMove(ChessRules.getMove(6, 21)); // Ng8-f6
+        assertEquals(-1, position.getEnPassantField());
+        assertEquals(1, position.getHalfMoveClock());
+        position.makeMove(ChessRules.getMove(60, 52)); // Ke1-e2
+        assertEquals(Position.CASTLING_BLACK_KINGSIDE | Position.CASTLING_BLACK_QUEENSIDE, position.getCastlingRights());
+        assertEquals(2, position.getHalfMoveClock());
+        position.makeMove(ChessRules.getMove(7, 6)); // Rh8-g8
+        assertEquals(Position.CASTLING_BLACK_QUEENSIDE, position.getCastlingRights());
+    }
+
+    @Test
+    public void fromFenRestoresState() {
+        Position position = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/Pp2P3/2N2Q1p/1PPBBPPP/R3K2R b Kq a3 4 1");
+        assertEquals(ChessRules.PLAYER_BLACK, position.getPlayerToMove());
+        assertEquals(Position.CASTLING_WHITE_KINGSIDE | Position.CASTLING_BLACK_QUEENSIDE, position.getCastlingRights());
+        assertEquals(40, position.getEnPassantField());
+        assertEquals(4, position.getHalfMoveClock());
+        // b4xa3 en passant and O-O-O for black, but white may not castle queenside
+        List<Integer> moves = position.getLegalMoves(ChessRules.PLAYER_BLACK);
+        assertTrue(moves.contains(ChessRules.getMove(33, 40)));
+        assertTrue(moves.contains(ChessRules.getMove(4, 2)));
+        assertFalse(moves.contains(ChessRules.getMove(4, 6)));
+        assertFalse(position.getLegalMoves(ChessRules.PLAYER_WHITE).contains(ChessRules.getMove(60, 58)));
+        // The board-array says the same
+        assertEquals(new HashSet<>(ChessRules.getLegalMoves(position.toBoard(), ChessRules.PLAYER_BLACK)), new HashSet<>(moves));
+    }
+
+    @Test
+    public void zobristKeyFollowsTheGame() {
+        Random random = new Random(5);
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        for (int game = 0; game < 100; game++) {
+            Position position = new Position(ChessRulesTest.startBoard());
+            for (int halfMove = 0; halfMove < 200; halfMove++) {
+                int count = position.getLegalMoves(position.getPlayerToMove(), moves);
+                if (count == 0)
+                    break;
+                position.makeMove(moves[random.nextInt(count)]);
+                assertEquals(Zobrist.computeKey(position), position.getKey(), "Game " + game + ", half-move " + halfMove);
+            }
+        }
+    }
+
+    @Test
+    public void nullMovePassesTheTurn() {
+        Position position = new Position(ChessRulesTest.startBoard());
+        position.makeMove(ChessRules.getMove(52, 36)); // e2-e4
+        int[] before = position.toBoard();
+        int stateBefore = position.getState();
+        long keyBefore = position.getKey();
+
+        int undo = position.makeNullMove();
+        assertEquals(ChessRules.PLAYER_WHITE, position.getPlayerToMove());
+        assertEquals(-1, position.getEnPassantField());
+        assertEquals(position.getCastlingRights(), Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 1").getCastlingRights());
+        assertEquals(Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 1").getKey(), position.getKey());
+        assertEquals(Zobrist.computeKey(position), position.getKey());
+
+        position.unmakeNullMove(undo);
+        assertArrayEquals(before, position.toBoard());
+        assertEquals(stateBefore, position.getState());
+        assertEquals(keyBefore, position.getKey());
+        assertEquals(44, position.getEnPassantField());
+    }
+
+    @Test
+    public void capturesAreTheLegalMovesWhichCaptureOrPromote() {
+        Random random = new Random(11);
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int[] captures = new int[ChessRules.MAX_MOVES];
+        for (int game = 0; game < 100; game++) {
+            Position position = game == 0
+                    ? Position.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1")
+                    : new Position(ChessRulesTest.startBoard());
+            for (int halfMove = 0; halfMove < 200; halfMove++) {
+                int player = position.getPlayerToMove();
+                int count = position.getLegalMoves(player, moves);
+                if (count == 0)
+                    break;
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    int move = moves[i];
+                    int oldPos = ChessRules.getMoveOldPos(move);
+                    int newPos = ChessRules.getMoveNewPos(move);
+                    boolean pawn = (position.getField(oldPos) & ChessRules.MASK_PIECE) == ChessRules.PIECE_PAWN;
+                    boolean capture = (position.getField(newPos) & ChessRules.MASK_SET_FIELD) > 0 || (pawn && oldPos % 8 != newPos % 8);
+                    boolean promotion = pawn && (newPos < 8 || newPos >= 56);
+                    if (promotion ? ChessRules.getMovePromotion(move) == ChessRules.PIECE_QUEEN : capture)
+                        expected.add(move);
+                }
+                int captureCount = position.getLegalCaptures(player, captures);
+                Set<Integer> actual = new HashSet<>();
+                for (int i = 0; i < captureCount; i++) {
+                    actual.add(captures[i]);
+                }
+                assertEquals(captureCount, actual.size());
+                assertEquals(expected, actual, "Game " + game + ", half-move " + halfMove);
+                position.makeMove(moves[random.nextInt(count)]);
+            }
+        }
+    }
+
+    @Test
+    public void zobristKeyOfTranspositions() {
+        Position start = new Position(ChessRulesTest.startBoard());
+        // Ng1-f3 Ng8-f6 Nf3-g1 Nf6-g8 leads back to the start
+        Position position = new Position(start);
+        for (int move : new int[]{ChessRules.getMove(62, 45), ChessRules.getMove(6, 21), ChessRules.getMove(45, 62), ChessRules.getMove(21, 6)}) {
+            position.makeMove(move);
+        }
+        assertEquals(start.getKey(), position.getKey());
+
+        // After e2-e4 Ng8-f6 Ng1-f3 Nf6-g8 Nf3-g1 only the en passant field differs from e2-e4
+        Position direct = new Position(start);
+        direct.makeMove(ChessRules.getMove(52, 36));
+        position = new Position(direct);
+        for (int move : new int[]{ChessRules.getMove(6, 21), ChessRules.getMove(62, 45), ChessRules.getMove(21, 6), ChessRules.getMove(45, 62)}) {
+            position.makeMove(move);
+        }
+        assertNotEquals(direct.getKey(), position.getKey());
+        assertEquals(Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1").getKey(), direct.getKey());
+        assertEquals(Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 3").getKey(), position.getKey());
+
+        // Moving the king and back loses the castling rights
+        position = new Position(start);
+        for (int move : new int[]{ChessRules.getMove(52, 36), ChessRules.getMove(12, 28), ChessRules.getMove(60, 52), ChessRules.getMove(4, 12),
+                ChessRules.getMove(52, 60), ChessRules.getMove(12, 4)}) {
+            position.makeMove(move);
+        }
+        assertEquals(Position.fromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w - - 4 4").getKey(), position.getKey());
+        assertNotEquals(Position.fromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 4 4").getKey(), position.getKey());
+    }
+}
@@ -0,0 +1,87 @@
+package program.players.ais.v2;
+
+import org.junit.jupiter.api.Test;
+import program.ChessRules;
+import program.PGNWriter;
+import program.Position;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AI2_v3Test {
+
+    @Test
+    public void centipawnsMatchTheFormerScoreInPawns() {
+        double[][] vectors = {
+                {6, 1, 16, 1.3f, .8f, 1f, 1.1f, .4f},
+                {4, 0.7, 20, 1.25, 0.9, 1.05, 0.95, 0.35},
+                {4, 1.2, 32, 1.3, 0.8, 1, 1.1, 0.4}
+        };
+        Random random = new Random(3);
+        for (double[] params : vectors) {
+            AI2_v3 ai = new AI2_v3(ChessRules.PLAYER_WHITE, params);
+            for (int game = 0; game < 20; game++) {
+                Position position = Position.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+                // Keeps the score of the pawn-rows up to date, as the positions of the search do
+                Position tracked = new Position(position);
+                tracked.setPieceSquareTable(ai.getPieceSquareTable());
+                for (int ply = 0; ply < 120; ply++) {
+                    int[] board = position.toBoard();
+                    long expected = Math.round(100 * analyzeBoardInPawns(board, params));
+                    assertEquals(expected, ai.analyzeBoard(board), 1);
+                    assertEquals(ai.analyzeBoard(board), ai.analyzeBoard(position));
+                    assertEquals(ai.analyzeBoard(board), ai.analyzeBoard(tracked));
+                    List<Integer> moves = position.getLegalMoves(position.getPlayerToMove());
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                    int move = moves.get(random.nextInt(moves.size()));
+                    position.makeMove(move);
+                    tracked.makeMove(move);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void castlingBonusInCentipawns() {
+        assertEquals(40, AI2_v3.toCentipawns(.4f));
+        assertEquals(13000, AI2_v3.toHundredthsOfCentipawns(1.3));
+        int[] board = PGNWriter.getBoardFromFen("4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1");
+        int castling = ChessRules.getMove(60, 62);
+        assertEquals(40, AI_MinmaxAbstract.calculateScoreBonusInMinmax_Castling(board, castling, ChessRules.PLAYER_WHITE, 40));
+    }
+
+    /**
+     * The evaluation of AI2_v3 as it was when scores were doubles in pawns.
+     */
+    private static double analyzeBoardInPawns(int[] board, double[] params) {
+        double score = 0;
+        double pawns = 0;
+        double[] mobility = new double[ChessRules.PIECE_KING + 1];
+        for (int i = 0; i < board.length; i++) {
+            if ((board[i] & ChessRules.MASK_SET_FIELD) == 0) {
+                continue;
+            }
+            score += ChessRules.getPieceValue(board[i]) / 100.0;
+            int sign = (board[i] & ChessRules.MASK_PLAYER) == ChessRules.PLAYER_WHITE ? 1 : -1;
+            switch (board[i] & ChessRules.MASK_PIECE) {
+                case ChessRules.PIECE_PAWN -> {
+                    int row = sign == 1 ? (int) Math.floor(i / 8f) : 8 - ((int) Math.floor(i / 8f));
+                    pawns += sign * (Math.exp(-0.5 * row) - 0.1);
+                }
+                case ChessRules.PIECE_KNIGHT -> mobility[ChessRules.PIECE_KNIGHT] += sign * ChessRules.getKnightMoves(board, i).size() / 100f;
+                case ChessRules.PIECE_BISHOP -> mobility[ChessRules.PIECE_BISHOP] += sign * ChessRules.getBishopMoves(board, i).size() / 100f;
+                case ChessRules.PIECE_ROOK -> mobility[ChessRules.PIECE_ROOK] += sign * ChessRules.getRookMoves(board, i).size() / 100f;
+                case ChessRules.PIECE_QUEEN -> mobility[ChessRules.PIECE_QUEEN] += sign * ChessRules.getQueenMoves(board, i).size() / 100f;
+            }
+        }
+        if (ChessRules.countPieces(board) <= (int) params[2]) {
+            score += pawns * params[1];
+        }
+        return score + mobility[ChessRules.PIECE_KNIGHT] * params[3] + mobility[ChessRules.PIECE_BISHOP] * params[4]
+                + mobility[ChessRules.PIECE_ROOK] * params[5] + mobility[ChessRules.PIECE_QUEEN] * params[6];
+    }
+}
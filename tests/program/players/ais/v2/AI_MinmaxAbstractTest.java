@@ -2,18 +2,34 @@ package program.players.ais.v2;
 
 import org.junit.jupiter.api.Test;
 import program.ChessRules;
+import program.PGNWriter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class AI_MinmaxAbstractTest {
 
+    /**
+     * @return AI2_v3 with the default weights, searching to the given depth.
+     */
+    private static AI2_v3 ai(int player, int depth) {
+        return new AI2_v3(player, AI2_v3.getDefaultParams(depth));
+    }
+
     @Test
     public void generatePgnName() {
         AI_MinmaxAbstract ai = new AI_MinmaxAbstract(ChessRules.PLAYER_BLACK, "AI_Name") {
             @Override
-            public double analyzeBoard(int[] board) {
+            public int analyzeBoard(int[] board) {
                 return 0;
             }
         };
@@ -24,4 +40,281 @@ public class AI_MinmaxAbstractTest {
         System.out.println("PgnName: " + result);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void iterativeDeepeningStaysInNodeBudget() {
+        int[] board = PGNWriter.getBoardFromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        AI2_v3 ai = new AI2_v3(ChessRules.PLAYER_WHITE);
+        ai.setNodeLimit(20000);
+        int move = ai.decideOnMove(board);
+        assertTrue(ChessRules.moveIsLegal(board, move));
+        assertEquals(20000, ai.getNodeCount());
+        assertTrue(ai.getCompletedDepth() >= 2);
+
+        // Depth 1 is always completed, no matter how small the budget is
+        ai.setNodeLimit(1);
+        assertTrue(ChessRules.moveIsLegal(board, ai.decideOnMove(board)));
+        assertEquals(1, ai.getCompletedDepth());
+    }
+
+    @Test
+    public void moveOrderingKeepsResult() {
+        int[] board = PGNWriter.getBoardFromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        AI2_v3 capturesFirst = ai(ChessRules.PLAYER_WHITE, 4);
+        capturesFirst.setMoveOrdering(false);
+        capturesFirst.decideOnMove(board);
+        AI2_v3 ordered = ai(ChessRules.PLAYER_WHITE, 4);
+        ordered.decideOnMove(board);
+        assertEquals(capturesFirst.getBestScore(), ordered.getBestScore());
+        assertEquals(new HashSet<>(capturesFirst.getBestMoves()), new HashSet<>(ordered.getBestMoves()));
+        assertTrue(ordered.getNodeCount() < capturesFirst.getNodeCount());
+    }
+
+    @Test
+    public void quiescenceSearchSeesTheRecapture() {
+        // Qd1xd5 wins a pawn at depth 1, but c6xd5 takes the queen back
+        int[] board = PGNWriter.getBoardFromFen("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        int queenTakesPawn = ChessRules.getMove(59, 27);
+        AI2_v3 ai = ai(ChessRules.PLAYER_WHITE, 1);
+        ai.setQuiescenceDepth(0);
+        assertEquals(queenTakesPawn, ai.decideOnMove(board));
+
+        ai.setQuiescenceDepth(AI_MinmaxAbstract.DEFAULT_QUIESCENCE_DEPTH);
+        assertNotEquals(queenTakesPawn, ai.decideOnMove(board));
+        assertFalse(ai.getBestMoves().contains(queenTakesPawn));
+    }
+
+    @Test
+    public void selectiveSearchFindsMateWithFewerNodes() {
+        // Rd1-d8 is mate on the back rank
+        int[] board = PGNWriter.getBoardFromFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+        AI2_v3 fullWidth = ai(ChessRules.PLAYER_WHITE, 5);
+        assertEquals(ChessRules.getMove(59, 3), fullWidth.decideOnMove(board));
+
+        AI2_v3 selective = ai(ChessRules.PLAYER_WHITE, 5);
+        selective.setNullMovePruning(true);
+        selective.setLateMoveReductions(true);
+        selective.setFutilityPruning(true);
+        assertEquals(ChessRules.getMove(59, 3), selective.decideOnMove(board));
+        assertTrue(selective.getNodeCount() < fullWidth.getNodeCount());
+    }
+
+    @Test
+    public void mateScoresCountThePlies() {
+        int[] board = PGNWriter.getBoardFromFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+        AI2_v3 white = ai(ChessRules.PLAYER_WHITE, 4);
+        white.decideOnMove(board);
+        assertEquals(AI_MinmaxAbstract.SCORE_MATE - 1, white.getBestScore());
+        assertTrue(AI_MinmaxAbstract.isMateScore(white.getBestScore()));
+        assertEquals(1, AI_MinmaxAbstract.getMatePlies(white.getBestScore()));
+
+        // The same from the view of black: Rd8-d1 is mate
+        board = PGNWriter.getBoardFromFen("3r2k1/5ppp/8/8/8/8/5PPP/6K1 b - - 0 1");
+        AI2_v3 black = ai(ChessRules.PLAYER_BLACK, 4);
+        assertEquals(ChessRules.getMove(3, 59), black.decideOnMove(board));
+        assertEquals(-(AI_MinmaxAbstract.SCORE_MATE - 1), black.getBestScore());
+        assertEquals(1, AI_MinmaxAbstract.getMatePlies(black.getBestScore()));
+        assertFalse(AI_MinmaxAbstract.isMateScore(black.analyzeBoard(board)));
+    }
+
+    @Test
+    public void principalVariationIsPlayable() {
+        int[] board = PGNWriter.getBoardFromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        AI2_v3 ai = ai(ChessRules.PLAYER_WHITE, 4);
+        ai.decideOnMove(board);
+        List<Integer> principalVariation = ai.getPrincipalVariation();
+        assertTrue(principalVariation.size() > 1);
+        assertEquals(ai.getBestMoves().get(0), principalVariation.get(0));
+        int player = ChessRules.PLAYER_WHITE;
+        // The moves alternate between both players
+        for (int move : principalVariation) {
+            assertTrue(ChessRules.getLegalMoves(board, player).contains(move));
+            ChessRules.makeMove(board, move);
+            player ^= ChessRules.MASK_PLAYER;
+        }
+    }
+
+    @Test
+    public void ponderingContinuesOnTheExpectedReply() {
+        int[] board = PGNWriter.getBoardFromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        AI2_v3 ai = ai(ChessRules.PLAYER_WHITE, 4);
+        ai.setPondering(true);
+        ChessRules.makeMove(board, ai.decideOnMove(board));
+        int reply = ai.getPonderMove();
+        assertTrue(ChessRules.moveIsLegal(board, reply));
+
+        // The opponent plays the expected move: the search on its time is taken, with the same result as a new search
+        ChessRules.makeMove(board, reply);
+        ai.opponentMoved(board, reply);
+        int[] expectedBoard = board.clone();
+        int move = ai.decideOnMove(board);
+        assertEquals(1, ai.getPonderHits());
+        AI2_v3 fresh = ai(ChessRules.PLAYER_WHITE, 4);
+        fresh.decideOnMove(expectedBoard);
+        assertTrue(fresh.getBestMoves().contains(move));
+
+        // Another move: the search is thrown away
+        ChessRules.makeMove(board, move);
+        int otherReply = ChessRules.getLegalMoves(board, ChessRules.PLAYER_BLACK).stream()
+                .filter(m -> m != ai.getPonderMove()).findFirst().orElseThrow();
+        ChessRules.makeMove(board, otherReply);
+        ai.opponentMoved(board, otherReply);
+        assertEquals(0, ai.getPonderMove());
+        fresh.decideOnMove(board.clone());
+        assertTrue(fresh.getBestMoves().contains(ai.decideOnMove(board)));
+        assertEquals(1, ai.getPonderHits());
+        ai.gameOver();
+        assertEquals(0, ai.getPonderMove());
+    }
+
+    @Test
+    public void optionsCanChangeWhilePondering() throws InterruptedException {
+        int[] board = PGNWriter.getBoardFromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        AI2_v3 ai = ai(ChessRules.PLAYER_WHITE, 4);
+        // With a budget the search in the background goes on until it is stopped
+        ai.setNodeLimit(20000);
+        AtomicBoolean ownSearchCompleted = new AtomicBoolean();
+        CountDownLatch ponderIteration = new CountDownLatch(1);
+        ai.addSearchListener(new AI_MinmaxAbstract.SearchListener() {
+            @Override
+            public void iterationCompleted(int depth, SearchStatistics statistics) {
+                if (ownSearchCompleted.get()) {
+                    ponderIteration.countDown();
+                }
+            }
+
+            @Override
+            public void searchCompleted(SearchStatistics statistics) {
+                ownSearchCompleted.set(true);
+            }
+        });
+        ai.setPondering(true);
+        int move = ai.decideOnMove(board.clone());
+        int reply = ai.getPonderMove();
+        assertNotEquals(0, reply);
+        assertTrue(ponderIteration.await(10, TimeUnit.SECONDS));
+        // Needs a new search context, while the search in the background still uses the old one
+        ai.setQuiescenceDepth(2);
+        assertEquals(0, ai.getPonderMove());
+        ChessRules.makeMove(board, move);
+        ChessRules.makeMove(board, reply);
+        ai.opponentMoved(board, reply);
+        assertTrue(ChessRules.moveIsLegal(board, ai.decideOnMove(board.clone())));
+        ai.gameOver();
+    }
+
+    @Test
+    public void searchListenerGetsStatistics() {
+        int[] board = PGNWriter.getBoardFromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        AI2_v3 ai = ai(ChessRules.PLAYER_WHITE, 4);
+        List<Integer> iterations = new ArrayList<>();
+        SearchStatistics total = new SearchStatistics();
+        ai.addSearchListener(new AI_MinmaxAbstract.SearchListener() {
+            @Override
+            public void iterationCompleted(int depth, SearchStatistics statistics) {
+                iterations.add(depth);
+            }
+
+            @Override
+            public void searchCompleted(SearchStatistics statistics) {
+                total.add(statistics);
+            }
+        });
+        ai.decideOnMove(board);
+        assertEquals(List.of(1, 2, 3, 4), iterations);
+        assertEquals(1, total.getSearches());
+        assertEquals(4, total.getAverageDepth());
+        assertEquals(ai.getNodeCount(), total.getNodes());
+        assertTrue(total.getEvaluations() > 0 && total.getEvaluations() <= total.getNodes());
+        assertTrue(total.getCutoffs() > 0);
+        assertTrue(total.getFirstMoveCutoffRate() > 0.5 && total.getFirstMoveCutoffRate() <= 1);
+        assertTrue(total.getHashHitRate() > 0 && total.getHashHitRate() < 1);
+        assertTrue(total.getEffectiveBranchingFactor() > 1);
+        assertTrue(total.getAverageIterationMillis(4) > 0);
+        assertEquals(0, total.getAverageIterationMillis(5));
+
+        // The statistics add up over many searches
+        long nodes = total.getNodes();
+        ai.decideOnMove(board);
+        assertEquals(2, total.getSearches());
+        assertEquals(nodes + ai.getNodeCount(), total.getNodes());
+
+        // Counting does not change the search
+        AI2_v3 withoutListener = ai(ChessRules.PLAYER_WHITE, 4);
+        withoutListener.decideOnMove(board);
+        assertEquals(nodes, withoutListener.getNodeCount());
+    }
+
+    @Test
+    public void persistentSearchKeepsTheResults() {
+        // A game played on by both players along the principal variation
+        int[] board = PGNWriter.getBoardFromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        AI2_v3 persistent = ai(ChessRules.PLAYER_WHITE, 4);
+        AI2_v3 cold = ai(ChessRules.PLAYER_WHITE, 4);
+        cold.setPersistentSearch(false);
+        long persistentNodes = 0;
+        long coldNodes = 0;
+        for (int move = 0; move < 4; move++) {
+            int generation = move == 0 ? 0 : persistent.getTranspositionTable().getGeneration();
+            persistent.decideOnMove(board.clone());
+            cold.decideOnMove(board.clone());
+            assertEquals(cold.getBestScore(), persistent.getBestScore());
+            assertEquals(new HashSet<>(cold.getBestMoves()), new HashSet<>(persistent.getBestMoves()));
+            if (move > 0) {
+                assertEquals((generation + 1) % 8, persistent.getTranspositionTable().getGeneration());
+            }
+            persistentNodes += persistent.getNodeCount();
+            coldNodes += cold.getNodeCount();
+            List<Integer> principalVariation = persistent.getPrincipalVariation();
+            ChessRules.makeMove(board, principalVariation.get(0));
+            ChessRules.makeMove(board, principalVariation.get(1));
+        }
+        assertTrue(persistentNodes < coldNodes);
+    }
+
+    @Test
+    public void parallelSearchMatchesSequential() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r2q1rk1/pp1nbppp/2p1pn2/3p4/2PP1B2/2N1PN2/PP3PPP/R2QKB1R b KQ - 0 8"
+        };
+        for (String fen : fens) {
+            int[] board = PGNWriter.getBoardFromFen(fen);
+            int player = fen.contains(" w ") ? ChessRules.PLAYER_WHITE : ChessRules.PLAYER_BLACK;
+            AI2_v3 sequential = ai(player, 4);
+            sequential.decideOnMove(board);
+            AI2_v3 parallel = ai(player, 4);
+            parallel.setThreads(3);
+            parallel.decideOnMove(board);
+            parallel.setThreads(1);
+            assertEquals(sequential.getBestScore(), parallel.getBestScore());
+            assertEquals(sequential.getBestMoves(), parallel.getBestMoves());
+
+            // The helpers of Lazy SMP fill the transposition-table, so the best moves may come in a different order
+            AI2_v3 lazySmp = ai(player, 4);
+            lazySmp.setThreads(3, AI_MinmaxAbstract.ParallelSearch.LAZY_SMP);
+            lazySmp.decideOnMove(board);
+            lazySmp.setThreads(1);
+            assertEquals(sequential.getBestScore(), lazySmp.getBestScore());
+            assertEquals(new HashSet<>(sequential.getBestMoves()), new HashSet<>(lazySmp.getBestMoves()));
+        }
+    }
+
+    @Test
+    public void executorCanBeSetAfterChangingTheThreads() throws InterruptedException {
+        int[] board = PGNWriter.getBoardFromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        AI2_v3 ai = ai(ChessRules.PLAYER_WHITE, 3);
+        ai.setThreads(4);
+        ai.decideOnMove(board.clone());
+        // Shuts down the pool of the AI
+        ai.setThreads(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            ai.setExecutor(pool);
+            assertTrue(ChessRules.moveIsLegal(board, ai.decideOnMove(board.clone())));
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package program.players.ais.v2;
+
+import org.junit.jupiter.api.Test;
+import program.ChessRules;
+import program.Position;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveOrderingTest {
+
+    // White pawn c4, queen d1 and king e1 against black queen d5, pawn h5 and king e8
+    private static final String FEN = "4k3/8/8/3q3p/2P5/8/8/3QK3 w - - 0 1";
+
+    private static final int PAWN_TAKES_QUEEN = ChessRules.getMove(34, 27);
+    private static final int QUEEN_TAKES_QUEEN = ChessRules.getMove(59, 27);
+    private static final int QUEEN_TAKES_PAWN = ChessRules.getMove(59, 31);
+    private static final int KING_E1_F1 = ChessRules.getMove(60, 61);
+    private static final int KING_E1_F2 = ChessRules.getMove(60, 53);
+    private static final int QUEEN_D1_A4 = ChessRules.getMove(59, 32);
+
+    @Test
+    public void hashMoveThenCapturesByMvvLva() {
+        Position position = Position.fromFen(FEN);
+        MoveOrdering ordering = new MoveOrdering(4);
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int count = position.getLegalMoves(ChessRules.PLAYER_WHITE, moves);
+        ordering.orderMoves(position, ChessRules.PLAYER_WHITE, moves, count, KING_E1_F1, 0);
+
+        assertEquals(KING_E1_F1, moves[0]);
+        assertEquals(PAWN_TAKES_QUEEN, moves[1]);
+        assertEquals(QUEEN_TAKES_QUEEN, moves[2]);
+        assertEquals(QUEEN_TAKES_PAWN, moves[3]);
+        for (int i = 4; i < count; i++) {
+            assertTrue(MoveOrdering.isQuiet(position.getBoard(), moves[i]));
+        }
+        assertEquals(position.getLegalMoves(ChessRules.PLAYER_WHITE).size(), count);
+    }
+
+    @Test
+    public void killersAndHistoryOrderQuietMoves() {
+        Position position = Position.fromFen(FEN);
+        MoveOrdering ordering = new MoveOrdering(4);
+
+        // Captures are no killers
+        ordering.addCutoff(position, ChessRules.PLAYER_WHITE, PAWN_TAKES_QUEEN, 3, 1);
+        assertEquals(0, ordering.getKiller(1, 0));
+
+        ordering.addCutoff(position, ChessRules.PLAYER_WHITE, KING_E1_F1, 3, 1);
+        ordering.addCutoff(position, ChessRules.PLAYER_WHITE, KING_E1_F2, 2, 1);
+        assertEquals(KING_E1_F2, ordering.getKiller(1, 0));
+        assertEquals(KING_E1_F1, ordering.getKiller(1, 1));
+        assertEquals(9, ordering.getHistory(ChessRules.PLAYER_WHITE, KING_E1_F1));
+        assertEquals(0, ordering.getHistory(ChessRules.PLAYER_BLACK, KING_E1_F1));
+
+        // Cut-offs in another ply only count in the history
+        ordering.addCutoff(position, ChessRules.PLAYER_WHITE, QUEEN_D1_A4, 1, 3);
+
+        int[] moves = new int[ChessRules.MAX_MOVES];
+        int count = position.getLegalMoves(ChessRules.PLAYER_WHITE, moves);
+        ordering.orderMoves(position, ChessRules.PLAYER_WHITE, moves, count, 0, 1);
+        assertEquals(PAWN_TAKES_QUEEN, moves[0]);
+        assertEquals(KING_E1_F2, moves[3]);
+        assertEquals(KING_E1_F1, moves[4]);
+        assertEquals(QUEEN_D1_A4, moves[5]);
+
+        ordering.clear();
+        assertEquals(0, ordering.getKiller(1, 0));
+        assertEquals(0, ordering.getHistory(ChessRules.PLAYER_WHITE, KING_E1_F1));
+    }
+}
@@ -0,0 +1,155 @@
+package program.players.ais.v2;
+
+import org.junit.jupiter.api.Test;
+import program.ChessRules;
+import program.PGNWriter;
+import program.Position;
+import program.dataset_management.OpeningBookBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTest {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final int E2E4 = (36 << 8) | 52;
+    private static final int D2D4 = (35 << 8) | 51;
+
+    private static final String PGN = """
+            [Event "1"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {a comment
+            over two lines} Nc6 (2... d6 3. d4) 3. Bb5 a6 1-0
+
+            [Event "2"]
+
+            1.e4 e5 2.Nf3 Nc6 $1 3.Bc4 ; rest of the line
+            Bc5 4. O-O Nf6 *
+
+            [Event "3"]
+
+            1. e4 c5 2. Nf3 d6 1/2-1/2
+
+            [Event "4"]
+
+            1. d4 d5 2. c4 0-1
+
+            [Event "5"]
+            [SetUp "1"]
+            [FEN "4k3/8/8/8/8/8/8/4K3 w - - 0 1"]
+
+            1. Kd2 Kd7 *
+            """;
+
+    private static OpeningBook build(Path file, int minGames) throws IOException {
+        // A tiny run-size, so the positions are spread over many runs which have to be merged
+        OpeningBookBuilder builder = new OpeningBookBuilder(6, minGames, 4);
+        builder.importGames(new BufferedReader(new StringReader(PGN)));
+        assertEquals(5, builder.getGames());
+        assertEquals(1, builder.getSkippedGames());
+        builder.writeBook(file);
+        return OpeningBook.open(file);
+    }
+
+    @Test
+    public void movesAreCountedByPosition() throws IOException {
+        Path file = Files.createTempFile("openingBook", ".bin");
+        try {
+            OpeningBook book = build(file, 1);
+            int[] moves = new int[ChessRules.MAX_MOVES];
+            int[] weights = new int[ChessRules.MAX_MOVES];
+            long start = Position.fromFen(START_FEN).getKey();
+            assertEquals(2, book.getMoves(start, moves, weights));
+            // Sorted by move
+            assertEquals(D2D4, moves[0]);
+            assertEquals(1, weights[0]);
+            assertEquals(E2E4, moves[1]);
+            assertEquals(3, weights[1]);
+
+            // 1. e4 e5 2. Nf3 Nc6: Bb5 and Bc4 once each, the variation 2... d6 is not counted
+            int[] board = PGNWriter.getBoardFromFen(START_FEN);
+            int player = ChessRules.PLAYER_WHITE;
+            for (String san : new String[]{"e4", "e5", "Nf3"}) {
+                ChessRules.makeMove(board, PGNWriter.getMoveFromSAN(board, player, san));
+                player ^= ChessRules.MASK_PLAYER;
+            }
+            assertEquals(1, book.getMoves(new Position(board, player).getKey(), moves, weights));
+            assertEquals(PGNWriter.getMoveFromSAN(board, player, "Nc6"), moves[0]);
+            assertEquals(2, weights[0]);
+
+            assertEquals(0, book.getMoves(Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1").getKey(), moves, weights));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void rareMovesAreLeftOut() throws IOException {
+        Path file = Files.createTempFile("openingBook", ".bin");
+        try {
+            OpeningBook book = build(file, 2);
+            int[] moves = new int[ChessRules.MAX_MOVES];
+            int[] weights = new int[ChessRules.MAX_MOVES];
+            assertEquals(1, book.getMoves(Position.fromFen(START_FEN).getKey(), moves, weights));
+            assertEquals(E2E4, moves[0]);
+            int[] board = PGNWriter.getBoardFromFen(START_FEN);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(E2E4, book.chooseMove(board, ChessRules.PLAYER_WHITE, new Random(i)));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void aiPlaysTheBookWithoutSearching() throws IOException {
+        Path file = Files.createTempFile("openingBook", ".bin");
+        try {
+            AI2_v3 ai = new AI2_v3(ChessRules.PLAYER_WHITE);
+            ai.setOpeningBook(build(file, 2));
+            int[] board = PGNWriter.getBoardFromFen(START_FEN);
+            assertEquals(E2E4, ai.decideOnMove(board));
+            assertEquals(0, ai.getNodeCount());
+
+            // Out of the book the AI searches
+            ChessRules.makeMove(board, D2D4);
+            ChessRules.makeMove(board, PGNWriter.getMoveFromSAN(board, ChessRules.PLAYER_BLACK, "Nf6"));
+            assertNotEquals(0, ai.decideOnMove(board));
+            assertTrue(ai.getNodeCount() > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void notFilesAreRejected() throws IOException {
+        Path file = Files.createTempFile("openingBook", ".bin");
+        try {
+            Files.write(file, new byte[OpeningBook.HEADER_BYTES]);
+            assertThrows(IOException.class, () -> OpeningBook.open(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void sanMovesAreRead() {
+        int[] board = PGNWriter.getBoardFromFen("r3k2r/1P6/8/8/8/5N2/8/R3K2R w KQkq - 0 1");
+        int white = ChessRules.PLAYER_WHITE;
+        assertEquals((62 << 8) | 60, PGNWriter.getMoveFromSAN(board, white, "O-O"));
+        assertEquals((58 << 8) | 60, PGNWriter.getMoveFromSAN(board, white, "0-0-0+"));
+        // Queen-promotion is 0 in the promotion-bits
+        assertEquals((1 << 8) | 9, PGNWriter.getMoveFromSAN(board, white, "b8=Q"));
+        assertEquals(PGNWriter.getMoveFromSAN(board, white, "bxa8=N#"), PGNWriter.getMoveFromSAN(board, white, "bxa8N"));
+        assertNotEquals((0 << 8) | 9, PGNWriter.getMoveFromSAN(board, white, "bxa8=N"));
+        assertEquals((35 << 8) | 45, PGNWriter.getMoveFromSAN(board, white, "Nfd4!?"));
+        assertThrows(IllegalArgumentException.class, () -> PGNWriter.getMoveFromSAN(board, white, "Qd4"));
+    }
+}
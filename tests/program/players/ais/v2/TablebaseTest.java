@@ -0,0 +1,140 @@
+package program.players.ais.v2;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import program.ChessRules;
+import program.Position;
+import program.dataset_management.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTest {
+
+    private static Path directory;
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        directory = Files.createTempDirectory("tablebases");
+        TablebaseGenerator generator = new TablebaseGenerator(directory);
+        generator.generate("KQK");
+        // Needs KQK, KRK, KBK and KNK for the promotions
+        generator.generate("KKP");
+        tablebase = Tablebase.open(directory);
+    }
+
+    @AfterAll
+    public static void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static int mateIn(String fen) {
+        int score = tablebase.probe(Position.fromFen(fen), 0);
+        assertNotEquals(Tablebase.NOT_FOUND, score);
+        return Integer.signum(score) * AI_MinmaxAbstract.getMatePlies(score);
+    }
+
+    @Test
+    public void tablesOfTheSmallerMaterialsAreGenerated() {
+        assertEquals(List.of("KBK", "KNK", "KPK", "KQK", "KRK"), tablebase.getMaterials().stream().sorted().toList());
+        assertEquals(3, tablebase.getMaxPieces());
+    }
+
+    @Test
+    public void knownResults() {
+        // Checkmate and mate in one ply
+        assertEquals(-AI_MinmaxAbstract.SCORE_MATE, tablebase.probe(Position.fromFen("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1"), 0));
+        assertEquals(1, mateIn("k7/8/1K6/8/8/8/7Q/8 w - - 0 1"));
+        // Stalemate
+        assertEquals(0, tablebase.probe(Position.fromFen("k7/8/1K6/8/8/8/7Q/8 b - - 0 1"), 0));
+        assertTrue(mateIn("k7/8/1K6/8/8/8/8/7Q b - - 0 1") < 0);
+        // Black can take the queen
+        assertEquals(0, tablebase.probe(Position.fromFen("7K/8/8/8/8/8/1kQ5/8 b - - 0 1"), 0));
+        // King in front of the pawn on the sixth row: a win, whoever moves
+        assertTrue(mateIn("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1") > 0);
+        assertTrue(mateIn("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1") < 0);
+        // Stalemate after the pawn has reached the seventh row, and the rook-pawn with the king in the corner
+        assertEquals(0, tablebase.probe(Position.fromFen("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1"), 0));
+        assertEquals(0, tablebase.probe(Position.fromFen("k7/8/8/8/8/8/P7/K7 w - - 0 1"), 0));
+        // The longest mate of KQK is 10 moves
+        int longest = 0;
+        Tablebase.Material material = new Tablebase.Material("KQK");
+        int[] board = new int[64];
+        for (int index = 0; index < material.size(); index++) {
+            if (material.decode(index, board)) {
+                int player = Tablebase.Material.getPlayer(index);
+                Position position = new Position(board, player);
+                int score = tablebase.probe(position, 0);
+                if (score > 0) {
+                    longest = Math.max(longest, AI_MinmaxAbstract.getMatePlies(score));
+                }
+            }
+        }
+        assertEquals(19, longest);
+    }
+
+    @Test
+    public void mirroredPositionsHaveTheSameResult() {
+        assertEquals(tablebase.probe(Position.fromFen("8/8/8/8/2k5/8/4P3/4K3 w - - 0 1"), 0),
+                tablebase.probe(Position.fromFen("4k3/4p3/8/2K5/8/8/8/8 b - - 0 1"), 0));
+        assertEquals(tablebase.probe(Position.fromFen("8/8/8/3k4/8/8/8/R3K3 b - - 0 1"), 0),
+                tablebase.probe(Position.fromFen("r3k3/8/8/8/3K4/8/8/8 w - - 0 1"), 0));
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(Position.fromFen("8/8/8/3k4/8/8/8/RR2K3 b - - 0 1"), 0));
+    }
+
+    @Test
+    public void materialIndex() {
+        assertEquals("KRK", Tablebase.Material.canonicalName("KKR"));
+        assertEquals("KBNK", Tablebase.Material.canonicalName("KNBK"));
+        assertEquals(List.of("KQK", "KRK", "KBK", "KNK"), new Tablebase.Material("KPK").getSubMaterials());
+        assertThrows(IllegalArgumentException.class, () -> new Tablebase.Material("KQRKR"));
+        assertThrows(IllegalArgumentException.class, () -> new Tablebase.Material("KNBK"));
+
+        Tablebase.Material material = new Tablebase.Material("KBBK");
+        Position position = Position.fromFen("8/8/8/3k4/8/2B5/8/B3K3 b - - 0 1");
+        int index = material.getIndex(position, false);
+        assertEquals(ChessRules.PLAYER_BLACK, Tablebase.Material.getPlayer(index));
+        int[] board = new int[64];
+        assertTrue(material.decode(index, board));
+        assertEquals(position.getKey(), new Position(board, ChessRules.PLAYER_BLACK).getKey());
+        // The same bishops in the other order are no index
+        int swapped = index ^ ((42 ^ 56) << 7) ^ ((42 ^ 56) << 13);
+        assertFalse(material.decode(swapped, board));
+    }
+
+    @Test
+    public void aiPlaysTheTablesWithoutSearching() {
+        AI2_v3 ai = new AI2_v3(ChessRules.PLAYER_WHITE);
+        ai.setTablebase(tablebase);
+        int[] board = Position.fromFen("k7/8/1K6/8/8/8/7Q/8 w - - 0 1").toBoard();
+        int move = ai.decideOnMove(board);
+        assertEquals(0, ai.getNodeCount());
+        assertEquals(AI_MinmaxAbstract.SCORE_MATE - 1, ai.getBestScore());
+        ChessRules.makeMove(board, move);
+        assertTrue(ChessRules.noLegalMovesLeft(board, ChessRules.PLAYER_BLACK));
+        assertTrue(ChessRules.playerInCheck(board, ChessRules.PLAYER_BLACK));
+    }
+
+    @Test
+    public void searchUsesTheTables() {
+        // Rook against queen: not in the tables, but after taking the rook it is KQK
+        AI2_v3 ai = new AI2_v3(ChessRules.PLAYER_WHITE, AI2_v3.getDefaultParams(2));
+        ai.setTablebase(tablebase);
+        ai.decideOnMove(Position.fromFen("8/8/8/3k4/8/8/3r4/3QK3 w - - 0 1").toBoard());
+        assertTrue(ai.getNodeCount() > 0);
+        assertTrue(AI_MinmaxAbstract.isMateScore(ai.getBestScore()));
+        assertTrue(ai.getBestScore() > 0);
+    }
+}
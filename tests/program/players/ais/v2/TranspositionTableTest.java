@@ -0,0 +1,112 @@
+package program.players.ais.v2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void sizeIsPowerOfTwo() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(Integer.highestOneBit(table.getCapacity()), table.getCapacity());
+        assertTrue((long) table.getCapacity() * TranspositionTable.BYTES_PER_ENTRY <= 1024 * 1024);
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        assertFalse(table.probe(42, entry));
+        table.store(42, 5, -150, TranspositionTable.BOUND_LOWER, (36 << 8) | 52);
+        assertTrue(table.probe(42, entry));
+        assertEquals(5, entry.getDepth());
+        assertEquals(-150, entry.getScore());
+        assertEquals(TranspositionTable.BOUND_LOWER, entry.getBound());
+        assertEquals((36 << 8) | 52, entry.getMove());
+        assertEquals(2, table.getProbes());
+        assertEquals(1, table.getHits());
+
+        table.clear();
+        assertFalse(table.probe(42, entry));
+    }
+
+    @Test
+    public void deepEntriesAreKept() {
+        TranspositionTable table = new TranspositionTable(1);
+        TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        long bucketOffset = table.getCapacity() / 2;
+        // Three positions in the same bucket
+        table.store(1, 6, 1, TranspositionTable.BOUND_EXACT, 0);
+        table.store(1 + bucketOffset, 2, 2, TranspositionTable.BOUND_EXACT, 0);
+        table.store(1 + 2 * bucketOffset, 3, 3, TranspositionTable.BOUND_EXACT, 0);
+        // The deep one stays in the depth-preferred slot, the newest one replaced the other
+        assertTrue(table.probe(1, entry));
+        assertFalse(table.probe(1 + bucketOffset, entry));
+        assertTrue(table.probe(1 + 2 * bucketOffset, entry));
+        assertEquals(3, entry.getScore());
+        assertEquals(1, table.getCollisions());
+
+        // A deeper search replaces the deep one
+        table.store(1 + bucketOffset, 7, 4, TranspositionTable.BOUND_EXACT, 0);
+        assertFalse(table.probe(1, entry));
+        assertTrue(table.probe(1 + bucketOffset, entry));
+        assertEquals(4, entry.getScore());
+    }
+
+    @Test
+    public void olderGenerationsAreReplaced() {
+        TranspositionTable table = new TranspositionTable(1);
+        TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        long bucketOffset = table.getCapacity() / 2;
+        table.store(1, 6, 1, TranspositionTable.BOUND_EXACT, 0);
+        table.newSearch();
+        assertEquals(1, table.getGeneration());
+        // The deep entry of the last search is still found, but a shallow one of the new search takes its slot
+        assertTrue(table.probe(1, entry));
+        assertEquals(0, entry.getGeneration());
+        assertEquals(TranspositionTable.BOUND_EXACT, entry.getBound());
+        table.store(1 + bucketOffset, 2, 2, TranspositionTable.BOUND_UPPER, 0);
+        table.store(1 + 2 * bucketOffset, 1, 3, TranspositionTable.BOUND_EXACT, 0);
+        assertFalse(table.probe(1, entry));
+        assertTrue(table.probe(1 + bucketOffset, entry));
+        assertEquals(1, entry.getGeneration());
+        assertEquals(TranspositionTable.BOUND_UPPER, entry.getBound());
+        assertTrue(table.probe(1 + 2 * bucketOffset, entry));
+
+        for (int i = 0; i < 7; i++) {
+            table.newSearch();
+        }
+        assertEquals(0, table.getGeneration());
+    }
+
+    @Test
+    public void concurrentWritesNeverMixEntries() throws Exception {
+        // Two threads keep overwriting the same slot. Every entry read has to be one that was written as a whole:
+        // the score is always the key times 10, the depth the key modulo 100.
+        TranspositionTable table = new TranspositionTable(1);
+        long bucketOffset = table.getCapacity() / 2;
+        AtomicBoolean mixed = new AtomicBoolean();
+        try (ExecutorService service = Executors.newFixedThreadPool(2)) {
+            for (int thread = 0; thread < 2; thread++) {
+                int offset = thread;
+                service.submit(() -> {
+                    TranspositionTable.Entry entry = new TranspositionTable.Entry();
+                    for (int i = 0; i < 200000; i++) {
+                        long key = 1 + bucketOffset * (2 * (i % 50) + offset);
+                        table.store(key, (int) (key % 100), (int) key * 10, TranspositionTable.BOUND_EXACT, 0);
+                        long probed = 1 + bucketOffset * ((i * 7) % 100);
+                        if (table.probe(probed, entry) && (entry.getScore() != probed * 10 || entry.getDepth() != probed % 100))
+                            mixed.set(true);
+                    }
+                });
+            }
+        }
+        assertFalse(mixed.get());
+    }
+}